@@ -0,0 +1,79 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.eclipse.projectlocationupdater.utils.ListUtil;
+import com.github.eclipse.projectlocationupdater.utils.Predicate;
+
+/**
+ * Filtering the workspace projects, as done by <code>PLUWizardProjectsPage</code> when the wizard
+ * is opened.
+ *
+ * @author Max Gensthaler
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListUtilBenchmark {
+	/** Accepts the projects outside of the workspace, every second one. */
+	private static final Predicate<Project> OUTSIDE_WORKSPACE_PREDICATE = new Predicate<Project>() {
+		@Override
+		public boolean apply(Project project) {
+			return project.rawLocation != null;
+		}
+	};
+
+	@Param({ "10", "1000", "100000" })
+	public int projectCount;
+
+	private Collection<Project> projects;
+
+	@Setup
+	public void setUp() {
+		List<String> locations = SyntheticData.createLocations(projectCount, 40);
+		projects = new ArrayList<Project>(projectCount);
+		for (int i = 0; i < projectCount; i++) {
+			projects.add(new Project(i % 2 == 0 ? locations.get(i) : null));
+		}
+	}
+
+	@Benchmark
+	public List<Project> filterToList() {
+		return ListUtil.filterToList(projects, OUTSIDE_WORKSPACE_PREDICATE);
+	}
+
+	@Benchmark
+	public Set<Project> filterToSet() {
+		return ListUtil.filterToSet(projects, OUTSIDE_WORKSPACE_PREDICATE);
+	}
+
+	/**
+	 * Stands in for an <code>IProject</code>, with identity equality like the workspace projects.
+	 */
+	static class Project {
+		final String rawLocation;
+
+		Project(String rawLocation) {
+			this.rawLocation = rawLocation;
+		}
+	}
+}
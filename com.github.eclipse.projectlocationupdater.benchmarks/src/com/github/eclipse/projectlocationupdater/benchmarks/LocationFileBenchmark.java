@@ -0,0 +1,72 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+
+/**
+ * Reading and writing a single .location file, as done by
+ * <code>LocationUpdater.readProjectLocation</code> and <code>writeProjectLocation</code>.
+ *
+ * @author Max Gensthaler
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocationFileBenchmark {
+	@Param({ "0", "10", "1000" })
+	public int referenceCount;
+
+	@Param({ "40", "250" })
+	public int pathLength;
+
+	private File dir;
+	private File file;
+	private String[] newRecords;
+	private int writeCount;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = SyntheticData.createTempDir("locationfile"); //$NON-NLS-1$
+		file = new File(dir, ".location"); //$NON-NLS-1$
+		String location = SyntheticData.createLocations(1, pathLength).get(0);
+		SyntheticData.writeLocationFile(file, location, referenceCount);
+		// alternate between two locations, an unchanged location would skip the write
+		newRecords = new String[] { LocationRecords.toRecord(new File(location + "-moved")), LocationRecords.toRecord(new File(location)) }; //$NON-NLS-1$
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SyntheticData.deleteDir(dir);
+	}
+
+	@Benchmark
+	public String readProjectLocation() throws IOException {
+		return LocationRecords.toLocation(LocationFile.read(file).getLocation());
+	}
+
+	@Benchmark
+	public boolean writeProjectLocation() throws IOException {
+		return LocationFile.read(file).write(newRecords[writeCount++ & 1], null);
+	}
+}
@@ -0,0 +1,85 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.eclipse.projectlocationupdater.core.PathResolutionCache;
+
+/**
+ * Resolving the locations of a batch of projects below a symbolic link, once per location with
+ * {@link java.nio.file.Path#toRealPath(java.nio.file.LinkOption...)} and with one shared
+ * {@link PathResolutionCache}.
+ *
+ * @author Max Gensthaler
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathResolutionBenchmark {
+	@Param({ "100", "10000" })
+	public int projectCount;
+
+	private File dir;
+	private String[] locations;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = SyntheticData.createTempDir("resolution"); //$NON-NLS-1$
+		File realRoot = new File(dir, "real/a/b/c/d"); //$NON-NLS-1$
+		Files.createSymbolicLink(new File(dir, "link").toPath(), Paths.get("real/a/b")); //$NON-NLS-1$ //$NON-NLS-2$
+		locations = new String[projectCount];
+		for (int i = 0; i < projectCount; i++) {
+			String relativePath = "group" + (i % 10) + "/project" + i; //$NON-NLS-1$ //$NON-NLS-2$
+			new File(realRoot, relativePath).mkdirs();
+			locations[i] = new File(dir, "link/c/d/" + relativePath).getPath(); //$NON-NLS-1$
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SyntheticData.deleteDir(dir);
+	}
+
+	@Benchmark
+	public int toRealPath() throws IOException {
+		int directories = 0;
+		for (String location : locations) {
+			if (Files.isDirectory(Paths.get(location).toRealPath())) {
+				directories++;
+			}
+		}
+		return directories;
+	}
+
+	@Benchmark
+	public int resolutionCache() {
+		PathResolutionCache resolutions = new PathResolutionCache();
+		int directories = 0;
+		for (String location : locations) {
+			if (resolutions.isDirectory(location)) {
+				directories++;
+			}
+		}
+		return directories;
+	}
+}
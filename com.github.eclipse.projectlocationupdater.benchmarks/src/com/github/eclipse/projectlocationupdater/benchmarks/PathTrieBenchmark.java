@@ -0,0 +1,57 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.eclipse.projectlocationupdater.utils.PathTrie;
+
+/**
+ * Computing the common prefix and the relocation roots of the selected projects, as done by
+ * <code>PLUWizard</code> before showing the update page (formerly
+ * <code>PLUWizard.getCommonPathPrefix</code>).
+ *
+ * @author Max Gensthaler
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathTrieBenchmark {
+	@Param({ "10", "1000", "100000" })
+	public int projectCount;
+
+	@Param({ "40", "250" })
+	public int pathLength;
+
+	private List<String> locations;
+
+	@Setup
+	public void setUp() {
+		locations = SyntheticData.createLocations(projectCount, pathLength);
+	}
+
+	@Benchmark
+	public String commonPrefix() {
+		return PathTrie.create(locations).getCommonPrefix();
+	}
+
+	@Benchmark
+	public Map<String, Integer> roots() {
+		return PathTrie.create(locations).getRoots();
+	}
+}
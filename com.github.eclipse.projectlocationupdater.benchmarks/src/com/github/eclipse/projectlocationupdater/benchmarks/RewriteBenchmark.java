@@ -0,0 +1,90 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+
+/**
+ * Rewriting the locations of a set of projects, as done by
+ * <code>LocationUpdater.updateLocationSubstring</code> for each project of a batch.
+ *
+ * @author Max Gensthaler
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RewriteBenchmark {
+	@Param({ "10", "1000", "100000" })
+	public int projectCount;
+
+	@Param({ "1", "100" })
+	public int ruleCount;
+
+	private List<String> locations;
+	private Map<String, String> rules;
+	private LocationRewriter rewriter;
+
+	@Setup
+	public void setUp() {
+		locations = SyntheticData.createLocations(projectCount, 40);
+		// one rule per group of projects, the first one matching all of them
+		rules = new LinkedHashMap<String, String>();
+		rules.put("/home/dev/src", "/data/src"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 1; i < ruleCount; i++) {
+			rules.put("/home/dev/src/group" + i, "/data/group" + i); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		rewriter = LocationRewriter.compile(rules);
+	}
+
+	@Benchmark
+	public LocationRewriter compile() {
+		return LocationRewriter.compile(rules);
+	}
+
+	@Benchmark
+	public void rewrite(Blackhole blackhole) {
+		for (String location : locations) {
+			blackhole.consume(rewriter.rewrite(location));
+		}
+	}
+
+	/**
+	 * A single rule compiled per project, as <code>updateLocationSubstring</code> does.
+	 */
+	@Benchmark
+	public void rewriteSingleRulePerProject(Blackhole blackhole) {
+		for (String location : locations) {
+			blackhole.consume(LocationRewriter.compile(Collections.singletonMap("/home/dev/src", "/data/src")).rewrite(location)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * The former substring replacement, for comparison.
+	 */
+	@Benchmark
+	public void stringReplace(Blackhole blackhole) {
+		for (String location : locations) {
+			blackhole.consume(location.replace("/home/dev/src", "/data/src")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.github.eclipse.projectlocationupdater.benchmarks;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+
+/**
+ * Generates the synthetic input of the benchmarks.
+ *
+ * @author Max Gensthaler
+ */
+abstract class SyntheticData {
+	private SyntheticData() {
+		//
+	}
+
+	/**
+	 * Creates project locations spread over a directory tree, like the projects of a large code
+	 * base: up to 100 projects per directory, the directories nested by 10.
+	 *
+	 * @param count
+	 *            The number of locations.
+	 * @param pathLength
+	 *            The minimum length of each location, the root directory is padded to reach it.
+	 * @return The locations.
+	 */
+	static List<String> createLocations(int count, int pathLength) {
+		StringBuilder root = new StringBuilder("/home/dev/src"); //$NON-NLS-1$
+		while (root.length() + 30 < pathLength) {
+			root.append("/dir").append(root.length()); //$NON-NLS-1$
+		}
+		List<String> locations = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			locations.add(root + "/group" + (i / 1000) + "/module" + (i / 100 % 10) + "/project" + i); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return locations;
+	}
+
+	/**
+	 * Writes a .location file in the format of the Eclipse platform.
+	 *
+	 * @param file
+	 *            The file to write.
+	 * @param location
+	 *            The project location.
+	 * @param referenceCount
+	 *            The number of project references to write behind the location.
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	static void writeLocationFile(File file, String location, int referenceCount) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.write(LocationFile.BEGIN_CHUNK);
+			out.writeUTF(LocationRecords.toRecord(new File(location)));
+			out.writeInt(referenceCount);
+			for (int i = 0; i < referenceCount; i++) {
+				out.writeUTF("referenced.project." + i); //$NON-NLS-1$
+			}
+			out.write(LocationFile.END_CHUNK);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Creates an empty temporary directory.
+	 */
+	static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, ""); //$NON-NLS-1$
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Cannot create temporary directory " + dir); //$NON-NLS-1$
+		}
+		return dir;
+	}
+
+	/**
+	 * Deletes a directory created by {@link #createTempDir(String)} and its content, without
+	 * following symbolic links.
+	 */
+	static void deleteDir(File dir) {
+		File[] files = Files.isSymbolicLink(dir.toPath()) ? null : dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				deleteDir(file);
+			}
+		}
+		dir.delete();
+	}
+}
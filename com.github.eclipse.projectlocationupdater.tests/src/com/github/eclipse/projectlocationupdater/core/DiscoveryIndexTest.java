@@ -0,0 +1,139 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests scanning, saving and matching with the {@link DiscoveryIndex}.
+ *
+ * @author Max Gensthaler
+ */
+public class DiscoveryIndexTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File root;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		root = new File(temporaryFolder.getRoot(), "root"); //$NON-NLS-1$
+		pool = new ForkJoinPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void findsProjectsBelowRoots() throws IOException {
+		File app = new File(root, "src/app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(app, "app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(new File(root, ".hidden/lib"), "lib"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		DiscoveryIndex index = scan(DiscoveryIndex.empty());
+		assertEquals(Arrays.asList(app.getPath()), index.getCandidates("app")); //$NON-NLS-1$
+		assertEquals(0, index.getCandidates("lib").size()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void keepsIndexAcrossSave() throws IOException {
+		File app = new File(root, "src/app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(app, "app"); //$NON-NLS-1$
+		DiscoveryIndex index = scan(DiscoveryIndex.empty());
+
+		File indexFile = new File(temporaryFolder.getRoot(), "state/discovery.index"); //$NON-NLS-1$
+		index.save(indexFile);
+		DiscoveryIndex loaded = DiscoveryIndex.load(indexFile);
+		assertEquals(index.size(), loaded.size());
+		assertEquals(Arrays.asList(app.getPath()), loaded.getCandidates("app")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void loadsMissingFileAsEmpty() throws IOException {
+		assertEquals(0, DiscoveryIndex.load(new File(temporaryFolder.getRoot(), "missing.index")).size()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void rejectsMalformedFile() throws IOException {
+		File indexFile = temporaryFolder.newFile("malformed.index"); //$NON-NLS-1$
+		Files.write(indexFile.toPath(), "not an index".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		try {
+			DiscoveryIndex.load(indexFile);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void rescanSeesChanges() throws IOException {
+		File app = new File(root, "src/app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(app, "app"); //$NON-NLS-1$
+		DiscoveryIndex index = scan(DiscoveryIndex.empty());
+
+		// a renamed project leaves its directory unchanged
+		File projectFile = new File(app, ProjectDescriptions.FILE_NAME);
+		long projectFileModified = projectFile.lastModified();
+		WorkspaceGenerator.writeProjectDescription(app, "renamed"); //$NON-NLS-1$
+		projectFile.setLastModified(projectFileModified + 2000);
+		// a new project changes its parent directory
+		File src = new File(root, "src"); //$NON-NLS-1$
+		long srcModified = src.lastModified();
+		File lib = new File(src, "lib"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(lib, "lib"); //$NON-NLS-1$
+		src.setLastModified(srcModified + 2000);
+
+		DiscoveryIndex rescanned = scan(index);
+		assertEquals(0, rescanned.getCandidates("app").size()); //$NON-NLS-1$
+		assertEquals(Arrays.asList(app.getPath()), rescanned.getCandidates("renamed")); //$NON-NLS-1$
+		assertEquals(Arrays.asList(lib.getPath()), rescanned.getCandidates("lib")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void matchesMostTrailingSegments() throws IOException {
+		File best = new File(root, "new/group/app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(best, "app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(new File(root, "copy/app"), "app"); //$NON-NLS-1$ //$NON-NLS-2$
+		DiscoveryIndex index = scan(DiscoveryIndex.empty());
+
+		assertEquals(best.getPath(), index.match("app", "/old/group/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		// both candidates share one segment only
+		assertNull(index.match("app", "/old/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(index.match("other", "/old/group/other")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void skipsCandidateAtOldLocation() throws IOException {
+		File app = new File(root, "app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(app, "app"); //$NON-NLS-1$
+		DiscoveryIndex index = scan(DiscoveryIndex.empty());
+
+		assertNull(index.match("app", app.getPath())); //$NON-NLS-1$
+	}
+
+	private DiscoveryIndex scan(DiscoveryIndex index) {
+		List<File> roots = Collections.singletonList(root);
+		return index.scan(roots, pool, new AtomicBoolean(false));
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests replacing the location record of a .location file with {@link LocationFile}.
+ *
+ * @author Max Gensthaler
+ */
+public class LocationFileTest {
+	private static final int REFERENCE_COUNT = 3;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File locationFile;
+	private File oldLocation;
+	private File newLocation;
+
+	@Before
+	public void setUp() throws IOException {
+		locationFile = new File(temporaryFolder.getRoot(), ".location"); //$NON-NLS-1$
+		oldLocation = new File(temporaryFolder.getRoot(), "old/app"); //$NON-NLS-1$
+		newLocation = new File(temporaryFolder.getRoot(), "a/much/longer/new/app"); //$NON-NLS-1$
+		WorkspaceGenerator.writeLocationFile(locationFile, oldLocation.getPath(), REFERENCE_COUNT);
+	}
+
+	@Test
+	public void readsLocationRecord() throws IOException {
+		LocationFile file = LocationFile.read(locationFile);
+		assertEquals(LocationRecords.toRecord(oldLocation), file.getLocation());
+		assertEquals(locationFile.length(), file.getSize());
+	}
+
+	@Test
+	public void keepsReferencesVerbatim() throws IOException {
+		int size = LocationFile.read(locationFile).write(LocationRecords.toRecord(newLocation), null);
+
+		byte[] expected = writeExpected(newLocation);
+		assertArrayEquals(expected, Files.readAllBytes(locationFile.toPath()));
+		assertEquals(expected.length, size);
+		assertEquals(Arrays.asList(locationFile.getName()), Arrays.asList(temporaryFolder.getRoot().list()));
+	}
+
+	@Test
+	public void skipsUnchangedLocation() throws IOException {
+		byte[] before = Files.readAllBytes(locationFile.toPath());
+		long lastModified = locationFile.lastModified();
+
+		assertEquals(-1, LocationFile.read(locationFile).write(LocationRecords.toRecord(oldLocation), null));
+		assertArrayEquals(before, Files.readAllBytes(locationFile.toPath()));
+		assertEquals(lastModified, locationFile.lastModified());
+	}
+
+	@Test
+	public void writesWithBatchOnCommit() throws IOException {
+		byte[] before = Files.readAllBytes(locationFile.toPath());
+		RelocationJournal journal = new RelocationJournal(temporaryFolder.newFile("relocation.journal")); //$NON-NLS-1$
+		RelocationJournal.Batch batch = journal.beginBatch();
+
+		int size = LocationFile.read(locationFile).write(LocationRecords.toRecord(newLocation), batch);
+		assertArrayEquals(before, Files.readAllBytes(locationFile.toPath()));
+
+		assertEquals(1, batch.commit());
+		byte[] expected = writeExpected(newLocation);
+		assertArrayEquals(expected, Files.readAllBytes(locationFile.toPath()));
+		assertEquals(expected.length, size);
+	}
+
+	@Test
+	public void rejectsTruncatedFile() throws IOException {
+		byte[] content = Files.readAllBytes(locationFile.toPath());
+		Files.write(locationFile.toPath(), Arrays.copyOf(content, LocationFile.BEGIN_CHUNK.length + 4));
+		try {
+			LocationFile.read(locationFile);
+			fail();
+		} catch (EOFException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * @return The content of a .location file with the given location and the same references.
+	 */
+	private byte[] writeExpected(File location) throws IOException {
+		File expected = temporaryFolder.newFile("expected.location"); //$NON-NLS-1$
+		WorkspaceGenerator.writeLocationFile(expected, location.getPath(), REFERENCE_COUNT);
+		byte[] content = Files.readAllBytes(expected.toPath());
+		expected.delete();
+		return content;
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the prefix matching of the {@link LocationRewriter}.
+ *
+ * @author Max Gensthaler
+ */
+public class LocationRewriterTest {
+	@Test
+	public void longestOldPathWins() {
+		Map<String, String> rules = new LinkedHashMap<String, String>();
+		rules.put("/home/dev", "/data/dev"); //$NON-NLS-1$ //$NON-NLS-2$
+		rules.put("/home/dev/legacy", "/archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		LocationRewriter rewriter = LocationRewriter.compile(rules);
+
+		assertEquals(2, rewriter.size());
+		assertEquals("/data/dev/app", rewriter.rewrite("/home/dev/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("/archive/app", rewriter.rewrite("/home/dev/legacy/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("/archive", rewriter.rewrite("/home/dev/legacy")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void matchesOnSegmentBoundariesOnly() {
+		LocationRewriter rewriter = LocationRewriter.compile(rule("/a/b", "/x")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals("/x/c", rewriter.rewrite("/a/b/c")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(rewriter.rewrite("/a/bc")); //$NON-NLS-1$
+		assertNull(rewriter.rewrite("/a")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void acceptsBothSeparators() {
+		LocationRewriter rewriter = LocationRewriter.compile(rule("C:\\work\\", "D:/work")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals("D:/work\\app", rewriter.rewrite("C:\\work\\app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("D:/work//app", rewriter.rewrite("C:/work//app")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void rootMatchesAbsoluteUnixPathsOnly() {
+		LocationRewriter rewriter = LocationRewriter.compile(rule("/", "/mnt/old")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals("/mnt/old/a", rewriter.rewrite("/a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(rewriter.rewrite("C:/a")); //$NON-NLS-1$
+		assertNull(rewriter.rewrite("a")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void firstOfEqualOldPathsWins() {
+		Map<String, String> rules = new LinkedHashMap<String, String>();
+		rules.put("/a/b", "/first"); //$NON-NLS-1$ //$NON-NLS-2$
+		rules.put("/a/b/", "/second"); //$NON-NLS-1$ //$NON-NLS-2$
+		LocationRewriter rewriter = LocationRewriter.compile(rules);
+
+		assertEquals(1, rewriter.size());
+		assertEquals("/first/c", rewriter.rewrite("/a/b/c")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyOldPathIsRejected() {
+		LocationRewriter.compile(rule("", "/x")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static Map<String, String> rule(String oldPath, String newPath) {
+		Map<String, String> rules = new LinkedHashMap<String, String>();
+		rules.put(oldPath, newPath);
+		return rules;
+	}
+}
@@ -0,0 +1,108 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.eclipse.projectlocationupdater.core.MappingReader.Format;
+
+/**
+ * Tests matching relocation mappings against project locations with the {@link MappingImport}.
+ *
+ * @author Max Gensthaler
+ */
+public class MappingImportTest {
+	@Test
+	public void longestOldPathWins() {
+		Map<String, String> projectLocations = new LinkedHashMap<String, String>();
+		projectLocations.put("app", "/old/src/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		projectLocations.put("lib", "/old/lib"); //$NON-NLS-1$ //$NON-NLS-2$
+		MappingImport mappingImport = new MappingImport(projectLocations);
+		mappingImport.add("/old", "/new", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/old/src", "/sources", 2); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/unrelated", "/elsewhere", 3); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Map<String, String> newLocations = mappingImport.getNewLocations();
+		assertEquals("/sources/app", newLocations.get("app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("/new/lib", newLocations.get("lib")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, mappingImport.getMatchedCount());
+		assertEquals(1, mappingImport.getUnmatchedCount());
+	}
+
+	@Test
+	public void matchesOnSegmentBoundaries() {
+		MappingImport mappingImport = new MappingImport(Collections.singletonMap("app", "/old2/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/old", "/new", 1); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(0, mappingImport.getNewLocations().size());
+		assertEquals(1, mappingImport.getUnmatchedCount());
+	}
+
+	@Test
+	public void joinsTrailingSlashes() {
+		Map<String, String> projectLocations = new LinkedHashMap<String, String>();
+		projectLocations.put("app", "/old/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		projectLocations.put("lib", "/libs/lib"); //$NON-NLS-1$ //$NON-NLS-2$
+		MappingImport mappingImport = new MappingImport(projectLocations);
+		mappingImport.add("/old/", "/new/", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/libs", "/", 2); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Map<String, String> newLocations = mappingImport.getNewLocations();
+		assertEquals("/new/app", newLocations.get("app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("/lib", newLocations.get("lib")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void skipsProjectsOfConflictingMapping() {
+		Map<String, String> projectLocations = new LinkedHashMap<String, String>();
+		projectLocations.put("app", "/old/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		projectLocations.put("lib", "/other/lib"); //$NON-NLS-1$ //$NON-NLS-2$
+		MappingImport mappingImport = new MappingImport(projectLocations);
+		mappingImport.add("/old", "/new", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/old/", "/new", 2); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/old", "/newer", 3); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/other", "/moved", 4); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Map<String, String> newLocations = mappingImport.getNewLocations();
+		assertEquals(Collections.singletonMap("lib", "/moved/lib"), newLocations); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, mappingImport.getMatchedCount());
+		assertEquals(1, mappingImport.getConflictCount());
+		assertEquals(2, mappingImport.getProblems().size());
+	}
+
+	@Test
+	public void skipsProjectsRelocatedToSameLocation() {
+		Map<String, String> projectLocations = new LinkedHashMap<String, String>();
+		projectLocations.put("app", "/a/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		projectLocations.put("copy", "/b/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		projectLocations.put("lib", "/a/lib"); //$NON-NLS-1$ //$NON-NLS-2$
+		MappingImport mappingImport = new MappingImport(projectLocations);
+		mappingImport.add("/a", "/new", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		mappingImport.add("/b", "/new", 2); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Map<String, String> newLocations = mappingImport.getNewLocations();
+		assertEquals(Collections.singletonMap("lib", "/new/lib"), newLocations); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, mappingImport.getProblems().size());
+	}
+
+	@Test
+	public void countsMalformedLines() throws IOException {
+		MappingImport mappingImport = new MappingImport(Collections.singletonMap("app", "/old/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		MappingReader reader = new MappingReader(new StringReader("/old,/new\n/broken\n"), Format.CSV); //$NON-NLS-1$
+		try {
+			mappingImport.addAll(reader);
+		} finally {
+			reader.close();
+		}
+
+		assertEquals(Collections.singletonMap("app", "/new/app"), mappingImport.getNewLocations()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, mappingImport.getMalformedCount());
+		assertEquals("Line 2: malformed mapping", mappingImport.getProblems().get(0)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.github.eclipse.projectlocationupdater.core.MappingReader.Format;
+
+/**
+ * Tests the formats read by the {@link MappingReader}.
+ *
+ * @author Max Gensthaler
+ */
+public class MappingReaderTest {
+	@Test
+	public void formatByFileName() {
+		assertEquals(Format.CSV, Format.forFileName("mappings.CSV")); //$NON-NLS-1$
+		assertEquals(Format.PROPERTIES, Format.forFileName("mappings.properties")); //$NON-NLS-1$
+		assertEquals(Format.PROPERTIES, Format.forFileName("mappings.txt")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void readsCsv() throws IOException {
+		MappingReader reader = new MappingReader(new StringReader("/old/a, /new/a\n\"/old/b,c\",\"/new/\"\"b\"\"\"\n"), Format.CSV); //$NON-NLS-1$
+		try {
+			assertArrayEquals(new String[] { "/old/a", "/new/a" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertArrayEquals(new String[] { "/old/b,c", "/new/\"b\"" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void rejectsMalformedCsv() throws IOException {
+		MappingReader reader = new MappingReader(new StringReader("/a,/b,/c\n\"/a,/b\n/a\n/a,\n"), Format.CSV); //$NON-NLS-1$
+		try {
+			for (int i = 0; i < 4; i++) {
+				assertTrue(MappingReader.isMalformed(reader.next()));
+			}
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void readsPropertiesWithBothSeparators() throws IOException {
+		MappingReader reader = new MappingReader(new StringReader("/old/a = /new/a\n/old/b -> /new/b\n"), Format.PROPERTIES); //$NON-NLS-1$
+		try {
+			assertArrayEquals(new String[] { "/old/a", "/new/a" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertArrayEquals(new String[] { "/old/b", "/new/b" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void unescapesPropertiesButKeepsWindowsPaths() throws IOException {
+		MappingReader reader = new MappingReader(new StringReader("C\\:\\\\a\\=b=D:\\work\\\\u00e9\n/\\u00e9=/e\n"), Format.PROPERTIES); //$NON-NLS-1$
+		try {
+			assertArrayEquals(new String[] { "C:\\a=b", "D:\\work\\u00e9" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertArrayEquals(new String[] { "/\u00e9", "/e" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void skipsCommentsAndEmptyLines() throws IOException {
+		MappingReader reader = new MappingReader(new StringReader("# comment\n\n! comment\n  \n/a=/b\nno separator\n/c=\n"), Format.PROPERTIES); //$NON-NLS-1$
+		try {
+			assertArrayEquals(new String[] { "/a", "/b" }, reader.next()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(5, reader.getLineNumber());
+			assertTrue(MappingReader.isMalformed(reader.next()));
+			assertEquals(6, reader.getLineNumber());
+			assertTrue(MappingReader.isMalformed(reader.next()));
+			assertEquals(7, reader.getLineNumber());
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+}
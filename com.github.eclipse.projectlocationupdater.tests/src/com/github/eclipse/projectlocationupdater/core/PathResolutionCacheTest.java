@@ -0,0 +1,82 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests resolving paths with the {@link PathResolutionCache}.
+ *
+ * @author Max Gensthaler
+ */
+public class PathResolutionCacheTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/** The real path of the temporary folder, which might be below a symbolic link itself. */
+	private String root;
+	private PathResolutionCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		root = LocationRewriter.normalize(temporaryFolder.getRoot().toPath().toRealPath().toString());
+		cache = new PathResolutionCache();
+	}
+
+	@Test
+	public void resolvesDirectories() throws IOException {
+		new File(root, "src/app").mkdirs(); //$NON-NLS-1$
+		temporaryFolder.newFile("file"); //$NON-NLS-1$
+
+		assertTrue(cache.isDirectory(root + "/src/app")); //$NON-NLS-1$
+		assertEquals(root + "/src/app", cache.toRealPath(root + "/src/./app/")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(root + "/src", cache.toRealPath(root + "/src/app/..")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(cache.isDirectory(root + "/file")); //$NON-NLS-1$
+		assertNull(cache.toRealPath(root + "/missing/app")); //$NON-NLS-1$
+		assertNull(cache.toRealPath(root + "/file/app")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void followsSymbolicLinks() throws IOException {
+		new File(root, "target/app").mkdirs(); //$NON-NLS-1$
+		Files.createSymbolicLink(new File(root, "link").toPath(), new File(root, "target").toPath()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(root + "/target/app", cache.toRealPath(root + "/link/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(cache.isDirectory(root + "/link/app")); //$NON-NLS-1$
+		assertTrue(cache.isSameFile(root + "/link/app", root + "/target/app")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(cache.isSameFile(root + "/link/app", root + "/link")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(cache.isSameFile(root + "/link/missing", root + "/link/missing")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void stopsAtLinkLoop() throws IOException {
+		Files.createSymbolicLink(new File(root, "a").toPath(), new File(root, "b").toPath()); //$NON-NLS-1$ //$NON-NLS-2$
+		Files.createSymbolicLink(new File(root, "b").toPath(), new File(root, "a").toPath()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.toRealPath(root + "/a/app")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void memoizesPrefixes() {
+		new File(root, "src/app").mkdirs(); //$NON-NLS-1$
+		new File(root, "src/lib").mkdirs(); //$NON-NLS-1$
+
+		cache.isDirectory(root + "/src/app"); //$NON-NLS-1$
+		int size = cache.size();
+		cache.isDirectory(root + "/src/app"); //$NON-NLS-1$
+		assertEquals(size, cache.size());
+		// only the last segment is new
+		cache.isDirectory(root + "/src/lib"); //$NON-NLS-1$
+		assertEquals(size + 1, cache.size());
+	}
+}
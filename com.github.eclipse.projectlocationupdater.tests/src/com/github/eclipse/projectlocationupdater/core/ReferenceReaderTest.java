@@ -0,0 +1,99 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests reading the project references of .location files with the {@link ReferenceReader}.
+ *
+ * @author Max Gensthaler
+ */
+public class ReferenceReaderTest {
+	private static final String LOCATION = "/home/dev/src/app"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File dir;
+	private File locationFile;
+
+	@Before
+	public void setUp() {
+		dir = temporaryFolder.getRoot();
+		locationFile = new File(dir, ".location"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void readsLocationAndReferences() throws IOException {
+		WorkspaceGenerator.writeLocationFile(locationFile, LOCATION, 3);
+		ReferenceReader reader = new ReferenceReader(locationFile);
+		try {
+			assertEquals(LocationRecords.toRecord(new File(LOCATION)), reader.getLocation());
+			assertEquals(3, reader.getReferenceCount());
+			assertEquals(WorkspaceGenerator.getProjectName(0), reader.nextReference());
+			assertArrayEquals(new String[] { WorkspaceGenerator.getProjectName(1), WorkspaceGenerator.getProjectName(2) }, reader.readReferences());
+			assertNull(reader.nextReference());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void readsFileWithoutReferences() throws IOException {
+		WorkspaceGenerator.writeLocationFile(locationFile, LOCATION, 0);
+		ReferenceReader reader = new ReferenceReader(locationFile);
+		try {
+			assertEquals(0, reader.getReferenceCount());
+			assertArrayEquals(new String[0], reader.readReferences());
+			assertNull(reader.nextReference());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsGarbledReferenceCount() throws IOException {
+		WorkspaceGenerator.writeLocationFile(locationFile, LOCATION, 0);
+		RandomAccessFile file = new RandomAccessFile(locationFile, "rw"); //$NON-NLS-1$
+		try {
+			// the count follows the begin chunk and the location record
+			file.seek(LocationFile.BEGIN_CHUNK.length);
+			int recordLength = file.readUnsignedShort();
+			file.seek(file.getFilePointer() + recordLength);
+			file.writeInt(Integer.MAX_VALUE);
+		} finally {
+			file.close();
+		}
+		new ReferenceReader(locationFile).close();
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsTruncatedReferences() throws IOException {
+		WorkspaceGenerator.writeLocationFile(locationFile, LOCATION, 3);
+		RandomAccessFile file = new RandomAccessFile(locationFile, "rw"); //$NON-NLS-1$
+		try {
+			// drop the end chunk and the last reference
+			file.setLength(file.length() - LocationFile.END_CHUNK.length - 2);
+		} finally {
+			file.close();
+		}
+		ReferenceReader reader = new ReferenceReader(locationFile);
+		try {
+			reader.readReferences();
+		} finally {
+			reader.close();
+		}
+	}
+}
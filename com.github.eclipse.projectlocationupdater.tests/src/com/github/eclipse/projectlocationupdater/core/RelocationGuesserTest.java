@@ -0,0 +1,82 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.core.RelocationGuesser.Guess;
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests guessing the new roots of moved projects with the {@link RelocationGuesser}.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationGuesserTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private String newRoot;
+
+	@Before
+	public void setUp() {
+		newRoot = LocationRewriter.normalize(temporaryFolder.getRoot().getPath());
+	}
+
+	@Test
+	public void findsProjectByTrailingSegments() throws IOException {
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, "src/group/app"), "app"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		RelocationGuesser guesser = createGuesser();
+		guesser.add("app", "/old/mount/src/group/app"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		List<Guess> guesses = guesser.getGuesses();
+		assertEquals(1, guesses.size());
+		assertEquals("/old/mount", guesses.get(0).getOldRoot()); //$NON-NLS-1$
+		assertEquals(newRoot, guesses.get(0).getNewRoot());
+		assertEquals(newRoot + "/src/group/app", guesses.get(0).getNewLocations().get("app")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void ignoresDirectoryOfAnotherProject() throws IOException {
+		// same trailing segments, but the description names another project
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, "src/app"), "other"); //$NON-NLS-1$ //$NON-NLS-2$
+		new File(newRoot, "app").mkdirs(); //$NON-NLS-1$
+
+		RelocationGuesser guesser = createGuesser();
+		guesser.add("app", "/old/src/app"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(0, guesser.getGuesses().size());
+		assertEquals(Arrays.asList("app"), guesser.getUnresolvedProjects()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void prefersRootSharedByMostProjects() throws IOException {
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, "src/app"), "app"); //$NON-NLS-1$ //$NON-NLS-2$
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, "src/lib"), "lib"); //$NON-NLS-1$ //$NON-NLS-2$
+		// a stray copy of app which a shorter suffix matches below another search root
+		File otherRoot = new File(temporaryFolder.getRoot(), "other"); //$NON-NLS-1$
+		WorkspaceGenerator.writeProjectDescription(new File(otherRoot, "app"), "app"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		RelocationGuesser guesser = new RelocationGuesser(Arrays.asList(otherRoot.getPath(), newRoot), new PathResolutionCache());
+		guesser.add("app", "/old/src/app"); //$NON-NLS-1$ //$NON-NLS-2$
+		guesser.add("lib", "/old/src/lib"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		List<Guess> guesses = guesser.getGuesses();
+		assertEquals(1, guesses.size());
+		assertEquals("/old", guesses.get(0).getOldRoot()); //$NON-NLS-1$
+		assertEquals(2, guesses.get(0).getNewLocations().size());
+	}
+
+	private RelocationGuesser createGuesser() {
+		return new RelocationGuesser(Arrays.asList(newRoot), new PathResolutionCache());
+	}
+}
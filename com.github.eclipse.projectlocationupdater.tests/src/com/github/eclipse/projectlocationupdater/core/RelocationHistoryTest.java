@@ -0,0 +1,135 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.core.RelocationHistory.Snapshot;
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests capturing, restoring and evicting the snapshots of the {@link RelocationHistory}.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationHistoryTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File dir;
+	private File historyDir;
+	private File journalFile;
+	private File file1;
+	private File file2;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = temporaryFolder.getRoot();
+		historyDir = new File(dir, "history"); //$NON-NLS-1$
+		journalFile = new File(dir, "relocation.journal"); //$NON-NLS-1$
+		file1 = new File(dir, "1.location"); //$NON-NLS-1$
+		file2 = new File(dir, "2.location"); //$NON-NLS-1$
+		write(file1, "same"); //$NON-NLS-1$
+		write(file2, "same"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void captureAndRestore() throws IOException {
+		RelocationHistory history = new RelocationHistory(historyDir, Long.MAX_VALUE);
+		Snapshot snapshot = history.capture(Arrays.asList(file1, file2, new File(dir, "missing.location")), "batch"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("batch", history.getLatest().getLabel()); //$NON-NLS-1$
+		assertEquals(2, snapshot.getFileCount());
+		assertEquals(Arrays.asList(file1.getAbsoluteFile(), file2.getAbsoluteFile()), history.getFiles(snapshot));
+
+		write(file1, "changed1"); //$NON-NLS-1$
+		write(file2, "changed2"); //$NON-NLS-1$
+		RelocationJournal journal = new RelocationJournal(journalFile);
+		assertEquals(2, history.restore(snapshot, journal));
+
+		assertEquals("same", read(file1)); //$NON-NLS-1$
+		assertEquals("same", read(file2)); //$NON-NLS-1$
+		// one batch for all restored files
+		assertEquals(1, journal.getForceCount());
+		assertFalse(journalFile.exists());
+		assertNull(history.getLatest());
+	}
+
+	@Test
+	public void restoreDropsLaterSnapshots() throws IOException {
+		RelocationHistory history = new RelocationHistory(historyDir, Long.MAX_VALUE);
+		Snapshot first = history.capture(Arrays.asList(file1), "first"); //$NON-NLS-1$
+		write(file1, "changed"); //$NON-NLS-1$
+		history.capture(Arrays.asList(file1), "second"); //$NON-NLS-1$
+		assertEquals(2, history.getSnapshots().size());
+
+		history.restore(first, new RelocationJournal(journalFile));
+		assertEquals("same", read(file1)); //$NON-NLS-1$
+		assertEquals(0, history.getSnapshots().size());
+	}
+
+	@Test
+	public void locationFilesAreRestoredExactly() throws IOException {
+		// same references behind different locations
+		WorkspaceGenerator.writeLocationFile(file1, "/home/dev/src/project1", 3); //$NON-NLS-1$
+		WorkspaceGenerator.writeLocationFile(file2, "/home/dev/src/project2", 3); //$NON-NLS-1$
+		byte[] content1 = Files.readAllBytes(file1.toPath());
+		byte[] content2 = Files.readAllBytes(file2.toPath());
+		RelocationHistory history = new RelocationHistory(historyDir, Long.MAX_VALUE);
+		Snapshot snapshot = history.capture(Arrays.asList(file1, file2), "batch"); //$NON-NLS-1$
+
+		WorkspaceGenerator.writeLocationFile(file1, "/home/dev/moved/project1", 0); //$NON-NLS-1$
+		write(file2, "damaged"); //$NON-NLS-1$
+		assertEquals(2, history.restore(snapshot, new RelocationJournal(journalFile)));
+
+		assertArrayEquals(content1, Files.readAllBytes(file1.toPath()));
+		assertArrayEquals(content2, Files.readAllBytes(file2.toPath()));
+	}
+
+	@Test
+	public void evictionKeepsLatest() throws IOException {
+		RelocationHistory history = new RelocationHistory(historyDir, 1);
+		history.capture(Arrays.asList(file1), "first"); //$NON-NLS-1$
+		history.capture(Arrays.asList(file1, file2), "second"); //$NON-NLS-1$
+
+		List<Snapshot> snapshots = history.getSnapshots();
+		assertEquals(1, snapshots.size());
+		assertEquals("second", snapshots.get(0).getLabel()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void snapshotsAreListedLatestFirst() throws IOException {
+		RelocationHistory history = new RelocationHistory(historyDir, Long.MAX_VALUE);
+		for (int i = 0; i < 12; i++) {
+			history.capture(Arrays.asList(file1), "batch" + i); //$NON-NLS-1$
+		}
+
+		List<Snapshot> snapshots = history.getSnapshots();
+		assertEquals(12, snapshots.size());
+		// numeric, not lexical order of the sequence numbers
+		assertEquals("batch11", snapshots.get(0).getLabel()); //$NON-NLS-1$
+		assertEquals("batch0", snapshots.get(11).getLabel()); //$NON-NLS-1$
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), UTF_8);
+	}
+}
@@ -0,0 +1,231 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the batches of the {@link RelocationJournal} and their recovery after a crash.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationJournalTest {
+	/** The record magics of the journal format. */
+	private static final int RECORD_MAGIC = 0x504C554A;
+	private static final int COMMIT_MAGIC = 0x504C5543;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File dir;
+	private File journalFile;
+	private File file1;
+	private File file2;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = temporaryFolder.getRoot();
+		journalFile = new File(dir, "relocation.journal"); //$NON-NLS-1$
+		file1 = new File(dir, "1.location"); //$NON-NLS-1$
+		file2 = new File(dir, "2.location"); //$NON-NLS-1$
+		write(file1, "old1"); //$NON-NLS-1$
+		write(file2, "old2"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void batchIsAppliedOnCommitWithOneForce() throws IOException {
+		File otherDir = new File(dir, "other"); //$NON-NLS-1$
+		otherDir.mkdirs();
+		File file3 = new File(otherDir, "3.location"); //$NON-NLS-1$
+		write(file3, "old3"); //$NON-NLS-1$
+
+		RelocationJournal journal = new RelocationJournal(journalFile);
+		RelocationJournal.Batch batch = journal.beginBatch();
+		log(batch, file1, "new1"); //$NON-NLS-1$
+		log(batch, file2, "new2"); //$NON-NLS-1$
+		log(batch, file3, "new3"); //$NON-NLS-1$
+		assertEquals("old1", read(file1)); //$NON-NLS-1$
+		assertFalse(journalFile.exists());
+
+		batch.commit();
+		assertEquals("new1", read(file1)); //$NON-NLS-1$
+		assertEquals("new2", read(file2)); //$NON-NLS-1$
+		assertEquals("new3", read(file3)); //$NON-NLS-1$
+		assertEquals(1, journal.getForceCount());
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void emptyBatchWritesNothing() throws IOException {
+		RelocationJournal journal = new RelocationJournal(journalFile);
+		journal.beginBatch().commit();
+
+		assertEquals(0, journal.getForceCount());
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void batchesAreCommittedSeparately() throws IOException {
+		RelocationJournal journal = new RelocationJournal(journalFile);
+		RelocationJournal.Batch batch1 = journal.beginBatch();
+		RelocationJournal.Batch batch2 = journal.beginBatch();
+		log(batch1, file1, "new1"); //$NON-NLS-1$
+		log(batch2, file2, "new2"); //$NON-NLS-1$
+
+		batch1.commit();
+		assertEquals("new1", read(file1)); //$NON-NLS-1$
+		assertEquals("old2", read(file2)); //$NON-NLS-1$
+
+		batch2.commit();
+		assertEquals("new2", read(file2)); //$NON-NLS-1$
+		assertEquals(2, journal.getForceCount());
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void concurrentBatchesAreCommittedCompletely() throws Exception {
+		final int batchCount = 4;
+		final int fileCount = 50;
+		final RelocationJournal journal = new RelocationJournal(journalFile);
+		ExecutorService executor = Executors.newFixedThreadPool(batchCount);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < batchCount; i++) {
+				final int batchIndex = i;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						RelocationJournal.Batch batch = journal.beginBatch();
+						for (int j = 0; j < fileCount; j++) {
+							log(batch, new File(dir, batchIndex + "-" + j), "new" + batchIndex + '-' + j); //$NON-NLS-1$ //$NON-NLS-2$
+						}
+						batch.commit();
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < batchCount; i++) {
+			for (int j = 0; j < fileCount; j++) {
+				assertEquals("new" + i + '-' + j, read(new File(dir, i + "-" + j))); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		assertEquals(batchCount, journal.getForceCount());
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void recoverWithoutJournal() throws IOException {
+		assertEquals(0, RelocationJournal.recover(journalFile));
+	}
+
+	@Test
+	public void recoverRewritesCommittedBatch() throws IOException {
+		writeJournal(true);
+
+		assertEquals(2, RelocationJournal.recover(journalFile));
+		assertEquals("new1", read(file1)); //$NON-NLS-1$
+		assertEquals("new2", read(file2)); //$NON-NLS-1$
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void recoverDiscardsUncommittedBatch() throws IOException {
+		writeJournal(false);
+
+		assertEquals(0, RelocationJournal.recover(journalFile));
+		assertEquals("old1", read(file1)); //$NON-NLS-1$
+		assertEquals("old2", read(file2)); //$NON-NLS-1$
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void recoverDiscardsTornJournal() throws IOException {
+		writeJournal(true);
+		RandomAccessFile out = new RandomAccessFile(journalFile, "rw"); //$NON-NLS-1$
+		try {
+			// cut into the checksum of the second record, so the commit record is lost too
+			out.setLength(out.length() - 10);
+		} finally {
+			out.close();
+		}
+
+		assertEquals(0, RelocationJournal.recover(journalFile));
+		assertEquals("old1", read(file1)); //$NON-NLS-1$
+		assertFalse(journalFile.exists());
+	}
+
+	/**
+	 * Writes the journal a crash would leave behind: a record with the new content of each file,
+	 * followed by the commit record if the batch was committed. The files keep their old contents.
+	 */
+	private void writeJournal(boolean committed) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile));
+		try {
+			writeRecord(out, file1, "new1"); //$NON-NLS-1$
+			writeRecord(out, file2, "new2"); //$NON-NLS-1$
+			if (committed) {
+				out.writeInt(COMMIT_MAGIC);
+				out.writeInt(2);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeRecord(DataOutputStream out, File file, String content) throws IOException {
+		byte[] path = file.getAbsolutePath().getBytes(UTF_8);
+		byte[] bytes = content.getBytes(UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(path);
+		crc.update(bytes);
+		out.writeInt(RECORD_MAGIC);
+		out.writeInt(path.length);
+		out.write(path);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.writeLong(crc.getValue());
+	}
+
+	private static void log(RelocationJournal.Batch batch, File file, String content) {
+		batch.log(file, new ByteBuffer[] { ByteBuffer.wrap(content.getBytes(UTF_8)) });
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+
+	private static String read(File file) throws IOException {
+		assertTrue(file.isFile());
+		return new String(Files.readAllBytes(file.toPath()), UTF_8);
+	}
+}
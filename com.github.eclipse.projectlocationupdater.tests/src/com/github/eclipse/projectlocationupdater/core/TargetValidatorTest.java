@@ -0,0 +1,102 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.core.TargetValidator.Problem;
+import com.github.eclipse.projectlocationupdater.tests.WorkspaceGenerator;
+
+/**
+ * Tests the checks of the {@link TargetValidator}.
+ *
+ * @author Max Gensthaler
+ */
+public class TargetValidatorTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File dir;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		dir = temporaryFolder.getRoot();
+		pool = new ForkJoinPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void acceptsMatchingProjects() throws IOException {
+		Map<String, String> targets = new HashMap<String, String>();
+		targets.put("app", createProject("app", "app")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		targets.put("lib", createProject("renamed", "lib")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertTrue(validate(targets).isEmpty());
+	}
+
+	@Test
+	public void reportsNameMismatch() throws IOException {
+		Map<String, String> targets = new HashMap<String, String>();
+		targets.put("app", createProject("app", "other")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals(Problem.NAME_MISMATCH, validate(targets).get("app")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void reportsMissingTargetAndDescription() {
+		File empty = new File(dir, "empty"); //$NON-NLS-1$
+		empty.mkdirs();
+		Map<String, String> targets = new HashMap<String, String>();
+		targets.put("app", new File(dir, "missing").getPath()); //$NON-NLS-1$ //$NON-NLS-2$
+		targets.put("lib", empty.getPath()); //$NON-NLS-1$
+
+		Map<String, Problem> problems = validate(targets);
+		assertEquals(Problem.MISSING, problems.get("app")); //$NON-NLS-1$
+		assertEquals(Problem.NO_PROJECT_DESCRIPTION, problems.get("lib")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void reportsDuplicatesForAllProjects() throws IOException {
+		String target = createProject("app", "app"); //$NON-NLS-1$ //$NON-NLS-2$
+		Map<String, String> targets = new HashMap<String, String>();
+		targets.put("app", target); //$NON-NLS-1$
+		// the same directory spelled differently
+		targets.put("copy", target + File.separator + ".." + File.separator + "app" + File.separator); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		Map<String, Problem> problems = validate(targets);
+		assertEquals(2, problems.size());
+		assertEquals(Problem.DUPLICATE, problems.get("app")); //$NON-NLS-1$
+		assertEquals(Problem.DUPLICATE, problems.get("copy")); //$NON-NLS-1$
+	}
+
+	private Map<String, Problem> validate(Map<String, String> targets) {
+		return new TargetValidator(new PathResolutionCache()).validate(targets, pool);
+	}
+
+	/**
+	 * Creates a project directory with a .project file.
+	 *
+	 * @return The path of the directory.
+	 */
+	private String createProject(String directoryName, String projectName) throws IOException {
+		File projectDir = new File(dir, directoryName);
+		WorkspaceGenerator.writeProjectDescription(projectDir, projectName);
+		return projectDir.getPath();
+	}
+}
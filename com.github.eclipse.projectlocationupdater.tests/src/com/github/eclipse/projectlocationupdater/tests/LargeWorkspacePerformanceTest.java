@@ -0,0 +1,91 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+import com.github.eclipse.projectlocationupdater.core.Relocator;
+import com.github.eclipse.projectlocationupdater.core.WorkspaceMetadata;
+
+/**
+ * Performance regression tests reading and relocating the projects of a workspace with 10k
+ * projects. The budgets are about ten times the figures measured on a developer machine, they
+ * catch algorithmic regressions rather than noise.
+ *
+ * @author Max Gensthaler
+ */
+public class LargeWorkspacePerformanceTest {
+	private static final int PROJECT_COUNT = 10000;
+	private static final int REFERENCE_COUNT = 5;
+	private static final String OLD_ROOT = "/home/dev/src"; //$NON-NLS-1$
+	private static final String NEW_ROOT = "/data/src"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File workspaceDir;
+	private WorkspaceMetadata workspace;
+
+	@Before
+	public void setUp() throws IOException {
+		workspaceDir = temporaryFolder.getRoot();
+		workspace = new WorkspaceGenerator(OLD_ROOT).withReferences(REFERENCE_COUNT).generate(workspaceDir, PROJECT_COUNT);
+	}
+
+	@Test
+	public void readLocations() throws IOException {
+		List<String> projectNames = workspace.getProjectNames();
+		assertEquals(PROJECT_COUNT, projectNames.size());
+		// warm up the JIT
+		readLocations(projectNames.subList(0, 1000));
+
+		PerformanceBudget budget = new PerformanceBudget("Reading 10k locations", 5000, 100L << 20); //$NON-NLS-1$
+		budget.start();
+		int matching = readLocations(projectNames);
+		budget.assertWithinBudget();
+
+		assertEquals(PROJECT_COUNT, matching);
+	}
+
+	private int readLocations(List<String> projectNames) throws IOException {
+		int matching = 0;
+		for (String projectName : projectNames) {
+			String location = LocationRecords.toLocation(LocationFile.read(workspace.getLocationFile(projectName)).getLocation());
+			if (location.startsWith(OLD_ROOT)) {
+				matching++;
+			}
+		}
+		return matching;
+	}
+
+	@Test
+	public void relocateProjects() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		String[] args = { workspaceDir.getPath(), OLD_ROOT + '=' + NEW_ROOT };
+
+		// the journal is forced once, but each .location file has a directory of its own, which is
+		// forced once after the rename: the duration depends on the disk, only the allocation is bounded
+		PerformanceBudget budget = new PerformanceBudget("Relocating 10k projects", PerformanceBudget.NO_TIME_LIMIT, 400L << 20); //$NON-NLS-1$
+		budget.start();
+		int exitCode = Relocator.run(args, new PrintStream(out), new PrintStream(err));
+		budget.assertWithinBudget();
+
+		assertEquals(err.toString(), 0, exitCode);
+		assertTrue(out.toString(), out.toString().contains("Relocated " + PROJECT_COUNT + " of " + PROJECT_COUNT)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(LocationRecords.toRecord(new File(NEW_ROOT + "/group9/project009999")), LocationFile.read(workspace.getLocationFile("project009999")).getLocation()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("journal left behind", !workspace.getJournalFile().exists()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,67 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.eclipse.projectlocationupdater.utils.PathTrie;
+
+/**
+ * Tests splitting the project locations into relocation roots with the {@link PathTrie}.
+ *
+ * @author Max Gensthaler
+ */
+public class PathTrieTest {
+	@Test
+	public void commonPrefixIsTheOnlyRoot() {
+		PathTrie trie = PathTrie.create(Arrays.asList("/home/dev/src/a", "/home/dev/src/b", "/home/dev/lib/c")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals(3, trie.size());
+		assertEquals("/home/dev", trie.getCommonPrefix()); //$NON-NLS-1$
+		assertEquals(roots("/home/dev", 3), trie.getRoots()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void sharedTopLevelDirectoryIsOneRoot() {
+		// the disks share the segment "mnt", so they are not split into roots of their own
+		PathTrie trie = PathTrie.create(Arrays.asList("/mnt/disk1/a", "/mnt/disk1/b", "/mnt/disk2/c")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals(roots("/mnt", 3), trie.getRoots()); //$NON-NLS-1$
+		assertEquals("/mnt", trie.getRoot("/mnt/disk2/c")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void splitsByTopLevelDirectory() {
+		PathTrie trie = PathTrie.create(Arrays.asList("/home/dev/a", "/opt/c", "/home/dev/b")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		Map<String, Integer> expected = roots("/home/dev", 2); //$NON-NLS-1$
+		expected.put("/opt/c", Integer.valueOf(1)); //$NON-NLS-1$
+		assertEquals("/", trie.getCommonPrefix()); //$NON-NLS-1$
+		assertEquals(expected, trie.getRoots());
+		assertEquals("/home/dev", trie.getRoot("/home/dev/b")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(trie.getRoot("/var/d")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void splitsByDrive() {
+		PathTrie trie = PathTrie.create(Arrays.asList("C:\\ws\\a", "D:\\src\\c", "C:/ws/b")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		Map<String, Integer> expected = roots("C:/ws", 2); //$NON-NLS-1$
+		expected.put("D:/src/c", Integer.valueOf(1)); //$NON-NLS-1$
+		assertEquals(expected, trie.getRoots());
+		assertEquals("C:/ws", trie.getRoot("C:\\ws\\a")); //$NON-NLS-1$ //$NON-NLS-2$
+		// on segment boundaries only
+		assertNull(trie.getRoot("C:/wsx/a")); //$NON-NLS-1$
+	}
+
+	private static Map<String, Integer> roots(String root, int count) {
+		Map<String, Integer> roots = new LinkedHashMap<String, Integer>();
+		roots.put(root, Integer.valueOf(count));
+		return roots;
+	}
+}
@@ -0,0 +1,85 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The time and allocation budget of an operation under test.
+ * <p>
+ * The allocated bytes are measured for the current thread, if the JVM supports it (HotSpot's
+ * <code>ThreadMXBean.getThreadAllocatedBytes</code>). The budgets can be scaled for slow machines
+ * with the system property <code>plu.perf.budgetFactor</code>.
+ *
+ * @author Max Gensthaler
+ */
+public class PerformanceBudget {
+	/** The duration of operations bound by the disk rather than by the code. */
+	public static final long NO_TIME_LIMIT = -1;
+
+	private static final double BUDGET_FACTOR = Double.parseDouble(System.getProperty("plu.perf.budgetFactor", "1")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private final String operation;
+	private final long maxMillis;
+	private final long maxAllocatedBytes;
+
+	private long startNanos;
+	private long startAllocatedBytes;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param operation
+	 *            The name of the operation, for failure messages.
+	 * @param maxMillis
+	 *            The maximum duration in milliseconds, or {@link #NO_TIME_LIMIT}.
+	 * @param maxAllocatedBytes
+	 *            The maximum number of bytes allocated by the current thread.
+	 */
+	public PerformanceBudget(String operation, long maxMillis, long maxAllocatedBytes) {
+		this.operation = operation;
+		this.maxMillis = maxMillis == NO_TIME_LIMIT ? NO_TIME_LIMIT : (long) (maxMillis * BUDGET_FACTOR);
+		this.maxAllocatedBytes = (long) (maxAllocatedBytes * BUDGET_FACTOR);
+	}
+
+	/**
+	 * Starts measuring.
+	 */
+	public void start() {
+		startAllocatedBytes = getAllocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring and fails if the budget is exceeded.
+	 */
+	public void assertWithinBudget() {
+		long millis = (System.nanoTime() - startNanos) / 1000000;
+		long allocatedBytes = getAllocatedBytes();
+		if (maxMillis != NO_TIME_LIMIT) {
+			assertTrue(operation + " took " + millis + " ms, budget is " + maxMillis + " ms", millis <= maxMillis); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		if (allocatedBytes >= 0 && startAllocatedBytes >= 0) {
+			long allocated = allocatedBytes - startAllocatedBytes;
+			assertTrue(operation + " allocated " + allocated + " bytes, budget is " + maxAllocatedBytes + " bytes", allocated <= maxAllocatedBytes); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	/**
+	 * @return The bytes allocated by the current thread so far, or -1 if not supported by the JVM.
+	 */
+	private static long getAllocatedBytes() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			Object bytes = server.invoke(new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME), "getThreadAllocatedBytes", //$NON-NLS-1$
+					new Object[] { Long.valueOf(Thread.currentThread().getId()) }, new String[] { long.class.getName() });
+			return ((Long) bytes).longValue();
+		} catch (JMException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.RelocationPlan;
+import com.github.eclipse.projectlocationupdater.RelocationPlan.Entry;
+import com.github.eclipse.projectlocationupdater.RelocationPlan.State;
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.core.WorkspaceMetadata;
+
+/**
+ * Tests planning and applying a {@link RelocationPlan} on the projects of the test workspace.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationPlanTest {
+	private static final String PROJECT_NAME = "planned"; //$NON-NLS-1$
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File oldRoot;
+	private File newRoot;
+	private IProject project;
+	private RelocationJournal journal;
+
+	@Before
+	public void setUp() throws CoreException, IOException {
+		oldRoot = temporaryFolder.newFolder("old"); //$NON-NLS-1$
+		newRoot = temporaryFolder.newFolder("new"); //$NON-NLS-1$
+		journal = new RelocationJournal(new File(temporaryFolder.getRoot(), "relocation.journal")); //$NON-NLS-1$
+
+		// created closed, at a location outside of the workspace
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		project = workspace.getRoot().getProject(PROJECT_NAME);
+		IProjectDescription description = workspace.newProjectDescription(PROJECT_NAME);
+		description.setLocation(new Path(new File(oldRoot, PROJECT_NAME).getPath()));
+		project.create(description, null);
+	}
+
+	@After
+	public void tearDown() throws CoreException {
+		project.delete(IResource.NEVER_DELETE_PROJECT_CONTENT | IResource.FORCE, null);
+	}
+
+	@Test
+	public void appliesPlannedLocation() throws IOException {
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, PROJECT_NAME), PROJECT_NAME);
+		RelocationPlan plan = createPlan();
+
+		Entry entry = plan.getEntries().get(0);
+		assertEquals(State.CHANGED, entry.getState());
+		assertEquals(Collections.singletonList(project), plan.getChangedProjects());
+
+		RelocationJournal.Batch batch = journal.beginBatch();
+		plan.apply(project, false, batch);
+		assertEquals(1, batch.commit());
+		assertEquals(new Path(entry.getNewLocation()), new Path(LocationUpdater.readProjectLocation(project)));
+	}
+
+	@Test
+	public void skipsInvalidTarget() throws IOException {
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, PROJECT_NAME), "other"); //$NON-NLS-1$
+		RelocationPlan plan = createPlan();
+
+		assertEquals(State.TARGET_INVALID, plan.getEntries().get(0).getState());
+		assertEquals(0, plan.getChangedProjects().size());
+
+		RelocationJournal.Batch batch = journal.beginBatch();
+		plan.apply(project, false, batch);
+		assertEquals(0, batch.commit());
+	}
+
+	@Test
+	public void closedProjectIsReadAgain() throws IOException {
+		WorkspaceGenerator.writeProjectDescription(new File(newRoot, PROJECT_NAME), PROJECT_NAME);
+		RelocationPlan plan = createPlan();
+		String newLocation = plan.getEntries().get(0).getNewLocation();
+
+		// as if closing the project for the relocation wrote references meanwhile
+		File locationFile = new WorkspaceMetadata(ResourcesPlugin.getWorkspace().getRoot().getLocation().toFile()).getLocationFile(PROJECT_NAME);
+		WorkspaceGenerator.writeLocationFile(locationFile, new File(oldRoot, PROJECT_NAME).getPath(), 2);
+
+		RelocationJournal.Batch batch = journal.beginBatch();
+		plan.apply(project, true, batch);
+		batch.commit();
+
+		File expected = new File(temporaryFolder.getRoot(), "expected.location"); //$NON-NLS-1$
+		WorkspaceGenerator.writeLocationFile(expected, newLocation, 2);
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(locationFile.toPath()));
+	}
+
+	private RelocationPlan createPlan() {
+		LocationRewriter rewriter = LocationRewriter.compile(Collections.singletonMap(oldRoot.getPath(), newRoot.getPath()));
+		return RelocationPlan.create(Arrays.asList(project), rewriter, new NullProgressMonitor());
+	}
+}
@@ -0,0 +1,132 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+import com.github.eclipse.projectlocationupdater.core.WorkspaceMetadata;
+
+/**
+ * Generates the project metadata of a synthetic workspace: a
+ * <code>.metadata/.plugins/org.eclipse.core.resources/.projects</code> tree with one .location
+ * file per project, written in the format of
+ * <code>org.eclipse.core.internal.resources.LocalMetaArea#writePrivateDescription</code>.
+ *
+ * @author Max Gensthaler
+ */
+public class WorkspaceGenerator {
+	/** Projects per group directory of the generated locations. */
+	private static final int PROJECTS_PER_GROUP = 1000;
+
+	private final String locationRoot;
+	private int referenceCount;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param locationRoot
+	 *            The directory the generated projects are located in, e.g. <code>/home/dev/src</code>.
+	 */
+	public WorkspaceGenerator(String locationRoot) {
+		this.locationRoot = locationRoot;
+	}
+
+	/**
+	 * @param referenceCount
+	 *            The number of project references written to each .location file.
+	 * @return This generator.
+	 */
+	public WorkspaceGenerator withReferences(int referenceCount) {
+		this.referenceCount = referenceCount;
+		return this;
+	}
+
+	/**
+	 * Generates the metadata of the given number of projects.
+	 *
+	 * @param workspaceDir
+	 *            The root directory of the workspace, created if missing.
+	 * @param projectCount
+	 *            The number of projects.
+	 * @return The generated workspace.
+	 * @throws IOException
+	 *             Error writing the metadata
+	 */
+	public WorkspaceMetadata generate(File workspaceDir, int projectCount) throws IOException {
+		WorkspaceMetadata workspace = new WorkspaceMetadata(workspaceDir);
+		for (int i = 0; i < projectCount; i++) {
+			String projectName = getProjectName(i);
+			File locationFile = workspace.getLocationFile(projectName);
+			if (!locationFile.getParentFile().mkdirs()) {
+				throw new IOException("Cannot create " + locationFile.getParentFile()); //$NON-NLS-1$
+			}
+			writeLocationFile(locationFile, getLocation(i), referenceCount);
+		}
+		return workspace;
+	}
+
+	/**
+	 * @return The name of the project with the given index.
+	 */
+	public static String getProjectName(int index) {
+		return String.format("project%06d", Integer.valueOf(index)); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return The location of the project with the given index.
+	 */
+	public String getLocation(int index) {
+		return locationRoot + "/group" + (index / PROJECTS_PER_GROUP) + '/' + getProjectName(index); //$NON-NLS-1$
+	}
+
+	/**
+	 * Writes a .location file.
+	 *
+	 * @param file
+	 *            The file to write.
+	 * @param location
+	 *            The project location.
+	 * @param referenceCount
+	 *            The number of project references to write behind the location.
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	public static void writeLocationFile(File file, String location, int referenceCount) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.write(LocationFile.BEGIN_CHUNK);
+			out.writeUTF(LocationRecords.toRecord(new File(location)));
+			out.writeInt(referenceCount);
+			for (int i = 0; i < referenceCount; i++) {
+				out.writeUTF(getProjectName(i));
+			}
+			out.write(LocationFile.END_CHUNK);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a minimal project description.
+	 *
+	 * @param projectDir
+	 *            The project directory, created if missing.
+	 * @param projectName
+	 *            The name of the project.
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	public static void writeProjectDescription(File projectDir, String projectName) throws IOException {
+		if (!projectDir.isDirectory() && !projectDir.mkdirs()) {
+			throw new IOException("Cannot create " + projectDir); //$NON-NLS-1$
+		}
+		String description = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<projectDescription>\n\t<name>" + projectName //$NON-NLS-1$
+				+ "</name>\n\t<comment></comment>\n</projectDescription>\n"; //$NON-NLS-1$
+		Files.write(new File(projectDir, ".project").toPath(), description.getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+	}
+}
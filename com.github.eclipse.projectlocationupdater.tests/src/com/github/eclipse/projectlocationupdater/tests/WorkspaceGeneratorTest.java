@@ -0,0 +1,44 @@
+package com.github.eclipse.projectlocationupdater.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+import com.github.eclipse.projectlocationupdater.core.WorkspaceMetadata;
+
+/**
+ * Checks that the generated workspaces look like the ones written by the Eclipse platform.
+ *
+ * @author Max Gensthaler
+ */
+@SuppressWarnings("restriction")
+public class WorkspaceGeneratorTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void chunksMatchPlatform() {
+		assertArrayEquals(org.eclipse.core.internal.localstore.ILocalStoreConstants.BEGIN_CHUNK, LocationFile.BEGIN_CHUNK);
+		assertArrayEquals(org.eclipse.core.internal.localstore.ILocalStoreConstants.END_CHUNK, LocationFile.END_CHUNK);
+	}
+
+	@Test
+	public void generatedLocationsAreReadable() throws IOException {
+		WorkspaceGenerator generator = new WorkspaceGenerator("/home/dev/src").withReferences(3); //$NON-NLS-1$
+		WorkspaceMetadata workspace = generator.generate(temporaryFolder.getRoot(), 10);
+
+		assertEquals(10, workspace.getProjectNames().size());
+		for (int i = 0; i < 10; i++) {
+			LocationFile locationFile = LocationFile.read(workspace.getLocationFile(WorkspaceGenerator.getProjectName(i)));
+			assertEquals(LocationRecords.toRecord(new File(generator.getLocation(i))), locationFile.getLocation());
+		}
+	}
+}
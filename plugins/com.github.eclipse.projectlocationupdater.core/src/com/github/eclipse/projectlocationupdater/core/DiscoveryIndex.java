@@ -0,0 +1,355 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An index of the Eclipse projects (directories containing a <code>.project</code> file) below a
+ * set of root directories, to find projects which were moved by hand.
+ * <p>
+ * The directory trees are walked in parallel, one fork/join task per directory. For each
+ * directory the index keeps its modification time, its subdirectories and the name of the project
+ * it contains. A rescan still stats every directory, but lists only the directories whose
+ * modification time changed and reads a <code>.project</code> file only if it changed. The index is
+ * saved to a file and read back in one piece when loaded again. It is not memory-mapped, a mapped
+ * file could not be replaced by the next save on Windows.
+ * <p>
+ * Hidden directories (starting with '.') and symbolic links are not walked.
+ *
+ * @author Max Gensthaler
+ */
+public final class DiscoveryIndex {
+	private static final int MAGIC = 0x504C5544;
+	private static final int VERSION = 1;
+
+	/** The scanned directories by path. */
+	private final Map<String, Directory> directories;
+	/** The directories containing a project by project name, created on demand. */
+	private Map<String, List<String>> projectDirectories;
+	/** Tells the candidates reached through symbolic links apart, shared by all matches. */
+	private final PathResolutionCache resolutions = new PathResolutionCache();
+
+	private DiscoveryIndex(Map<String, Directory> directories) {
+		this.directories = directories;
+	}
+
+	/**
+	 * @return An empty index.
+	 */
+	public static DiscoveryIndex empty() {
+		return new DiscoveryIndex(new HashMap<String, Directory>());
+	}
+
+	/**
+	 * Loads an index saved by {@link #save(File)}.
+	 *
+	 * @param indexFile
+	 *            The index file.
+	 * @return The loaded index, an empty index if the file does not exist.
+	 * @throws IOException
+	 *             Error reading the file or the file is malformed
+	 */
+	public static DiscoveryIndex load(File indexFile) throws IOException {
+		if (!indexFile.isFile()) {
+			return empty();
+		}
+		DataInputStream data = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexFile.toPath())));
+		try {
+			if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+				throw new IOException("Not a discovery index: " + indexFile); //$NON-NLS-1$
+			}
+			int count = data.readInt();
+			Map<String, Directory> directories = new HashMap<String, Directory>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				String path = data.readUTF();
+				long lastModified = data.readLong();
+				String projectName = null;
+				long projectFileModified = 0;
+				if (data.readBoolean()) {
+					projectName = data.readUTF();
+					projectFileModified = data.readLong();
+				}
+				String[] children = new String[data.readInt()];
+				for (int j = 0; j < children.length; j++) {
+					children[j] = data.readUTF();
+				}
+				directories.put(path, new Directory(lastModified, projectName, projectFileModified, children));
+			}
+			return new DiscoveryIndex(directories);
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Saves this index, atomically replacing the file.
+	 *
+	 * @param indexFile
+	 *            The index file, its directory is created if missing.
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	public void save(File indexFile) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(directories.size() * 64);
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(directories.size());
+		for (Map.Entry<String, Directory> entry : directories.entrySet()) {
+			Directory directory = entry.getValue();
+			data.writeUTF(entry.getKey());
+			data.writeLong(directory.lastModified);
+			data.writeBoolean(directory.projectName != null);
+			if (directory.projectName != null) {
+				data.writeUTF(directory.projectName);
+				data.writeLong(directory.projectFileModified);
+			}
+			data.writeInt(directory.children.length);
+			for (String child : directory.children) {
+				data.writeUTF(child);
+			}
+		}
+		data.flush();
+		indexFile.getParentFile().mkdirs();
+		LocationFile.writeAtomically(indexFile, new ByteBuffer[] { ByteBuffer.wrap(bytes.toByteArray()) });
+	}
+
+	/**
+	 * Walks the given root directories, reusing this index for the unchanged directories.
+	 *
+	 * @param roots
+	 *            The root directories to walk.
+	 * @param pool
+	 *            The pool to walk the directories in.
+	 * @param canceled
+	 *            Set to <code>true</code> to stop walking, the result is incomplete then.
+	 * @return The new index.
+	 */
+	public DiscoveryIndex scan(List<File> roots, ForkJoinPool pool, AtomicBoolean canceled) {
+		Map<String, Directory> scanned = new ConcurrentHashMap<String, Directory>();
+		List<ScanTask> tasks = new ArrayList<ScanTask>(roots.size());
+		for (File root : roots) {
+			tasks.add(new ScanTask(root, scanned, canceled));
+		}
+		pool.invoke(new ScanRootsTask(tasks));
+		return new DiscoveryIndex(new HashMap<String, Directory>(scanned));
+	}
+
+	/**
+	 * @return The number of indexed directories.
+	 */
+	public int size() {
+		return directories.size();
+	}
+
+	/**
+	 * @param projectName
+	 *            The name of a project.
+	 * @return The directories containing a project of the given name.
+	 */
+	public synchronized List<String> getCandidates(String projectName) {
+		if (projectDirectories == null) {
+			projectDirectories = new HashMap<String, List<String>>();
+			for (Map.Entry<String, Directory> entry : directories.entrySet()) {
+				String name = entry.getValue().projectName;
+				if (name != null) {
+					List<String> paths = projectDirectories.get(name);
+					if (paths == null) {
+						paths = new ArrayList<String>(1);
+						projectDirectories.put(name, paths);
+					}
+					paths.add(entry.getKey());
+				}
+			}
+		}
+		List<String> candidates = projectDirectories.get(projectName);
+		return candidates != null ? Collections.unmodifiableList(candidates) : Collections.<String> emptyList();
+	}
+
+	/**
+	 * Finds the new directory of a moved project. Of several candidates, the one sharing the most
+	 * trailing segments with the old location wins. Candidates naming the same directory (through
+	 * symbolic links) count once.
+	 *
+	 * @param projectName
+	 *            The name of the project.
+	 * @param oldLocation
+	 *            The location the project was moved from.
+	 * @return The new directory of the project, or <code>null</code> if none or several candidates
+	 *         match equally well.
+	 */
+	public String match(String projectName, String oldLocation) {
+		String normalizedOldLocation = LocationRewriter.normalize(oldLocation);
+		String best = null;
+		int bestScore = -1;
+		boolean ambiguous = false;
+		Set<Object> identities = new HashSet<Object>();
+		for (String candidate : getCandidates(projectName)) {
+			String normalizedCandidate = LocationRewriter.normalize(candidate);
+			Object identity = resolutions.getIdentity(candidate);
+			if (normalizedCandidate.equals(normalizedOldLocation) || identity == null || !identities.add(identity)) {
+				// not moved, deleted meanwhile or seen already
+				continue;
+			}
+			int score = countCommonTrailingSegments(normalizedCandidate, normalizedOldLocation);
+			if (score > bestScore) {
+				best = candidate;
+				bestScore = score;
+				ambiguous = false;
+			} else if (score == bestScore) {
+				ambiguous = true;
+			}
+		}
+		return ambiguous ? null : best;
+	}
+
+	private static int countCommonTrailingSegments(String path1, String path2) {
+		int count = 0;
+		int end1 = path1.length();
+		int end2 = path2.length();
+		while (end1 > 0 && end2 > 0) {
+			int start1 = path1.lastIndexOf('/', end1 - 1) + 1;
+			int start2 = path2.lastIndexOf('/', end2 - 1) + 1;
+			if (start1 == end1 || !path1.regionMatches(start1, path2, start2, end2 - start2) || end1 - start1 != end2 - start2) {
+				break;
+			}
+			count++;
+			end1 = start1 - 1;
+			end2 = start2 - 1;
+		}
+		return count;
+	}
+
+	/**
+	 * A directory as of its last scan.
+	 */
+	private static class Directory {
+		final long lastModified;
+		/** The name of the project in this directory, or <code>null</code>. */
+		final String projectName;
+		final long projectFileModified;
+		/** The names of the walked subdirectories. */
+		final String[] children;
+
+		Directory(long lastModified, String projectName, long projectFileModified, String[] children) {
+			this.lastModified = lastModified;
+			this.projectName = projectName;
+			this.projectFileModified = projectFileModified;
+			this.children = children;
+		}
+	}
+
+	private static class ScanRootsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<ScanTask> tasks;
+
+		ScanRootsTask(List<ScanTask> tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute() {
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Scans one directory and forks the scans of its subdirectories.
+	 */
+	private class ScanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final File dir;
+		private final Map<String, Directory> scanned;
+		private final AtomicBoolean canceled;
+
+		ScanTask(File dir, Map<String, Directory> scanned, AtomicBoolean canceled) {
+			this.dir = dir;
+			this.scanned = scanned;
+			this.canceled = canceled;
+		}
+
+		@Override
+		protected void compute() {
+			if (canceled.get()) {
+				return;
+			}
+			Directory directory = scanDirectory();
+			if (directory == null) {
+				return;
+			}
+			scanned.put(dir.getPath(), directory);
+
+			List<ScanTask> subtasks = new ArrayList<ScanTask>(directory.children.length);
+			for (String child : directory.children) {
+				subtasks.add(new ScanTask(new File(dir, child), scanned, canceled));
+			}
+			invokeAll(subtasks);
+		}
+
+		private Directory scanDirectory() {
+			long lastModified = dir.lastModified();
+			if (lastModified == 0) {
+				// deleted meanwhile
+				return null;
+			}
+			Directory cached = directories.get(dir.getPath());
+			if (cached != null && cached.lastModified == lastModified) {
+				if (cached.projectFileModified == 0) {
+					// adding a .project file would have changed the directory
+					return cached;
+				}
+				long projectFileModified = new File(dir, ProjectDescriptions.FILE_NAME).lastModified();
+				if (projectFileModified == cached.projectFileModified) {
+					return cached;
+				}
+				return new Directory(lastModified, readProjectName(new File(dir, ProjectDescriptions.FILE_NAME)), projectFileModified, cached.children);
+			}
+
+			File[] files = dir.listFiles();
+			if (files == null) {
+				return null;
+			}
+			String projectName = null;
+			long projectFileModified = 0;
+			List<String> children = new ArrayList<String>();
+			for (File file : files) {
+				String name = file.getName();
+				if (name.equals(ProjectDescriptions.FILE_NAME)) {
+					projectFileModified = file.lastModified();
+					projectName = readProjectName(file);
+				} else if (!name.startsWith(".") && file.isDirectory() && !Files.isSymbolicLink(file.toPath())) { //$NON-NLS-1$
+					children.add(name);
+				}
+			}
+			return new Directory(lastModified, projectName, projectFileModified, children.toArray(new String[children.size()]));
+		}
+
+		private String readProjectName(File projectFile) {
+			try {
+				return ProjectDescriptions.readProjectName(projectFile);
+			} catch (IOException e) {
+				// unreadable, not a candidate
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The content of a project .location file.
+ * <p>
+ * The file is read with a single read into a buffer. Only the location record is decoded, all
+ * bytes following it (the references and whatever else the platform stores) are kept as they are
+ * and are written back verbatim when the location is replaced.
+ * <p>
+ * Layout of the file: <code>BEGIN_CHUNK</code>, the location as modified UTF-8 (see
+ * {@link DataInputStream#readUTF()}), the references, <code>END_CHUNK</code>.
+ * <p>
+ * A rewrite never truncates the file in place: the new content goes to a sibling temporary file
+ * which atomically replaces the original. Written on its own, the file is forced to disk before
+ * and the directory after the rename, so a crash leaves either the old or the new content, and the
+ * new one is durable once the write returned. Within a {@link RelocationJournal.Batch}, the
+ * committed journal takes the place of these forces.
+ *
+ * @author Max Gensthaler
+ */
+public final class LocationFile {
+	/**
+	 * Begin chunk identifier of the .location file, a copy of
+	 * <code>org.eclipse.core.internal.localstore.ILocalStoreConstants.BEGIN_CHUNK</code>.
+	 */
+	public static final byte[] BEGIN_CHUNK = { -64, 58, -100, -99, 22, 76, 95, 49, 27, 5, -56, -63, -105, 90, -60, -89 };
+
+	/**
+	 * End chunk identifier of the .location file, a copy of
+	 * <code>org.eclipse.core.internal.localstore.ILocalStoreConstants.END_CHUNK</code>.
+	 */
+	public static final byte[] END_CHUNK = { -64, -13, 124, -63, 30, -127, 77, -64, 49, 121, -118, 77, 20, -110, -26, 102 };
+
+	/** Offset of the location record, right behind the begin chunk. */
+	private static final int LOCATION_RECORD_OFFSET = BEGIN_CHUNK.length;
+
+	/** Suffix of the temporary file written before replacing the location file. */
+	private static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private final File file;
+	/** The complete file content. */
+	private final byte[] content;
+	/** Offset of the first byte behind the location record. */
+	private final int locationRecordEnd;
+	/** The decoded location record. */
+	private final String location;
+
+	private LocationFile(File file, byte[] content, int locationRecordEnd, String location) {
+		this.file = file;
+		this.content = content;
+		this.locationRecordEnd = locationRecordEnd;
+		this.location = location;
+	}
+
+	/**
+	 * Reads a project location file.
+	 *
+	 * @param file
+	 *            The .location file
+	 * @return The parsed file
+	 * @throws IOException
+	 *             Error reading the file or the file is malformed
+	 */
+	public static LocationFile read(File file) throws IOException {
+		byte[] content = readFully(file);
+
+		int locationRecordEnd = getLocationRecordEnd(content);
+		if (locationRecordEnd < 0) {
+			throw new EOFException("Truncated location file " + file); //$NON-NLS-1$
+		}
+		String location = decodeUTF(content, LOCATION_RECORD_OFFSET, locationRecordEnd - LOCATION_RECORD_OFFSET);
+
+		return new LocationFile(file, content, locationRecordEnd, location);
+	}
+
+	/**
+	 * Finds the end of the location record in the content of a .location file.
+	 *
+	 * @param content
+	 *            The content of a .location file
+	 * @return The offset of the first byte behind the location record, or <code>-1</code> if the
+	 *         content is truncated
+	 */
+	static int getLocationRecordEnd(byte[] content) {
+		// the location record is prefixed by its length as unsigned short
+		if (content.length < LOCATION_RECORD_OFFSET + 2) {
+			return -1;
+		}
+		int recordLength = 2 + (((content[LOCATION_RECORD_OFFSET] & 0xFF) << 8) | (content[LOCATION_RECORD_OFFSET + 1] & 0xFF));
+		int locationRecordEnd = LOCATION_RECORD_OFFSET + recordLength;
+		return locationRecordEnd > content.length - END_CHUNK.length ? -1 : locationRecordEnd;
+	}
+
+	private static byte[] readFully(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Unexpected end of location file " + file); //$NON-NLS-1$
+				}
+			}
+			return buffer.array();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return The raw location record, e.g. <code>URI//file:/path/to/project/</code>
+	 */
+	public String getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return The size of the file in bytes, as read
+	 */
+	public int getSize() {
+		return content.length;
+	}
+
+	/**
+	 * Replaces the location record and writes the file. The remaining content is copied verbatim.
+	 * The new content is written to a sibling temporary file first which then atomically replaces
+	 * the file.
+	 *
+	 * @param newLocation
+	 *            The new raw location record
+	 * @param batch
+	 *            The journal batch to log the new content to, or <code>null</code> to replace the
+	 *            file right away. With a batch, the file is replaced when the batch is committed.
+	 * @return The size of the new content in bytes, or <code>-1</code> if the content did not
+	 *         change and the write was skipped
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	public int write(String newLocation, RelocationJournal.Batch batch) throws IOException {
+		byte[] record = encodeUTF(newLocation);
+		if (isCurrentRecord(record)) {
+			return -1;
+		}
+
+		if (batch != null) {
+			batch.log(file, createContentBuffers(record));
+		} else {
+			writeAtomically(file, createContentBuffers(record));
+		}
+		return content.length - (locationRecordEnd - LOCATION_RECORD_OFFSET) + record.length;
+	}
+
+	private ByteBuffer[] createContentBuffers(byte[] record) {
+		return new ByteBuffer[] {
+				ByteBuffer.wrap(content, 0, LOCATION_RECORD_OFFSET),
+				ByteBuffer.wrap(record),
+				ByteBuffer.wrap(content, locationRecordEnd, content.length - locationRecordEnd) };
+	}
+
+	/**
+	 * Writes the given content to a sibling temporary file with one gathering write, forces it to
+	 * disk and renames it atomically to the given file. The directory is forced afterwards, so the
+	 * rename is durable as well.
+	 *
+	 * @param file
+	 *            The file to replace
+	 * @param buffers
+	 *            The new content of the file
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	static void writeAtomically(File file, ByteBuffer[] buffers) throws IOException {
+		replace(file, buffers, true);
+		forceDirectory(file.getAbsoluteFile().getParentFile());
+	}
+
+	/**
+	 * Writes the given content to a sibling temporary file with one gathering write and renames it
+	 * atomically to the given file.
+	 *
+	 * @param file
+	 *            The file to replace
+	 * @param buffers
+	 *            The new content of the file
+	 * @param force
+	 *            Whether to force the temporary file to disk before the rename
+	 * @throws IOException
+	 *             Error writing the file
+	 */
+	static void replace(File file, ByteBuffer[] buffers, boolean force) throws IOException {
+		File tempFile = new File(file.getParentFile(), file.getName() + TEMP_FILE_SUFFIX);
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try {
+			FileChannel channel = out.getChannel();
+			writeFully(channel, buffers);
+			if (force) {
+				channel.force(true);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Forces the entries of a directory to disk, e.g. after a rename in it. Not supported by all
+	 * platforms, Windows refuses to open a directory and persists the rename with the file itself.
+	 *
+	 * @param directory
+	 *            The directory to force
+	 */
+	static void forceDirectory(File directory) {
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			// not supported for directories here
+		}
+	}
+
+	/**
+	 * Writes all remaining bytes of the given buffers with gathering writes.
+	 *
+	 * @param channel
+	 *            The channel to write to
+	 * @param buffers
+	 *            The buffers to write
+	 * @throws IOException
+	 *             Error writing to the channel
+	 */
+	static void writeFully(GatheringByteChannel channel, ByteBuffer[] buffers) throws IOException {
+		long remaining = 0;
+		for (ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(buffers);
+		}
+	}
+
+	private boolean isCurrentRecord(byte[] record) {
+		if (record.length != locationRecordEnd - LOCATION_RECORD_OFFSET) {
+			return false;
+		}
+		for (int i = 0; i < record.length; i++) {
+			if (record[i] != content[LOCATION_RECORD_OFFSET + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String decodeUTF(byte[] bytes, int offset, int length) throws IOException {
+		return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(bytes, offset, length)));
+	}
+
+	private static byte[] encodeUTF(String str) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(str.length() + 2);
+		new DataOutputStream(bytes).writeUTF(str);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Conversion between the location record stored in a .location file and the project location.
+ *
+ * @author Max Gensthaler
+ */
+public abstract class LocationRecords {
+	/** URI prefix in location file. */
+	public static final String URI_PREFIX = "URI//"; //$NON-NLS-1$
+
+	/** URI prefix and file protocol prefix. */
+	public static final String FILE_URI_PREFIX = URI_PREFIX + "file:"; //$NON-NLS-1$
+
+	/** <code>true</code> if we're running on Windows, else <code>false</code>. */
+	private static final boolean OS_IS_WINDOWS = System.getProperty("os.name").toLowerCase().indexOf("windows") >= 0; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private LocationRecords() {
+		//
+	}
+
+	/**
+	 * Extracts the project location from a location record.
+	 *
+	 * @param record
+	 *            The location record, e.g. <code>URI//file:/path/to/project/</code>
+	 * @return The value of the project location
+	 */
+	public static String toLocation(String record) {
+		String projectLocation = record;
+		if (projectLocation.startsWith(FILE_URI_PREFIX)) {
+			projectLocation = projectLocation.substring(FILE_URI_PREFIX.length());
+			if (OS_IS_WINDOWS && projectLocation.matches("^/[a-zA-Z]:")) { //$NON-NLS-1$
+				// remove trailing "/" from absolute path on windows
+				projectLocation = projectLocation.substring(1);
+			}
+		}
+		return projectLocation;
+	}
+
+	/**
+	 * Creates the location record for a project location.
+	 *
+	 * @param location
+	 *            The project location
+	 * @return The location record
+	 */
+	public static String toRecord(File location) {
+		return URI_PREFIX + location.toURI().toString();
+	}
+
+	/**
+	 * @param record
+	 *            A location record
+	 * @return <code>true</code> if the record points to a location in the local file system
+	 */
+	public static boolean isFileRecord(String record) {
+		return record.startsWith(FILE_URI_PREFIX);
+	}
+
+	/**
+	 * Creates the location record for a project location relative to a path variable, e.g.
+	 * <code>URI//SRC_ROOT/path/to/project</code>. The platform resolves it by the current value of
+	 * the variable.
+	 *
+	 * @param variable
+	 *            The name of the path variable
+	 * @param relativePath
+	 *            The path of the project relative to the variable with '/' as separator, empty
+	 *            for the variable location itself
+	 * @return The location record
+	 */
+	public static String toVariableRecord(String variable, String relativePath) {
+		String path = relativePath.isEmpty() ? variable : variable + '/' + relativePath;
+		try {
+			return URI_PREFIX + new URI(null, null, path, null).toString();
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * @param record
+	 *            A location record
+	 * @return The name of the path variable the location is relative to, or <code>null</code> if
+	 *         the location is absolute
+	 */
+	public static String getVariable(String record) {
+		if (!record.startsWith(URI_PREFIX)) {
+			return null;
+		}
+		URI uri;
+		try {
+			uri = new URI(record.substring(URI_PREFIX.length()));
+		} catch (URISyntaxException e) {
+			return null;
+		}
+		String path = uri.getPath();
+		if (uri.isAbsolute() || path == null || path.isEmpty() || path.charAt(0) == '/') {
+			return null;
+		}
+		int end = path.indexOf('/');
+		return end < 0 ? path : path.substring(0, end);
+	}
+}
@@ -0,0 +1,217 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rewrites project locations by a set of prefix rules, each mapping an old path to a new path.
+ * <p>
+ * The rules are compiled once into a trie over the segments of the old paths. A location is
+ * matched with one walk down the trie, comparing its segments in place, so rewriting does not
+ * allocate anything but the result. Rules match on segment boundaries only (<code>/a/b</code>
+ * matches <code>/a/b/c</code> but not <code>/a/bc</code>) and the rule with the longest old path
+ * wins. Both '/' and '\' are accepted as separator, repeated separators are ignored. A rule for the
+ * root <code>/</code> matches locations starting with a separator only, not drive letter paths
+ * like <code>C:/a</code>.
+ *
+ * @author Max Gensthaler
+ */
+public final class LocationRewriter {
+	private final Node root;
+	private final int size;
+
+	private LocationRewriter(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Compiles the given rules. If several old paths are equal after normalization, the first one
+	 * wins.
+	 *
+	 * @param rules
+	 *            The old paths mapped to their new paths, in order of precedence.
+	 * @return The compiled rules.
+	 * @throws IllegalArgumentException
+	 *             If an old path is empty, it would match every location
+	 */
+	public static LocationRewriter compile(Map<String, String> rules) {
+		NodeBuilder rootBuilder = new NodeBuilder();
+		int size = 0;
+		for (Map.Entry<String, String> rule : rules.entrySet()) {
+			NodeBuilder node = rootBuilder;
+			String oldPath = rule.getKey();
+			int length = oldPath.length();
+			if (length == 0) {
+				throw new IllegalArgumentException("Empty old path mapped to " + rule.getValue()); //$NON-NLS-1$
+			}
+			int start = skipSeparators(oldPath, 0);
+			while (start < length) {
+				int end = nextSeparator(oldPath, start);
+				node = node.getOrCreateChild(oldPath.substring(start, end));
+				start = skipSeparators(oldPath, end);
+			}
+			if (node.newPath == null) {
+				node.newPath = normalize(rule.getValue());
+				size++;
+			}
+		}
+		return new LocationRewriter(rootBuilder.build(), size);
+	}
+
+	/**
+	 * @return The number of rules.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Rewrites a location by the rule with the longest old path matching it.
+	 *
+	 * @param location
+	 *            The location to rewrite.
+	 * @return The rewritten location, or <code>null</code> if no rule matches.
+	 */
+	public String rewrite(String location) {
+		int length = location.length();
+		// only "/" compiles to the root, it must not match "C:/a" or relative paths
+		Node match = root.newPath != null && length > 0 && isSeparator(location.charAt(0)) ? root : null;
+		int matchEnd = 0;
+
+		Node node = root;
+		int start = skipSeparators(location, 0);
+		while (start < length) {
+			int end = nextSeparator(location, start);
+			node = node.getChild(location, start, end);
+			if (node == null) {
+				break;
+			}
+			if (node.newPath != null) {
+				match = node;
+				matchEnd = end;
+			}
+			start = skipSeparators(location, end);
+		}
+		if (match == null) {
+			return null;
+		}
+
+		String newPath = match.newPath;
+		if (newPath.endsWith("/") && matchEnd < length) { //$NON-NLS-1$
+			// do not double the separator, e.g. for the root "/"
+			matchEnd++;
+		}
+		return new StringBuilder(newPath.length() + length - matchEnd).append(newPath).append(location, matchEnd, length).toString();
+	}
+
+	/**
+	 * Converts the separators to '/' and removes trailing separators.
+	 *
+	 * @param path
+	 *            A path
+	 * @return The normalized path
+	 */
+	public static String normalize(String path) {
+		String normalized = path.replace('\\', '/');
+		int end = normalized.length();
+		while (end > 1 && normalized.charAt(end - 1) == '/') {
+			end--;
+		}
+		return normalized.substring(0, end);
+	}
+
+	static int skipSeparators(String path, int index) {
+		while (index < path.length() && isSeparator(path.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	static int nextSeparator(String path, int index) {
+		while (index < path.length() && !isSeparator(path.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '/' || c == '\\';
+	}
+
+	/**
+	 * Compares a segment with the region of a path, in the order of {@link String#compareTo(String)}.
+	 */
+	private static int compare(String segment, String path, int start, int end) {
+		int regionLength = end - start;
+		int n = Math.min(segment.length(), regionLength);
+		for (int i = 0; i < n; i++) {
+			int diff = segment.charAt(i) - path.charAt(start + i);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return segment.length() - regionLength;
+	}
+
+	/**
+	 * A compiled trie node, the children are sorted by segment for binary search.
+	 */
+	private static class Node {
+		final String newPath;
+		final String[] segments;
+		final Node[] children;
+
+		Node(String newPath, String[] segments, Node[] children) {
+			this.newPath = newPath;
+			this.segments = segments;
+			this.children = children;
+		}
+
+		Node getChild(String path, int start, int end) {
+			int low = 0;
+			int high = segments.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = compare(segments[mid], path, start, end);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return children[mid];
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A trie node while compiling the rules.
+	 */
+	private static class NodeBuilder {
+		String newPath;
+		final TreeMap<String, NodeBuilder> children = new TreeMap<String, NodeBuilder>();
+
+		NodeBuilder getOrCreateChild(String segment) {
+			NodeBuilder child = children.get(segment);
+			if (child == null) {
+				child = new NodeBuilder();
+				children.put(segment, child);
+			}
+			return child;
+		}
+
+		Node build() {
+			String[] segments = new String[children.size()];
+			Node[] nodes = new Node[children.size()];
+			int i = 0;
+			for (Map.Entry<String, NodeBuilder> child : children.entrySet()) {
+				segments[i] = child.getKey();
+				nodes[i] = child.getValue().build();
+				i++;
+			}
+			return new Node(newPath, segments, nodes);
+		}
+	}
+}
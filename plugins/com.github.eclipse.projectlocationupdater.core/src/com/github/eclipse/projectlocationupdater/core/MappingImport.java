@@ -0,0 +1,247 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches a stream of relocation mappings (old path to new path) against the locations of the
+ * projects of a workspace.
+ * <p>
+ * The project locations are put into a trie over their segments up front. Each mapping is then
+ * matched with one walk down the trie and only remembered if it matches a project, so the memory
+ * needed depends on the number of projects, not on the number of mappings. As with
+ * {@link LocationRewriter}, mappings match on segment boundaries and the longest old path wins.
+ * <p>
+ * A mapping conflicts if its old path was already mapped to another new path. Projects whose
+ * longest matching old path conflicts are not relocated, neither are projects which would end up
+ * at the same new location.
+ *
+ * @author Max Gensthaler
+ */
+public class MappingImport {
+	/** The maximum number of problems described by {@link #getProblems()}. */
+	private static final int MAX_REPORTED_PROBLEMS = 20;
+
+	private final Node root = new Node();
+	private int matchedCount;
+	private int unmatchedCount;
+	private int conflictCount;
+	private int malformedCount;
+	private final List<String> problems = new ArrayList<String>();
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param projectLocations
+	 *            The project names mapped to their locations (input, unmodifiable).
+	 */
+	public MappingImport(Map<String, String> projectLocations) {
+		for (Map.Entry<String, String> projectLocation : projectLocations.entrySet()) {
+			Node node = root;
+			String location = projectLocation.getValue();
+			int length = location.length();
+			int start = LocationRewriter.skipSeparators(location, 0);
+			while (start < length) {
+				int end = LocationRewriter.nextSeparator(location, start);
+				node = node.getOrCreateChild(location.substring(start, end));
+				start = LocationRewriter.skipSeparators(location, end);
+			}
+			if (node.projectNames == null) {
+				node.projectNames = new ArrayList<String>(1);
+			}
+			node.projectNames.add(projectLocation.getKey());
+		}
+	}
+
+	/**
+	 * Matches all mappings of the given reader.
+	 *
+	 * @param reader
+	 *            The mappings to match, not closed by this method.
+	 * @throws IOException
+	 *             Error reading the mappings
+	 */
+	public void addAll(MappingReader reader) throws IOException {
+		String[] mapping;
+		while ((mapping = reader.next()) != null) {
+			if (MappingReader.isMalformed(mapping)) {
+				malformedCount++;
+				addProblem("Line " + reader.getLineNumber() + ": malformed mapping"); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				add(mapping[0], mapping[1], reader.getLineNumber());
+			}
+		}
+	}
+
+	/**
+	 * Matches one mapping.
+	 *
+	 * @param oldPath
+	 *            The path to relocate.
+	 * @param newPath
+	 *            The path to relocate to.
+	 * @param lineNumber
+	 *            The line of the mapping in the mapping file, for reporting conflicts.
+	 */
+	public void add(String oldPath, String newPath, int lineNumber) {
+		Node node = root;
+		int length = oldPath.length();
+		int start = LocationRewriter.skipSeparators(oldPath, 0);
+		while (start < length) {
+			int end = LocationRewriter.nextSeparator(oldPath, start);
+			node = node.getChild(oldPath.substring(start, end));
+			if (node == null) {
+				unmatchedCount++;
+				return;
+			}
+			start = LocationRewriter.skipSeparators(oldPath, end);
+		}
+
+		String normalizedNewPath = LocationRewriter.normalize(newPath);
+		if (node.newPath == null) {
+			node.newPath = normalizedNewPath;
+			node.lineNumber = lineNumber;
+			matchedCount++;
+		} else if (node.newPath.equals(normalizedNewPath)) {
+			// a repeated mapping
+			matchedCount++;
+		} else {
+			node.conflicting = true;
+			conflictCount++;
+			addProblem("Line " + lineNumber + ": " + oldPath + " is already mapped to " + node.newPath + " in line " + node.lineNumber); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
+	private void addProblem(String problem) {
+		if (problems.size() < MAX_REPORTED_PROBLEMS) {
+			problems.add(problem);
+		}
+	}
+
+	/**
+	 * Computes the new locations of the projects matched by the mappings. To be called once, when all
+	 * mappings are added.
+	 *
+	 * @return The names of the projects to relocate mapped to their new location, in no particular
+	 *         order.
+	 */
+	public Map<String, String> getNewLocations() {
+		Map<String, String> newLocations = new LinkedHashMap<String, String>();
+		collectNewLocations(root, null, 0, new StringBuilder(), newLocations);
+
+		// projects relocated to the same location
+		Map<String, String> projectsByNewLocation = new HashMap<String, String>(newLocations.size() * 4 / 3 + 1);
+		List<String> collidingProjects = new ArrayList<String>();
+		for (Map.Entry<String, String> newLocation : newLocations.entrySet()) {
+			String otherProject = projectsByNewLocation.put(newLocation.getValue(), newLocation.getKey());
+			if (otherProject != null) {
+				collidingProjects.add(otherProject);
+				collidingProjects.add(newLocation.getKey());
+			}
+		}
+		for (String project : collidingProjects) {
+			if (newLocations.remove(project) != null) {
+				addProblem("Project " + project + " would be relocated to the location of another project"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		return newLocations;
+	}
+
+	/**
+	 * Walks the trie, keeping the node of the longest matching mapping and the path relative to it.
+	 */
+	private void collectNewLocations(Node node, Node mappingNode, int mappingOffset, StringBuilder path, Map<String, String> newLocations) {
+		if (node.newPath != null) {
+			mappingNode = node;
+			mappingOffset = path.length();
+		}
+		if (node.projectNames != null && mappingNode != null) {
+			if (mappingNode.conflicting) {
+				for (String projectName : node.projectNames) {
+					addProblem("Project " + projectName + " matches a conflicting mapping"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			} else {
+				String newPath = mappingNode.newPath;
+				String relativePath = path.substring(mappingOffset);
+				String newLocation = newPath.endsWith("/") && !relativePath.isEmpty() ? newPath + relativePath.substring(1) : newPath + relativePath; //$NON-NLS-1$
+				for (String projectName : node.projectNames) {
+					newLocations.put(projectName, newLocation);
+				}
+			}
+		}
+		if (node.children != null) {
+			int length = path.length();
+			for (Map.Entry<String, Node> child : node.children.entrySet()) {
+				path.append('/').append(child.getKey());
+				collectNewLocations(child.getValue(), mappingNode, mappingOffset, path, newLocations);
+				path.setLength(length);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of mappings matching at least one project.
+	 */
+	public int getMatchedCount() {
+		return matchedCount;
+	}
+
+	/**
+	 * @return The number of mappings matching no project.
+	 */
+	public int getUnmatchedCount() {
+		return unmatchedCount;
+	}
+
+	/**
+	 * @return The number of mappings whose old path was already mapped to another new path.
+	 */
+	public int getConflictCount() {
+		return conflictCount;
+	}
+
+	/**
+	 * @return The number of lines which could not be parsed.
+	 */
+	public int getMalformedCount() {
+		return malformedCount;
+	}
+
+	/**
+	 * @return The descriptions of the first conflicts and malformed lines.
+	 */
+	public List<String> getProblems() {
+		return Collections.unmodifiableList(problems);
+	}
+
+	private static class Node {
+		Map<String, Node> children;
+		/** The projects located exactly here, or <code>null</code>. */
+		List<String> projectNames;
+		/** The new path of the mapping of this path, or <code>null</code>. */
+		String newPath;
+		int lineNumber;
+		boolean conflicting;
+
+		Node getChild(String segment) {
+			return children != null ? children.get(segment) : null;
+		}
+
+		Node getOrCreateChild(String segment) {
+			if (children == null) {
+				children = new HashMap<String, Node>();
+			}
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Reads relocation mappings (old path to new path) line by line from a mapping file, so files of
+ * any size can be processed without loading them into memory.
+ * <p>
+ * Supported formats:
+ * <ul>
+ * <li>{@link Format#CSV}: <code>old path,new path</code>. Fields may be quoted with <code>"</code>,
+ * a quote within a quoted field is doubled.</li>
+ * <li>{@link Format#PROPERTIES}: <code>old path=new path</code> or <code>old path -&gt; new path</code>.
+ * <code>\\</code>, <code>\=</code>, <code>\:</code>, <code>\ </code>, <code>\#</code>,
+ * <code>\!</code> and <code>\</code><code>uXXXX</code> are unescaped, any other backslash is kept
+ * as it is, so Windows paths need not be escaped.</li>
+ * </ul>
+ * Empty lines and lines starting with <code>#</code> or <code>!</code> are skipped.
+ *
+ * @author Max Gensthaler
+ */
+public class MappingReader implements Closeable {
+	/**
+	 * The format of a mapping file.
+	 */
+	public enum Format {
+		CSV, PROPERTIES;
+
+		/**
+		 * @param fileName
+		 *            The name of a mapping file
+		 * @return {@link #CSV} for <code>*.csv</code> files, {@link #PROPERTIES} otherwise
+		 */
+		public static Format forFileName(String fileName) {
+			return fileName.toLowerCase(Locale.ENGLISH).endsWith(".csv") ? CSV : PROPERTIES; //$NON-NLS-1$
+		}
+	}
+
+	/** Alternative separator of the {@link Format#PROPERTIES} format. */
+	private static final String ARROW = "->"; //$NON-NLS-1$
+
+	private final BufferedReader reader;
+	private final Format format;
+	private int lineNumber;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param reader
+	 *            The mapping file content, closed by {@link #close()}.
+	 * @param format
+	 *            The format of the content.
+	 */
+	public MappingReader(Reader reader, Format format) {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		this.format = format;
+	}
+
+	/**
+	 * Reads the next mapping.
+	 *
+	 * @return The next mapping as {old path, new path}, or <code>null</code> at the end of the file.
+	 *         A malformed line is returned as <code>null</code> element array, see
+	 *         {@link #isMalformed(String[])}.
+	 * @throws IOException
+	 *             Error reading the file
+	 */
+	public String[] next() throws IOException {
+		String line;
+		do {
+			line = reader.readLine();
+			if (line == null) {
+				return null;
+			}
+			lineNumber++;
+			line = line.trim();
+		} while (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == '!');
+
+		String[] mapping = format == Format.CSV ? parseCsv(line) : parseProperties(line);
+		if (mapping == null || mapping[0].isEmpty() || mapping[1].isEmpty()) {
+			return new String[2];
+		}
+		return mapping;
+	}
+
+	/**
+	 * @param mapping
+	 *            A mapping returned by {@link #next()}
+	 * @return <code>true</code> if the line of the mapping could not be parsed
+	 */
+	public static boolean isMalformed(String[] mapping) {
+		return mapping[0] == null;
+	}
+
+	/**
+	 * @return The number of the line of the mapping last returned by {@link #next()}, starting at 1.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private static String[] parseCsv(String line) {
+		String[] fields = new String[2];
+		StringBuilder field = new StringBuilder(line.length());
+		int fieldIndex = 0;
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				if (fieldIndex == 1) {
+					// more than two fields
+					return null;
+				}
+				fields[fieldIndex++] = field.toString().trim();
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted || fieldIndex != 1) {
+			return null;
+		}
+		fields[1] = field.toString().trim();
+		return fields;
+	}
+
+	private static String[] parseProperties(String line) {
+		int separator = findPropertiesSeparator(line);
+		if (separator < 0) {
+			return null;
+		}
+		int valueStart = line.startsWith(ARROW, separator) ? separator + ARROW.length() : separator + 1;
+		return new String[] { unescape(line.substring(0, separator)).trim(), unescape(line.substring(valueStart)).trim() };
+	}
+
+	/**
+	 * @return The index of the first unescaped '=' or "->", or -1 if there is none.
+	 */
+	private static int findPropertiesSeparator(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length() && isEscapable(line.charAt(i + 1))) {
+				i++;
+			} else if (c == '=' || line.startsWith(ARROW, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isEscapable(char c) {
+		return c == '\\' || c == '=' || c == ':' || c == ' ' || c == '#' || c == '!';
+	}
+
+	private static String unescape(String str) {
+		if (str.indexOf('\\') < 0) {
+			return str;
+		}
+		StringBuilder unescaped = new StringBuilder(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '\\' && i + 1 < str.length()) {
+				char next = str.charAt(i + 1);
+				if (isEscapable(next)) {
+					unescaped.append(next);
+					i++;
+					continue;
+				}
+				if (next == 'u' && i + 6 <= str.length() && isHex(str, i + 2, i + 6)) {
+					unescaped.append((char) Integer.parseInt(str.substring(i + 2, i + 6), 16));
+					i += 5;
+					continue;
+				}
+			}
+			unescaped.append(c);
+		}
+		return unescaped.toString();
+	}
+
+	private static boolean isHex(String str, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (Character.digit(str.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,184 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves paths to the directories they name, following symbolic links, with the result of each
+ * path prefix memoized.
+ * <p>
+ * A path is resolved segment by segment: each prefix is resolved from the resolved parent with one
+ * <code>lstat</code>, a symbolic link is followed by resolving its target through the cache again.
+ * So checking many locations below a few common ancestors touches each ancestor once, unlike
+ * {@link Path#toRealPath(LinkOption...)} which resolves every path from the root. Share one
+ * instance across a batch and drop it afterwards, the cache does not notice changes of the file
+ * system.
+ * <p>
+ * The cache only answers questions about paths, the locations themselves are kept in their
+ * symlinked form. Thread-safe.
+ *
+ * @author Max Gensthaler
+ */
+public class PathResolutionCache {
+	/** The maximum number of symbolic links followed for one path, as ELOOP on Linux. */
+	private static final int MAX_LINK_DEPTH = 40;
+
+	private static final Resolution MISSING = new Resolution(null, null, false);
+
+	private final ConcurrentMap<String, Resolution> resolutions = new ConcurrentHashMap<String, Resolution>();
+
+	/**
+	 * @param path
+	 *            An absolute path
+	 * @return <code>true</code> if the path names an existing directory
+	 */
+	public boolean isDirectory(String path) {
+		return resolve(path).directory;
+	}
+
+	/**
+	 * @param path
+	 *            An absolute path
+	 * @return The path with all symbolic links resolved, or <code>null</code> if it does not exist
+	 */
+	public String toRealPath(String path) {
+		return resolve(path).realPath;
+	}
+
+	/**
+	 * @param path
+	 *            An absolute path
+	 * @return An object equal for all paths naming the same file: the file key (device and inode)
+	 *         where available, the real path otherwise. <code>null</code> if the path does not
+	 *         exist.
+	 */
+	public Object getIdentity(String path) {
+		Resolution resolution = resolve(path);
+		return resolution.fileKey != null ? resolution.fileKey : resolution.realPath;
+	}
+
+	/**
+	 * @param path1
+	 *            An absolute path
+	 * @param path2
+	 *            Another absolute path
+	 * @return <code>true</code> if both paths name the same existing file
+	 */
+	public boolean isSameFile(String path1, String path2) {
+		Object identity = getIdentity(path1);
+		return identity != null && identity.equals(getIdentity(path2));
+	}
+
+	/**
+	 * @return The number of memoized path prefixes.
+	 */
+	public int size() {
+		return resolutions.size();
+	}
+
+	private Resolution resolve(String path) {
+		return resolve(LocationRewriter.normalize(path), 0);
+	}
+
+	/**
+	 * Resolves a normalized path, memoizing all its prefixes.
+	 */
+	private Resolution resolve(String path, int linkDepth) {
+		Resolution resolution = resolutions.get(path);
+		if (resolution != null) {
+			return resolution;
+		}
+
+		int end = path.length();
+		while (end > 0 && path.charAt(end - 1) != '/') {
+			end--;
+		}
+		if (end == 0) {
+			// a root like "/" or "C:"
+			resolution = resolveRoot(path);
+		} else {
+			String parentPath = end == 1 ? "/" : path.substring(0, end - 1); //$NON-NLS-1$
+			Resolution parent = parentPath.equals(path) ? resolveRoot(path) : resolve(parentPath, linkDepth);
+			resolution = resolveChild(parent, path.substring(end), linkDepth);
+		}
+		Resolution previous = resolutions.putIfAbsent(path, resolution);
+		return previous != null ? previous : resolution;
+	}
+
+	private static Resolution resolveRoot(String path) {
+		try {
+			// "C:" alone would be relative to the current directory of the drive
+			return stat(Paths.get(path.isEmpty() || path.endsWith(":") ? path + '/' : path)); //$NON-NLS-1$
+		} catch (InvalidPathException e) {
+			return MISSING;
+		}
+	}
+
+	private Resolution resolveChild(Resolution parent, String segment, int linkDepth) {
+		if (parent.realPath == null || !parent.directory) {
+			return MISSING;
+		}
+		if (segment.isEmpty() || segment.equals(".")) { //$NON-NLS-1$
+			return parent;
+		}
+		Path parentPath = Paths.get(parent.realPath);
+		if (segment.equals("..")) { //$NON-NLS-1$
+			Path grandParent = parentPath.getParent();
+			return grandParent != null ? resolve(LocationRewriter.normalize(grandParent.toString()), linkDepth) : parent;
+		}
+
+		Path child;
+		try {
+			child = parentPath.resolve(segment);
+		} catch (InvalidPathException e) {
+			return MISSING;
+		}
+		if (!Files.isSymbolicLink(child)) {
+			return stat(child);
+		}
+		if (linkDepth >= MAX_LINK_DEPTH) {
+			return MISSING;
+		}
+		try {
+			Path target = parentPath.resolve(Files.readSymbolicLink(child));
+			return resolve(LocationRewriter.normalize(target.toString()), linkDepth + 1);
+		} catch (IOException e) {
+			return MISSING;
+		}
+	}
+
+	/**
+	 * Reads the attributes of a path whose parent is resolved already.
+	 */
+	private static Resolution stat(Path path) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			return new Resolution(LocationRewriter.normalize(path.toString()), attributes.fileKey(), attributes.isDirectory());
+		} catch (IOException e) {
+			return MISSING;
+		}
+	}
+
+	/**
+	 * The memoized resolution of a path.
+	 */
+	private static class Resolution {
+		/** The real path, or <code>null</code> if the path does not exist. */
+		final String realPath;
+		final Object fileKey;
+		final boolean directory;
+
+		Resolution(String realPath, Object fileKey, boolean directory) {
+			this.realPath = realPath;
+			this.fileKey = fileKey;
+			this.directory = directory;
+		}
+	}
+}
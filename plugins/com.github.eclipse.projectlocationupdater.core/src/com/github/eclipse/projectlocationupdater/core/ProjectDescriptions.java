@@ -0,0 +1,56 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the project name from the <code>.project</code> file of a project directory, shared by the
+ * {@link DiscoveryIndex} and the {@link TargetValidator} so both agree on which directory holds
+ * which project.
+ *
+ * @author Max Gensthaler
+ */
+abstract class ProjectDescriptions {
+	/** The file name of the project description in a project directory. */
+	static final String FILE_NAME = ".project"; //$NON-NLS-1$
+
+	/**
+	 * The project name, the first element of the project description. Comments before it are
+	 * skipped, the <code>name</code> elements of referenced projects or build commands never match.
+	 */
+	private static final Pattern NAME_PATTERN = Pattern.compile("<projectDescription[^>]*>\\s*(?:<!--.*?-->\\s*)*<name>([^<]*)</name>", Pattern.DOTALL); //$NON-NLS-1$
+
+	private ProjectDescriptions() {
+		//
+	}
+
+	/**
+	 * Reads the project name from a .project file.
+	 *
+	 * @param projectFile
+	 *            The .project file.
+	 * @return The content of the <code>name</code> element of the <code>projectDescription</code>,
+	 *         or <code>null</code> if there is none.
+	 * @throws IOException
+	 *             Error reading the file, also if it is a directory
+	 */
+	static String readProjectName(File projectFile) throws IOException {
+		String content = new String(Files.readAllBytes(projectFile.toPath()), StandardCharsets.UTF_8);
+		Matcher matcher = NAME_PATTERN.matcher(content);
+		if (!matcher.find()) {
+			return null;
+		}
+		return unescape(matcher.group(1).trim());
+	}
+
+	private static String unescape(String text) {
+		if (text.indexOf('&') < 0) {
+			return text;
+		}
+		return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.IOException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork/join task over a range of indices, split in halves down to {@link #BATCH_SIZE} indices,
+ * which are processed sequentially by {@link #compute(int, int)}. The first failure of the range is
+ * kept and thrown by {@link #rethrowFailure()} after the task was invoked.
+ *
+ * @author Max Gensthaler
+ */
+abstract class RangeAction extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of indices processed by one task. */
+	static final int BATCH_SIZE = 64;
+
+	private final int start;
+	private final int end;
+	private IOException failure;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param start
+	 *            The first index of the range.
+	 * @param end
+	 *            The index after the last one of the range.
+	 */
+	RangeAction(int start, int end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Creates a task of the same kind for a part of the range.
+	 */
+	protected abstract RangeAction createSubtask(int subtaskStart, int subtaskEnd);
+
+	/**
+	 * Processes a range of at most {@link #BATCH_SIZE} indices.
+	 *
+	 * @throws IOException
+	 *             Error processing an index, the rest of the range is skipped
+	 */
+	protected abstract void compute(int batchStart, int batchEnd) throws IOException;
+
+	@Override
+	protected final void compute() {
+		if (end - start > BATCH_SIZE) {
+			int middle = (start + end) >>> 1;
+			RangeAction first = createSubtask(start, middle);
+			RangeAction second = createSubtask(middle, end);
+			invokeAll(first, second);
+			failure = first.failure != null ? first.failure : second.failure;
+			return;
+		}
+		try {
+			compute(start, end);
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 *             The first failure of the range, if any
+	 */
+	void rethrowFailure() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The project references of a workspace, as stored in the .location files, and their reverse.
+ * <p>
+ * The files are read in parallel with a {@link ReferenceReader} each, split into fork/join tasks
+ * of at most {@link RangeAction#BATCH_SIZE} projects. An update keeps the references of the
+ * projects whose .location file has the same modification time and size as before, so it only
+ * stats the files which did not change. Projects without .location file or with an unreadable one have no
+ * references.
+ *
+ * @author Max Gensthaler
+ */
+public final class ReferenceGraph {
+	private static final String[] NO_REFERENCES = new String[0];
+
+	/** The references by project name. */
+	private final Map<String, Node> nodes;
+	/** The names of the referencing projects by referenced project name. */
+	private final Map<String, List<String>> referencingProjects;
+
+	private ReferenceGraph(Map<String, Node> nodes) {
+		this.nodes = nodes;
+		referencingProjects = new HashMap<String, List<String>>();
+		for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+			for (String reference : entry.getValue().references) {
+				List<String> names = referencingProjects.get(reference);
+				if (names == null) {
+					names = new ArrayList<String>(2);
+					referencingProjects.put(reference, names);
+				}
+				names.add(entry.getKey());
+			}
+		}
+		for (List<String> names : referencingProjects.values()) {
+			Collections.sort(names);
+		}
+	}
+
+	/**
+	 * @return An empty graph.
+	 */
+	public static ReferenceGraph empty() {
+		return new ReferenceGraph(Collections.<String, Node> emptyMap());
+	}
+
+	/**
+	 * Reads the references of the given projects, reusing the references of this graph for the
+	 * unchanged .location files.
+	 *
+	 * @param locationFiles
+	 *            The .location files by project name.
+	 * @param pool
+	 *            The pool to read the files in.
+	 * @param canceled
+	 *            Set to <code>true</code> to stop reading, the result is incomplete then.
+	 * @return The new graph.
+	 */
+	public ReferenceGraph update(Map<String, File> locationFiles, ForkJoinPool pool, AtomicBoolean canceled) {
+		List<Map.Entry<String, File>> entries = new ArrayList<Map.Entry<String, File>>(locationFiles.entrySet());
+		Map<String, Node> updated = new ConcurrentHashMap<String, Node>(entries.size() * 4 / 3 + 1);
+		pool.invoke(new ReadTask(entries, 0, entries.size(), updated, canceled));
+		return new ReferenceGraph(new HashMap<String, Node>(updated));
+	}
+
+	/**
+	 * @return The number of projects in the graph.
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * @param projectName
+	 *            The name of a project.
+	 * @return The names of the projects referenced by the given project.
+	 */
+	public List<String> getReferencedProjects(String projectName) {
+		Node node = nodes.get(projectName);
+		return node != null ? Collections.unmodifiableList(Arrays.asList(node.references)) : Collections.<String> emptyList();
+	}
+
+	/**
+	 * @param projectName
+	 *            The name of a project.
+	 * @return The names of the projects referencing the given project, sorted.
+	 */
+	public List<String> getReferencingProjects(String projectName) {
+		List<String> names = referencingProjects.get(projectName);
+		return names != null ? Collections.unmodifiableList(names) : Collections.<String> emptyList();
+	}
+
+	/**
+	 * Collects the projects referencing any of the given projects, e.g. the ones which should be
+	 * relocated together with them.
+	 *
+	 * @param projectNames
+	 *            The names of some projects.
+	 * @return The names of the other projects referencing them, sorted.
+	 */
+	public SortedSet<String> getReferencingProjects(Collection<String> projectNames) {
+		Set<String> excluded = new HashSet<String>(projectNames);
+		SortedSet<String> result = new TreeSet<String>();
+		for (String projectName : excluded) {
+			for (String referencing : getReferencingProjects(projectName)) {
+				if (!excluded.contains(referencing)) {
+					result.add(referencing);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The references of a project as of the last read of its .location file.
+	 */
+	private static class Node {
+		final long lastModified;
+		final long length;
+		final String[] references;
+
+		Node(long lastModified, long length, String[] references) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.references = references;
+		}
+	}
+
+	/**
+	 * Reads the references of a range of projects.
+	 */
+	private class ReadTask extends RangeAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Map.Entry<String, File>> entries;
+		private final Map<String, Node> updated;
+		private final AtomicBoolean canceled;
+
+		ReadTask(List<Map.Entry<String, File>> entries, int start, int end, Map<String, Node> updated, AtomicBoolean canceled) {
+			super(start, end);
+			this.entries = entries;
+			this.updated = updated;
+			this.canceled = canceled;
+		}
+
+		@Override
+		protected RangeAction createSubtask(int subtaskStart, int subtaskEnd) {
+			return new ReadTask(entries, subtaskStart, subtaskEnd, updated, canceled);
+		}
+
+		@Override
+		protected void compute(int start, int end) {
+			for (int i = start; i < end; i++) {
+				if (canceled.get()) {
+					return;
+				}
+				Map.Entry<String, File> entry = entries.get(i);
+				updated.put(entry.getKey(), readNode(entry.getKey(), entry.getValue()));
+			}
+		}
+
+		private Node readNode(String projectName, File locationFile) {
+			long lastModified = locationFile.lastModified();
+			long length = locationFile.length();
+			Node cached = nodes.get(projectName);
+			if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+				return cached;
+			}
+			String[] references;
+			try {
+				ReferenceReader reader = new ReferenceReader(locationFile);
+				try {
+					references = reader.readReferences();
+				} finally {
+					reader.close();
+				}
+			} catch (IOException e) {
+				// no file for a project in the workspace directory without references, or malformed
+				references = NO_REFERENCES;
+			}
+			return new Node(lastModified, length, references);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads the project references of a .location file one at a time, without loading the file.
+ * <p>
+ * The references follow the location record: their count as <code>int</code>, then each name as
+ * modified UTF-8. These are the dynamic references of the project, the platform keeps them only
+ * here.
+ *
+ * @author Max Gensthaler
+ */
+public final class ReferenceReader implements Closeable {
+	/** Buffer size, large enough for the location and the usual references. */
+	private static final int BUFFER_SIZE = 1024;
+
+	private final DataInputStream in;
+	private final String location;
+	private final int referenceCount;
+	private int readCount;
+
+	/**
+	 * Opens a .location file and reads its location record and the number of references.
+	 *
+	 * @param file
+	 *            The .location file
+	 * @throws IOException
+	 *             Error reading the file or the file is malformed
+	 */
+	public ReferenceReader(File file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		boolean opened = false;
+		try {
+			in.readFully(new byte[LocationFile.BEGIN_CHUNK.length]);
+			location = in.readUTF();
+			referenceCount = in.readInt();
+			// each reference takes at least two bytes
+			if (referenceCount < 0 || referenceCount > file.length() / 2) {
+				throw new IOException("Malformed location file " + file); //$NON-NLS-1$
+			}
+			opened = true;
+		} finally {
+			if (!opened) {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * @return The raw location record, e.g. <code>URI//file:/path/to/project/</code>
+	 */
+	public String getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return The number of references stored in the file
+	 */
+	public int getReferenceCount() {
+		return referenceCount;
+	}
+
+	/**
+	 * Reads the next reference.
+	 *
+	 * @return The name of the referenced project, or <code>null</code> if all references were read
+	 * @throws IOException
+	 *             Error reading the file or the file is truncated
+	 */
+	public String nextReference() throws IOException {
+		if (readCount == referenceCount) {
+			return null;
+		}
+		readCount++;
+		return in.readUTF();
+	}
+
+	/**
+	 * Reads all remaining references.
+	 *
+	 * @return The names of the referenced projects
+	 * @throws IOException
+	 *             Error reading the file or the file is truncated
+	 */
+	public String[] readReferences() throws IOException {
+		String[] references = new String[referenceCount - readCount];
+		for (int i = 0; i < references.length; i++) {
+			references[i] = nextReference();
+		}
+		return references;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
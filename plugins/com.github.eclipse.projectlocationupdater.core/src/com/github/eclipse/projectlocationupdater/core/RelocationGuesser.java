@@ -0,0 +1,216 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Guesses where projects whose locations no longer exist were moved to, e.g. after a disk was
+ * mounted at another path.
+ * <p>
+ * For a missing location <code>/old/mount/src/group/project</code> and a search root
+ * <code>/new/mount</code>, the trailing segments of the location are tried below the search root,
+ * longest first: <code>/new/mount/mount/src/group/project</code>, <code>/new/mount/src/group/project</code>, ...
+ * The first existing directory whose <code>.project</code> file names the project yields the
+ * candidate root mapping <code>/old/mount</code> to <code>/new/mount</code>, a directory which
+ * merely has the same trailing segments is no candidate. Each project is assigned the candidate mapping which is shared by the
+ * most projects, as a whole disk or checkout is usually moved at once.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationGuesser {
+	private final List<String> searchRoots;
+	private final PathResolutionCache resolutions;
+	/** The candidate mappings of each missing project, in order of the search roots. */
+	private final Map<String, List<Candidate>> candidatesByProject = new LinkedHashMap<String, List<Candidate>>();
+	private final List<String> unresolvedProjects = new ArrayList<String>();
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param searchRoots
+	 *            The directories to search the projects below, in order of preference.
+	 * @param resolutions
+	 *            The cache to check the candidate directories with, shared with the caller's batch.
+	 */
+	public RelocationGuesser(List<String> searchRoots, PathResolutionCache resolutions) {
+		this.resolutions = resolutions;
+		this.searchRoots = new ArrayList<String>(searchRoots.size());
+		for (String searchRoot : searchRoots) {
+			this.searchRoots.add(LocationRewriter.normalize(searchRoot));
+		}
+	}
+
+	/**
+	 * Searches the new location of a project. Thread-safe.
+	 *
+	 * @param projectName
+	 *            The name of the project.
+	 * @param missingLocation
+	 *            The location of the project which does not exist anymore.
+	 */
+	public void add(String projectName, String missingLocation) {
+		List<Integer> segmentStarts = new ArrayList<Integer>();
+		int length = missingLocation.length();
+		int start = LocationRewriter.skipSeparators(missingLocation, 0);
+		while (start < length) {
+			segmentStarts.add(Integer.valueOf(start));
+			start = LocationRewriter.skipSeparators(missingLocation, LocationRewriter.nextSeparator(missingLocation, start));
+		}
+
+		List<Candidate> candidates = new ArrayList<Candidate>(searchRoots.size());
+		for (String searchRoot : searchRoots) {
+			// the longest suffix is the most specific one
+			for (int i = 0; i < segmentStarts.size(); i++) {
+				int suffixStart = segmentStarts.get(i).intValue();
+				String suffix = LocationRewriter.normalize(missingLocation.substring(suffixStart));
+				String newLocation = searchRoot.endsWith("/") ? searchRoot + suffix : searchRoot + '/' + suffix; //$NON-NLS-1$
+				if (isDirectory(newLocation) && isProject(newLocation, projectName)) {
+					String oldRoot = LocationRewriter.normalize(missingLocation.substring(0, suffixStart));
+					candidates.add(new Candidate(oldRoot.isEmpty() ? "/" : oldRoot, searchRoot, newLocation)); //$NON-NLS-1$
+					break;
+				}
+			}
+		}
+
+		synchronized (this) {
+			if (candidates.isEmpty()) {
+				unresolvedProjects.add(projectName);
+			} else {
+				candidatesByProject.put(projectName, candidates);
+			}
+		}
+	}
+
+	/**
+	 * @param path
+	 *            A path
+	 * @return <code>true</code> if the path denotes an existing directory
+	 */
+	protected boolean isDirectory(String path) {
+		return resolutions.isDirectory(path);
+	}
+
+	/**
+	 * @param path
+	 *            An existing directory
+	 * @param projectName
+	 *            The name of the project searched
+	 * @return <code>true</code> if the project description in the directory names the project
+	 */
+	protected boolean isProject(String path, String projectName) {
+		try {
+			return projectName.equals(ProjectDescriptions.readProjectName(new File(path, ProjectDescriptions.FILE_NAME)));
+		} catch (IOException e) {
+			// no or no readable project description
+			return false;
+		}
+	}
+
+	/**
+	 * Assigns each project the candidate mapping shared by the most projects.
+	 *
+	 * @return The guessed root mappings, the one relocating the most projects first.
+	 */
+	public synchronized List<Guess> getGuesses() {
+		Map<String, Integer> votes = new HashMap<String, Integer>();
+		for (List<Candidate> candidates : candidatesByProject.values()) {
+			for (Candidate candidate : candidates) {
+				Integer count = votes.get(candidate.getKey());
+				votes.put(candidate.getKey(), Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+			}
+		}
+
+		Map<String, Guess> guesses = new LinkedHashMap<String, Guess>();
+		for (Map.Entry<String, List<Candidate>> entry : candidatesByProject.entrySet()) {
+			Candidate best = null;
+			int bestVotes = 0;
+			for (Candidate candidate : entry.getValue()) {
+				int candidateVotes = votes.get(candidate.getKey()).intValue();
+				if (candidateVotes > bestVotes) {
+					best = candidate;
+					bestVotes = candidateVotes;
+				}
+			}
+			Guess guess = guesses.get(best.getKey());
+			if (guess == null) {
+				guess = new Guess(best.oldRoot, best.newRoot);
+				guesses.put(best.getKey(), guess);
+			}
+			guess.newLocations.put(entry.getKey(), best.newLocation);
+		}
+
+		List<Guess> sortedGuesses = new ArrayList<Guess>(guesses.values());
+		Collections.sort(sortedGuesses, new Comparator<Guess>() {
+			@Override
+			public int compare(Guess g1, Guess g2) {
+				return g2.newLocations.size() - g1.newLocations.size();
+			}
+		});
+		return sortedGuesses;
+	}
+
+	/**
+	 * @return The names of the projects not found below any search root.
+	 */
+	public synchronized List<String> getUnresolvedProjects() {
+		return new ArrayList<String>(unresolvedProjects);
+	}
+
+	/**
+	 * A guessed mapping of an old root to a new root and the projects it relocates.
+	 */
+	public static class Guess {
+		private final String oldRoot;
+		private final String newRoot;
+		private final Map<String, String> newLocations = new LinkedHashMap<String, String>();
+
+		Guess(String oldRoot, String newRoot) {
+			this.oldRoot = oldRoot;
+			this.newRoot = newRoot;
+		}
+
+		/**
+		 * @return The root the projects were located below.
+		 */
+		public String getOldRoot() {
+			return oldRoot;
+		}
+
+		/**
+		 * @return The search root the projects were found below.
+		 */
+		public String getNewRoot() {
+			return newRoot;
+		}
+
+		/**
+		 * @return The names of the projects relocated by this guess mapped to their new locations.
+		 */
+		public Map<String, String> getNewLocations() {
+			return Collections.unmodifiableMap(newLocations);
+		}
+	}
+
+	private static class Candidate {
+		final String oldRoot;
+		final String newRoot;
+		final String newLocation;
+
+		Candidate(String oldRoot, String newRoot, String newLocation) {
+			this.oldRoot = oldRoot;
+			this.newRoot = newRoot;
+			this.newLocation = newLocation;
+		}
+
+		String getKey() {
+			return oldRoot + '\0' + newRoot;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A bounded history of snapshots of .location files, taken before each relocation batch so the
+ * batch can be undone.
+ * <p>
+ * A snapshot keeps the complete content of the files as they were before the batch. Each file is
+ * split behind its location record: the head up to there is unique to the file, the tail with the
+ * references is shared by most projects and is stored once per distinct tail. Files which are no
+ * valid .location files are kept as a head with an empty tail. The paths and contents are deflated.
+ * Each snapshot is one file in the history directory, named by its sequence number. When the total
+ * size of the snapshots exceeds the limit, the oldest ones are evicted, the latest snapshot is
+ * always kept.
+ * <p>
+ * Layout of a snapshot file: magic, version, time, label, file count (uncompressed, to list the
+ * history cheaply), then deflated: the distinct tails, and the path and the head of each file with
+ * the index of its tail. Version 1 snapshots stored the distinct complete contents and no heads.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationHistory {
+	private static final int MAGIC = 0x504C5548;
+	private static final int VERSION = 2;
+	/** The version which stored the complete contents as tails, without heads. */
+	private static final int VERSION_WHOLE_CONTENTS = 1;
+
+	private static final String SNAPSHOT_FILE_SUFFIX = ".snapshot"; //$NON-NLS-1$
+	private static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private final File historyDir;
+	private final long maxSize;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param historyDir
+	 *            The directory of the snapshot files, created on demand.
+	 * @param maxSize
+	 *            The maximum total size of the snapshot files in bytes.
+	 */
+	public RelocationHistory(File historyDir, long maxSize) {
+		this.historyDir = historyDir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Takes a snapshot of the given files and evicts the oldest snapshots exceeding the size limit.
+	 * Files which do not exist are left out.
+	 *
+	 * @param files
+	 *            The files about to be written.
+	 * @param label
+	 *            A description of the batch.
+	 * @return The snapshot
+	 * @throws IOException
+	 *             Error reading a file or writing the snapshot
+	 */
+	public synchronized Snapshot capture(Collection<File> files, String label) throws IOException {
+		List<ByteBuffer> tails = new ArrayList<ByteBuffer>();
+		Map<ByteBuffer, Integer> tailIndexes = new HashMap<ByteBuffer, Integer>();
+		List<String> paths = new ArrayList<String>(files.size());
+		List<ByteBuffer> heads = new ArrayList<ByteBuffer>(files.size());
+		List<Integer> pathTails = new ArrayList<Integer>(files.size());
+		for (File file : files) {
+			byte[] content;
+			try {
+				content = Files.readAllBytes(file.toPath());
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			int headLength = LocationFile.getLocationRecordEnd(content);
+			if (headLength < 0) {
+				headLength = content.length;
+			}
+			ByteBuffer tail = ByteBuffer.wrap(content, headLength, content.length - headLength).slice();
+			Integer index = tailIndexes.get(tail);
+			if (index == null) {
+				index = Integer.valueOf(tails.size());
+				tails.add(tail);
+				tailIndexes.put(tail, index);
+			}
+			paths.add(file.getAbsolutePath());
+			heads.add(ByteBuffer.wrap(content, 0, headLength));
+			pathTails.add(index);
+		}
+
+		historyDir.mkdirs();
+		long sequence = getLatestSequence() + 1;
+		Snapshot snapshot = new Snapshot(new File(historyDir, sequence + SNAPSHOT_FILE_SUFFIX), sequence, VERSION, System.currentTimeMillis(), label, paths.size());
+		File tempFile = new File(historyDir, sequence + TEMP_FILE_SUFFIX);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(snapshot.time);
+			out.writeUTF(label);
+			out.writeInt(snapshot.fileCount);
+			DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+			DataOutputStream body = new DataOutputStream(deflater);
+			body.writeInt(tails.size());
+			for (ByteBuffer tail : tails) {
+				write(body, tail);
+			}
+			for (int i = 0; i < paths.size(); i++) {
+				body.writeUTF(paths.get(i));
+				write(body, heads.get(i));
+				body.writeInt(pathTails.get(i).intValue());
+			}
+			body.flush();
+			deflater.finish();
+		} finally {
+			out.close();
+		}
+		Files.move(tempFile.toPath(), snapshot.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		evict();
+		return snapshot;
+	}
+
+	private static void write(DataOutputStream out, ByteBuffer buffer) throws IOException {
+		out.writeInt(buffer.remaining());
+		out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+	}
+
+	/**
+	 * @return The snapshots of the history, the latest first.
+	 */
+	public synchronized List<Snapshot> getSnapshots() {
+		List<Snapshot> snapshots = new ArrayList<Snapshot>();
+		for (File file : listSnapshotFiles()) {
+			try {
+				snapshots.add(readHeader(file));
+			} catch (IOException e) {
+				// a damaged snapshot cannot be restored
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * @return The latest snapshot, or <code>null</code> if the history is empty.
+	 */
+	public synchronized Snapshot getLatest() {
+		List<Snapshot> snapshots = getSnapshots();
+		return snapshots.isEmpty() ? null : snapshots.get(0);
+	}
+
+	/**
+	 * Lists the files of a snapshot.
+	 *
+	 * @param snapshot
+	 *            A snapshot of this history.
+	 * @return The files whose content the snapshot keeps.
+	 * @throws IOException
+	 *             Error reading the snapshot or the snapshot is damaged
+	 */
+	public synchronized List<File> getFiles(Snapshot snapshot) throws IOException {
+		final List<File> files = new ArrayList<File>(snapshot.fileCount);
+		readBody(snapshot, new BodyVisitor() {
+			@Override
+			public void visit(String path, byte[] head, byte[] tail) {
+				files.add(new File(path));
+			}
+		});
+		return files;
+	}
+
+	/**
+	 * Writes the content kept by a snapshot back to its files and drops the snapshot and all later
+	 * ones from the history. The files are logged to one journal batch, so they are replaced
+	 * together when the batch is committed, or by {@link RelocationJournal#recover(File)} after a
+	 * crash.
+	 *
+	 * @param snapshot
+	 *            A snapshot of this history.
+	 * @param journal
+	 *            The journal of the relocation batches.
+	 * @return The number of files restored
+	 * @throws IOException
+	 *             Error reading the snapshot, logging or writing a file, the snapshot is kept then
+	 */
+	public synchronized int restore(Snapshot snapshot, RelocationJournal journal) throws IOException {
+		final RelocationJournal.Batch batch = journal.beginBatch();
+		readBody(snapshot, new BodyVisitor() {
+			@Override
+			public void visit(String path, byte[] head, byte[] tail) {
+				batch.log(new File(path), new ByteBuffer[] { ByteBuffer.wrap(head), ByteBuffer.wrap(tail) });
+			}
+		});
+		int restoredFiles = batch.commit();
+
+		for (File file : listSnapshotFiles()) {
+			if (getSequence(file) >= snapshot.sequence && !file.delete()) {
+				throw new IOException("Failed to delete the snapshot " + file); //$NON-NLS-1$
+			}
+		}
+		return restoredFiles;
+	}
+
+	private void evict() {
+		List<File> files = listSnapshotFiles();
+		long totalSize = 0;
+		for (int i = 0; i < files.size(); i++) {
+			totalSize += files.get(i).length();
+			if (i > 0 && totalSize > maxSize) {
+				files.get(i).delete();
+			}
+		}
+	}
+
+	private long getLatestSequence() {
+		List<File> files = listSnapshotFiles();
+		return files.isEmpty() ? 0 : getSequence(files.get(0));
+	}
+
+	/**
+	 * @return The snapshot files, the latest first.
+	 */
+	private List<File> listSnapshotFiles() {
+		File[] files = historyDir.listFiles();
+		if (files == null) {
+			return Collections.emptyList();
+		}
+		List<File> snapshotFiles = new ArrayList<File>(files.length);
+		for (File file : files) {
+			if (getSequence(file) > 0) {
+				snapshotFiles.add(file);
+			}
+		}
+		Collections.sort(snapshotFiles, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				long sequence1 = getSequence(file1);
+				long sequence2 = getSequence(file2);
+				return sequence1 > sequence2 ? -1 : sequence1 < sequence2 ? 1 : 0;
+			}
+		});
+		return snapshotFiles;
+	}
+
+	/**
+	 * @return The sequence number of a snapshot file, or 0 if the file is no snapshot.
+	 */
+	private static long getSequence(File file) {
+		String name = file.getName();
+		if (!name.endsWith(SNAPSHOT_FILE_SUFFIX)) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(name.substring(0, name.length() - SNAPSHOT_FILE_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static Snapshot readHeader(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			return readHeader(file, in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static Snapshot readHeader(File file, DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Malformed snapshot " + file); //$NON-NLS-1$
+		}
+		int version = in.readInt();
+		if (version != VERSION && version != VERSION_WHOLE_CONTENTS) {
+			throw new IOException("Malformed snapshot " + file); //$NON-NLS-1$
+		}
+		long time = in.readLong();
+		String label = in.readUTF();
+		int fileCount = in.readInt();
+		return new Snapshot(file, getSequence(file), version, time, label, fileCount);
+	}
+
+	private static void readBody(Snapshot snapshot, BodyVisitor visitor) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot.file)));
+		try {
+			readHeader(snapshot.file, in);
+			DataInputStream body = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)));
+			int tailCount = body.readInt();
+			if (tailCount < 0 || tailCount > snapshot.fileCount) {
+				throw new IOException("Malformed snapshot " + snapshot.file); //$NON-NLS-1$
+			}
+			byte[][] tails = new byte[tailCount][];
+			for (int i = 0; i < tailCount; i++) {
+				tails[i] = readBytes(body);
+			}
+			byte[] noHead = new byte[0];
+			for (int i = 0; i < snapshot.fileCount; i++) {
+				String path = body.readUTF();
+				byte[] head = snapshot.version == VERSION_WHOLE_CONTENTS ? noHead : readBytes(body);
+				int tailIndex = body.readInt();
+				if (tailIndex < 0 || tailIndex >= tailCount) {
+					throw new IOException("Malformed snapshot " + snapshot.file); //$NON-NLS-1$
+				}
+				visitor.visit(path, head, tails[tailIndex]);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Receives the files of a snapshot, the content of a file is its head followed by its tail.
+	 */
+	private interface BodyVisitor {
+		void visit(String path, byte[] head, byte[] tail) throws IOException;
+	}
+
+	/**
+	 * A snapshot of the .location files taken before a relocation batch.
+	 */
+	public static final class Snapshot {
+		private final File file;
+		private final long sequence;
+		private final int version;
+		private final long time;
+		private final String label;
+		private final int fileCount;
+
+		Snapshot(File file, long sequence, int version, long time, String label, int fileCount) {
+			this.file = file;
+			this.sequence = sequence;
+			this.version = version;
+			this.time = time;
+			this.label = label;
+			this.fileCount = fileCount;
+		}
+
+		/**
+		 * @return The time the snapshot was taken, in milliseconds since the epoch.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return The description of the batch.
+		 */
+		public String getLabel() {
+			return label;
+		}
+
+		/**
+		 * @return The number of files kept.
+		 */
+		public int getFileCount() {
+			return fileCount;
+		}
+
+		/**
+		 * @return The size of the snapshot file in bytes.
+		 */
+		public long getSize() {
+			return file.length();
+		}
+	}
+}
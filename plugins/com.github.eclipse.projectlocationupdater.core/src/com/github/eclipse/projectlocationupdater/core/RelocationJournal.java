@@ -0,0 +1,304 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A redo journal making batches of .location file writes atomic.
+ * <p>
+ * Each writer works on a batch of its own, see {@link #beginBatch()}. The writes of a batch are
+ * deferred: {@link Batch#log(File, ByteBuffer[])} keeps the complete new content of a file without
+ * touching the file. {@link Batch#commit()} appends the records of the batch and a commit record to
+ * the journal and forces it to disk once. Only then the files are replaced by renaming a temporary
+ * file over each of them, and each distinct directory is forced once before the journal is
+ * deleted. The files are not forced one by one, until the directories are forced the committed
+ * journal can replay them. So a batch costs one fsync of the journal plus one per directory, no
+ * matter how many threads log to it.
+ * <p>
+ * The guarantee is all or nothing per batch: if the journal still exists on startup,
+ * {@link #recover(File)} writes all files of a committed batch again, and discards a batch without
+ * commit record, none of its files was touched yet. Records are checksummed, a torn record ends
+ * the journal. Batches committed concurrently share the journal file, so their commits are
+ * serialized.
+ * <p>
+ * A file failing to be replaced while a batch is applied does not stop the other files, the
+ * failure is reported by {@link Batch#commit()}.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationJournal {
+	/** Marks the beginning of each file record. */
+	private static final int RECORD_MAGIC = 0x504C554A;
+	/** Marks the commit record, followed by the number of file records of the batch. */
+	private static final int COMMIT_MAGIC = 0x504C5543;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	private final File journalFile;
+
+	/** Number of times the journal was forced to disk. */
+	private long forceCount;
+	/** Total time spent forcing the journal to disk, in nanoseconds. */
+	private long forceNanos;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param journalFile
+	 *            The journal file, created on demand.
+	 */
+	public RelocationJournal(File journalFile) {
+		this.journalFile = journalFile;
+	}
+
+	/**
+	 * Starts a batch of writes, to be committed by its writer.
+	 *
+	 * @return The new batch.
+	 */
+	public Batch beginBatch() {
+		return new Batch();
+	}
+
+	/**
+	 * Writes the records of a batch and the commit record to the journal, forces it, replaces the
+	 * files and deletes the journal.
+	 */
+	private synchronized void commit(List<File> files, List<ByteBuffer> contents, List<ByteBuffer> records) throws IOException {
+		ByteBuffer commitRecord = ByteBuffer.allocate(8);
+		commitRecord.putInt(COMMIT_MAGIC).putInt(files.size()).flip();
+		records.add(commitRecord);
+
+		journalFile.getParentFile().mkdirs();
+		RandomAccessFile journal = new RandomAccessFile(journalFile, "rw"); //$NON-NLS-1$
+		try {
+			journal.setLength(0);
+			FileChannel channel = journal.getChannel();
+			LocationFile.writeFully(channel, records.toArray(new ByteBuffer[records.size()]));
+			long start = System.nanoTime();
+			channel.force(false);
+			forceCount++;
+			forceNanos += System.nanoTime() - start;
+		} catch (IOException e) {
+			journal.close();
+			// nothing was replaced, the batch is discarded
+			journalFile.delete();
+			throw e;
+		}
+		journal.close();
+
+		IOException failure = apply(files, contents);
+		// the files are durable now
+		if (!journalFile.delete() && failure == null) {
+			failure = new IOException("Failed to delete the journal " + journalFile); //$NON-NLS-1$
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Replaces the files without forcing them and forces each of their directories once.
+	 *
+	 * @return The first failure, or <code>null</code> if all files were replaced
+	 */
+	private static IOException apply(List<File> files, List<ByteBuffer> contents) {
+		IOException failure = null;
+		Set<File> directories = new LinkedHashSet<File>();
+		for (int i = 0; i < files.size(); i++) {
+			File file = files.get(i);
+			try {
+				LocationFile.replace(file, new ByteBuffer[] { contents.get(i).duplicate() }, false);
+				directories.add(file.getAbsoluteFile().getParentFile());
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = new IOException("Failed to write " + file + ": " + e.getMessage(), e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+		for (File directory : directories) {
+			LocationFile.forceDirectory(directory);
+		}
+		return failure;
+	}
+
+	/**
+	 * @return The number of times the journal was forced to disk since this journal was created.
+	 */
+	public synchronized long getForceCount() {
+		return forceCount;
+	}
+
+	/**
+	 * @return The total time spent forcing the journal to disk since this journal was created, in
+	 *         nanoseconds.
+	 */
+	public synchronized long getForceNanos() {
+		return forceNanos;
+	}
+
+	/**
+	 * Completes the batch of an interrupted journal and deletes it: a committed batch is written
+	 * again, a batch without commit record is discarded.
+	 *
+	 * @param journalFile
+	 *            The journal file
+	 * @return The number of files written again, 0 if there was no journal or no committed batch
+	 * @throws IOException
+	 *             Error reading the journal or writing a file
+	 */
+	public static int recover(File journalFile) throws IOException {
+		if (!journalFile.exists()) {
+			return 0;
+		}
+
+		long journalLength = journalFile.length();
+		List<File> files = new ArrayList<File>();
+		List<ByteBuffer> contents = new ArrayList<ByteBuffer>();
+		boolean committed = false;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+		try {
+			while (!committed) {
+				try {
+					int magic = in.readInt();
+					if (magic == COMMIT_MAGIC) {
+						committed = in.readInt() == files.size();
+						break;
+					}
+					if (magic != RECORD_MAGIC) {
+						break;
+					}
+					byte[] path = readBytes(in, journalLength);
+					byte[] content = readBytes(in, journalLength);
+					CRC32 crc = new CRC32();
+					crc.update(path);
+					crc.update(content);
+					if (in.readLong() != crc.getValue()) {
+						break;
+					}
+					files.add(new File(new String(path, UTF_8)));
+					contents.add(ByteBuffer.wrap(content));
+				} catch (EOFException e) {
+					// torn record at the end of the journal
+					break;
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		if (committed) {
+			IOException failure = apply(files, contents);
+			if (failure != null) {
+				// keep the journal to try again
+				throw failure;
+			}
+		}
+		if (!journalFile.delete()) {
+			throw new IOException("Failed to delete the journal " + journalFile); //$NON-NLS-1$
+		}
+		return committed ? files.size() : 0;
+	}
+
+	private static byte[] readBytes(DataInputStream in, long journalLength) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > journalLength) {
+			// garbled length, treat it like a torn record
+			throw new EOFException();
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * The writes of one writer, committed together. Thread-safe, the workers of a writer may log to
+	 * the same batch.
+	 */
+	public final class Batch {
+		/** The logged files, in log order. */
+		private final List<File> files = new ArrayList<File>();
+		/** The new contents of the logged {@link #files}, slices of their {@link #records}. */
+		private final List<ByteBuffer> contents = new ArrayList<ByteBuffer>();
+		/** The journal records of the logged {@link #files}. */
+		private final List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+
+		Batch() {
+			// created by beginBatch()
+		}
+
+		/**
+		 * Logs the new content of a file. The file is replaced when the batch is committed.
+		 *
+		 * @param file
+		 *            The file to be replaced
+		 * @param content
+		 *            The new content of the file, the buffers are consumed
+		 */
+		void log(File file, ByteBuffer[] content) {
+			int contentLength = 0;
+			for (ByteBuffer buffer : content) {
+				contentLength += buffer.remaining();
+			}
+			byte[] path = file.getAbsolutePath().getBytes(UTF_8);
+			ByteBuffer record = ByteBuffer.allocate(12 + path.length + contentLength + 8);
+			record.putInt(RECORD_MAGIC).putInt(path.length).put(path).putInt(contentLength);
+			int contentStart = record.position();
+			for (ByteBuffer buffer : content) {
+				record.put(buffer);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(path);
+			crc.update(record.array(), contentStart, contentLength);
+			record.putLong(crc.getValue()).flip();
+			ByteBuffer contentSlice = ByteBuffer.wrap(record.array(), contentStart, contentLength).slice();
+
+			synchronized (this) {
+				files.add(file);
+				contents.add(contentSlice);
+				records.add(record);
+			}
+		}
+
+		/**
+		 * Commits the logged writes: they are journaled, then the files are replaced. The batch is
+		 * empty afterwards and may be reused. Nothing is written for an empty batch.
+		 *
+		 * @return The number of files replaced
+		 * @throws IOException
+		 *             Error writing the journal, nothing was written then, or error replacing a
+		 *             file, all other files were written
+		 */
+		public int commit() throws IOException {
+			List<File> committedFiles;
+			List<ByteBuffer> committedContents;
+			List<ByteBuffer> committedRecords;
+			synchronized (this) {
+				if (files.isEmpty()) {
+					return 0;
+				}
+				committedFiles = new ArrayList<File>(files);
+				committedContents = new ArrayList<ByteBuffer>(contents);
+				committedRecords = new ArrayList<ByteBuffer>(records);
+				files.clear();
+				contents.clear();
+				records.clear();
+			}
+			RelocationJournal.this.commit(committedFiles, committedContents, committedRecords);
+			return committedFiles.size();
+		}
+	}
+}
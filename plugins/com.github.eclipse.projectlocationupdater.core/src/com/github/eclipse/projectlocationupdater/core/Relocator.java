@@ -0,0 +1,152 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileLock;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point to relocate the projects of a workspace which is not in use.
+ * <p>
+ * Usage: <code>java -jar com.github.eclipse.projectlocationupdater.core.jar &lt;workspace&gt; &lt;old path&gt;=&lt;new path&gt; ...</code>
+ * <p>
+ * Each project location starting with an old path (on a segment boundary) is rewritten to start
+ * with the corresponding new path. If several old paths match, the longest one wins, see
+ * {@link LocationRewriter}. The command refuses to run while the workspace is locked by a running
+ * Eclipse and keeps it locked until it is done.
+ * <p>
+ * Exit codes: 0 on success, 1 on usage errors or failed projects, 2 if the workspace is in use.
+ *
+ * @author Max Gensthaler
+ */
+public class Relocator {
+	private static final int EXIT_OK = 0;
+	private static final int EXIT_FAILURE = 1;
+	private static final int EXIT_WORKSPACE_LOCKED = 2;
+
+	private final WorkspaceMetadata workspace;
+	private final LocationRewriter rewriter;
+	private final PrintStream out;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param workspace
+	 *            The workspace to relocate the projects of.
+	 * @param rewriter
+	 *            The compiled mappings.
+	 * @param out
+	 *            The stream to report to.
+	 */
+	public Relocator(WorkspaceMetadata workspace, LocationRewriter rewriter, PrintStream out) {
+		this.workspace = workspace;
+		this.rewriter = rewriter;
+		this.out = out;
+	}
+
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Runs the command.
+	 *
+	 * @param args
+	 *            The command line arguments.
+	 * @param out
+	 *            The stream to report to.
+	 * @param err
+	 *            The stream to report errors to.
+	 * @return The exit code.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		if (args.length < 2) {
+			err.println("Usage: java -jar com.github.eclipse.projectlocationupdater.core.jar <workspace> <old path>=<new path> ..."); //$NON-NLS-1$
+			return EXIT_FAILURE;
+		}
+		File workspaceDir = new File(args[0]);
+		if (!new File(workspaceDir, WorkspaceMetadata.PROJECTS_RELPATH).isDirectory()) {
+			err.println("Not an Eclipse workspace: " + workspaceDir); //$NON-NLS-1$
+			return EXIT_FAILURE;
+		}
+		Map<String, String> mappings = new LinkedHashMap<String, String>();
+		for (int i = 1; i < args.length; i++) {
+			int separator = args[i].indexOf('=');
+			if (separator <= 0 || separator == args[i].length() - 1) {
+				err.println("Invalid mapping, expected <old path>=<new path>: " + args[i]); //$NON-NLS-1$
+				return EXIT_FAILURE;
+			}
+			mappings.put(args[i].substring(0, separator), args[i].substring(separator + 1));
+		}
+
+		WorkspaceMetadata workspace = new WorkspaceMetadata(workspaceDir);
+		try {
+			FileLock lock = workspace.lock();
+			if (lock == null) {
+				err.println("The workspace is in use: " + workspaceDir); //$NON-NLS-1$
+				return EXIT_WORKSPACE_LOCKED;
+			}
+			try {
+				int failures = new Relocator(workspace, LocationRewriter.compile(mappings), out).relocate(err);
+				return failures == 0 ? EXIT_OK : EXIT_FAILURE;
+			} finally {
+				lock.channel().close();
+			}
+		} catch (IOException e) {
+			err.println("Failed to relocate the projects: " + e.getMessage()); //$NON-NLS-1$
+			return EXIT_FAILURE;
+		}
+	}
+
+	/**
+	 * Relocates all projects matching one of the mappings.
+	 *
+	 * @param err
+	 *            The stream to report failed projects to.
+	 * @return The number of projects which failed to relocate.
+	 * @throws IOException
+	 *             Error completing an interrupted relocation
+	 */
+	public int relocate(PrintStream err) throws IOException {
+		File journalFile = workspace.getJournalFile();
+		RelocationJournal.recover(journalFile);
+		RelocationJournal.Batch batch = new RelocationJournal(journalFile).beginBatch();
+
+		int relocated = 0;
+		int failures = 0;
+		List<String> projectNames = workspace.getProjectNames();
+		try {
+			for (String projectName : projectNames) {
+				try {
+					if (relocate(projectName, batch)) {
+						relocated++;
+					}
+				} catch (IOException e) {
+					err.println(projectName + ": " + e.getMessage()); //$NON-NLS-1$
+					failures++;
+				}
+			}
+		} finally {
+			batch.commit();
+		}
+		out.println("Relocated " + relocated + " of " + projectNames.size() + " projects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return failures;
+	}
+
+	private boolean relocate(String projectName, RelocationJournal.Batch batch) throws IOException {
+		LocationFile locationFile = LocationFile.read(workspace.getLocationFile(projectName));
+		if (!LocationRecords.isFileRecord(locationFile.getLocation())) {
+			// located in the workspace or in another file system
+			return false;
+		}
+		String location = LocationRecords.toLocation(locationFile.getLocation());
+		String newLocation = rewriter.rewrite(location);
+		if (newLocation == null) {
+			return false;
+		}
+		return locationFile.write(LocationRecords.toRecord(new File(newLocation)), batch) >= 0;
+	}
+}
@@ -0,0 +1,190 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the new locations of a relocation before anything is written: each target has to be an
+ * existing, readable and writable directory holding the .project file of the project, and no two
+ * projects may be relocated to the same directory.
+ * <p>
+ * The targets are checked in parallel, split into fork/join tasks of at most
+ * {@link RangeAction#BATCH_SIZE} projects. The targets are resolved through a shared {@link PathResolutionCache}, so their common
+ * ancestors are stat'ed once, and the checks of each directory are memoized. Use one instance per
+ * batch, it does not notice changes of the file system. Thread-safe.
+ *
+ * @author Max Gensthaler
+ */
+public final class TargetValidator {
+	/**
+	 * A reason why a target is no valid location of a project.
+	 */
+	public enum Problem {
+		/** The target is no existing directory. */
+		MISSING,
+		/** The target directory cannot be read or written. */
+		NOT_ACCESSIBLE,
+		/** The target directory has no readable .project file. */
+		NO_PROJECT_DESCRIPTION,
+		/** The .project file in the target directory describes another project. */
+		NAME_MISMATCH,
+		/** Another project of the batch is relocated to the same directory. */
+		DUPLICATE
+	}
+
+	private static final Directory MISSING_DIRECTORY = new Directory(null, Problem.MISSING, null);
+
+	private final PathResolutionCache resolutions;
+	/** The checked directories by real path. */
+	private final ConcurrentMap<String, Directory> directories = new ConcurrentHashMap<String, Directory>();
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param resolutions
+	 *            The cache to resolve the targets with, shared with the other checks of the batch.
+	 */
+	public TargetValidator(PathResolutionCache resolutions) {
+		this.resolutions = resolutions;
+	}
+
+	/**
+	 * Checks the targets of a batch of projects.
+	 *
+	 * @param targets
+	 *            The new locations by project name (input, unmodifiable).
+	 * @param pool
+	 *            The pool to check the targets in.
+	 * @return The problem of each invalid target by project name. A target relocated to by
+	 *         several projects is reported as {@link Problem#DUPLICATE} for all of them.
+	 */
+	public Map<String, Problem> validate(Map<String, String> targets, ForkJoinPool pool) {
+		List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>(targets.entrySet());
+		Object[] identities = new Object[entries.size()];
+		Map<String, Problem> problems = new ConcurrentHashMap<String, Problem>();
+		pool.invoke(new ValidateTask(entries, 0, entries.size(), identities, problems));
+
+		// all targets are resolved now, so the duplicates are found in one pass
+		Map<Object, String> owners = new HashMap<Object, String>(entries.size() * 4 / 3 + 1);
+		for (int i = 0; i < identities.length; i++) {
+			if (identities[i] == null) {
+				continue;
+			}
+			String projectName = entries.get(i).getKey();
+			String owner = owners.put(identities[i], projectName);
+			if (owner != null) {
+				problems.put(owner, Problem.DUPLICATE);
+				problems.put(projectName, Problem.DUPLICATE);
+			}
+		}
+		return new HashMap<String, Problem>(problems);
+	}
+
+	private Directory getDirectory(String target) {
+		String realPath = resolutions.toRealPath(target);
+		if (realPath == null || !resolutions.isDirectory(target)) {
+			return MISSING_DIRECTORY;
+		}
+		Directory directory = directories.get(realPath);
+		if (directory == null) {
+			directory = inspect(realPath, resolutions.getIdentity(target));
+			Directory previous = directories.putIfAbsent(realPath, directory);
+			if (previous != null) {
+				directory = previous;
+			}
+		}
+		return directory;
+	}
+
+	/**
+	 * Checks the access to an existing directory and reads the project name from its .project file.
+	 */
+	private static Directory inspect(String realPath, Object identity) {
+		Path path;
+		try {
+			path = Paths.get(realPath);
+		} catch (InvalidPathException e) {
+			return MISSING_DIRECTORY;
+		}
+		if (!Files.isReadable(path) || !Files.isWritable(path)) {
+			return new Directory(identity, Problem.NOT_ACCESSIBLE, null);
+		}
+		String projectName;
+		try {
+			projectName = ProjectDescriptions.readProjectName(path.resolve(ProjectDescriptions.FILE_NAME).toFile());
+		} catch (IOException e) {
+			// also a .project directory or an unreadable file
+			return new Directory(identity, Problem.NO_PROJECT_DESCRIPTION, null);
+		}
+		if (projectName == null) {
+			return new Directory(identity, Problem.NO_PROJECT_DESCRIPTION, null);
+		}
+		return new Directory(identity, null, projectName);
+	}
+
+	/**
+	 * The memoized checks of a target directory.
+	 */
+	private static class Directory {
+		/** The identity of the directory, see {@link PathResolutionCache#getIdentity(String)}. */
+		final Object identity;
+		/** The problem of the directory regardless of the project, or <code>null</code>. */
+		final Problem problem;
+		/** The name in the .project file, or <code>null</code> if there is a problem. */
+		final String projectName;
+
+		Directory(Object identity, Problem problem, String projectName) {
+			this.identity = identity;
+			this.problem = problem;
+			this.projectName = projectName;
+		}
+	}
+
+	/**
+	 * Checks a range of targets.
+	 */
+	private class ValidateTask extends RangeAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Map.Entry<String, String>> entries;
+		private final Object[] identities;
+		private final Map<String, Problem> problems;
+
+		ValidateTask(List<Map.Entry<String, String>> entries, int start, int end, Object[] identities, Map<String, Problem> problems) {
+			super(start, end);
+			this.entries = entries;
+			this.identities = identities;
+			this.problems = problems;
+		}
+
+		@Override
+		protected RangeAction createSubtask(int subtaskStart, int subtaskEnd) {
+			return new ValidateTask(entries, subtaskStart, subtaskEnd, identities, problems);
+		}
+
+		@Override
+		protected void compute(int start, int end) {
+			for (int i = start; i < end; i++) {
+				Map.Entry<String, String> entry = entries.get(i);
+				Directory directory = getDirectory(entry.getValue());
+				// each task writes its own range of the array, published by invoke()
+				identities[i] = directory.identity;
+				if (directory.problem != null) {
+					problems.put(entry.getKey(), directory.problem);
+				} else if (!directory.projectName.equals(entry.getKey())) {
+					problems.put(entry.getKey(), Problem.NAME_MISMATCH);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.github.eclipse.projectlocationupdater.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The project metadata of an Eclipse workspace on disk.
+ *
+ * @author Max Gensthaler
+ */
+public class WorkspaceMetadata {
+	/** Constant path to the workspace projects locations storage. */
+	public static final String PROJECTS_RELPATH = ".metadata/.plugins/org.eclipse.core.resources/.projects"; //$NON-NLS-1$
+
+	/** Name of the file holding a project location. */
+	public static final String LOCATION_FILE_NAME = ".location"; //$NON-NLS-1$
+
+	/** Path to the lock file held by a running Eclipse. */
+	private static final String LOCK_RELPATH = ".metadata/.lock"; //$NON-NLS-1$
+
+	/** Path to the state location of the plug-in, where the relocation journal is kept. */
+	private static final String JOURNAL_RELPATH = ".metadata/.plugins/com.github.eclipse.projectlocationupdater.plugin/relocation.journal"; //$NON-NLS-1$
+
+	private final File workspaceDir;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param workspaceDir
+	 *            The root directory of the workspace.
+	 */
+	public WorkspaceMetadata(File workspaceDir) {
+		this.workspaceDir = workspaceDir;
+	}
+
+	/**
+	 * @return The directory containing the metadata of the projects.
+	 */
+	public File getProjectsDir() {
+		return new File(workspaceDir, PROJECTS_RELPATH);
+	}
+
+	/**
+	 * Retrieves the .location file of a project.
+	 *
+	 * @param projectName
+	 *            The name of the project.
+	 * @return The .location file of the project.
+	 */
+	public File getLocationFile(String projectName) {
+		return new File(new File(getProjectsDir(), projectName), LOCATION_FILE_NAME);
+	}
+
+	/**
+	 * @return The journal file of the relocation batches, shared with the plug-in.
+	 */
+	public File getJournalFile() {
+		return new File(workspaceDir, JOURNAL_RELPATH);
+	}
+
+	/**
+	 * @return The names of all projects having a .location file, sorted by name.
+	 */
+	public List<String> getProjectNames() {
+		List<String> projectNames = new ArrayList<String>();
+		String[] names = getProjectsDir().list();
+		if (names != null) {
+			Arrays.sort(names);
+			for (String name : names) {
+				if (getLocationFile(name).isFile()) {
+					projectNames.add(name);
+				}
+			}
+		}
+		return projectNames;
+	}
+
+	/**
+	 * Locks the workspace the same way a running Eclipse does.
+	 *
+	 * @return The lock, to be released by closing its channel, or <code>null</code> if the workspace
+	 *         is in use.
+	 * @throws IOException
+	 *             Error opening the lock file
+	 */
+	public FileLock lock() throws IOException {
+		RandomAccessFile lockFile = new RandomAccessFile(new File(workspaceDir, LOCK_RELPATH), "rw"); //$NON-NLS-1$
+		FileLock lock = null;
+		try {
+			lock = lockFile.getChannel().tryLock();
+		} catch (OverlappingFileLockException e) {
+			// locked by this JVM
+		} finally {
+			if (lock == null) {
+				lockFile.close();
+			}
+		}
+		return lock;
+	}
+}
@@ -1,8 +1,38 @@
 package com.github.eclipse.projectlocationupdater;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.osgi.service.debug.DebugOptions;
+import org.eclipse.osgi.service.debug.DebugOptionsListener;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import com.github.eclipse.projectlocationupdater.core.ReferenceGraph;
+import com.github.eclipse.projectlocationupdater.core.RelocationHistory;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -13,9 +43,44 @@ public class Activator extends AbstractUIPlugin {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "com.github.eclipse.projectlocationupdater"; //$NON-NLS-1$
 
+	// The name of the relocation journal in the plug-in state location
+	private static final String JOURNAL_FILE_NAME = "relocation.journal"; //$NON-NLS-1$
+
+	// The name of the discovery index in the plug-in state location
+	private static final String DISCOVERY_INDEX_FILE_NAME = "discovery.index"; //$NON-NLS-1$
+
+	// The name of the directory of the relocation history in the plug-in state location
+	private static final String HISTORY_DIR_NAME = "history"; //$NON-NLS-1$
+
+	// The maximum total size of the relocation history in bytes
+	private static final long HISTORY_MAX_SIZE = 4 * 1024 * 1024;
+
+	// Interval in milliseconds to check the progress monitor for cancellation
+	private static final long CANCEL_POLL_INTERVAL = 100;
+
 	// The shared instance
 	private static Activator plugin;
 
+	// The index of the project locations
+	private ProjectLocationIndex projectLocationIndex;
+
+	// The journal of the running relocation batches
+	private RelocationJournal relocationJournal;
+
+	// The snapshots taken before the relocation batches, to undo them
+	private RelocationHistory relocationHistory;
+
+	// The references between the closed projects as of the last update
+	private ReferenceGraph referenceGraph = ReferenceGraph.empty();
+
+	// The pool reading the .location files of the reference graph and checking the targets of the
+	// relocation plans, shared by all of them
+	private ForkJoinPool sharedPool;
+
+	// The I/O statistics, registered as MBean and debug options listener
+	private RelocationStatistics relocationStatistics;
+	private ServiceRegistration<DebugOptionsListener> debugOptionsRegistration;
+
 	/**
 	 * The constructor
 	 */
@@ -34,6 +99,14 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		File journalFile = getStateLocation().append(JOURNAL_FILE_NAME).toFile();
+		recoverInterruptedRelocation(journalFile);
+		relocationJournal = new RelocationJournal(journalFile);
+		relocationHistory = new RelocationHistory(getStateLocation().append(HISTORY_DIR_NAME).toFile(), HISTORY_MAX_SIZE);
+		sharedPool = new ForkJoinPool();
+		startStatistics(context);
+		projectLocationIndex = new ProjectLocationIndex();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(projectLocationIndex, ProjectLocationIndex.EVENT_MASK);
 	}
 
 	/*
@@ -45,10 +118,68 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(projectLocationIndex);
+		projectLocationIndex = null;
+		stopStatistics();
+		sharedPool.shutdownNow();
+		sharedPool = null;
+		relocationHistory = null;
+		relocationJournal = null;
 		plugin = null;
 		super.stop(context);
 	}
 
+	/**
+	 * Creates the I/O statistics and publishes them via JMX and the debug options of this plug-in.
+	 *
+	 * @param context
+	 *            the bundle context
+	 */
+	private void startStatistics(BundleContext context) {
+		String symbolicName = context.getBundle().getSymbolicName();
+		relocationStatistics = new RelocationStatistics(symbolicName, relocationJournal);
+		RelocationStatistics.setCurrent(relocationStatistics);
+
+		Dictionary<String, String> properties = new Hashtable<String, String>();
+		properties.put(DebugOptions.LISTENER_SYMBOLICNAME, symbolicName);
+		debugOptionsRegistration = context.registerService(DebugOptionsListener.class, relocationStatistics, properties);
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(relocationStatistics, new ObjectName(RelocationStatistics.OBJECT_NAME));
+		} catch (JMException e) {
+			getLog().log(new Status(IStatus.WARNING, PLUGIN_ID, "Failed to register the relocation statistics MBean", e)); //$NON-NLS-1$
+		}
+	}
+
+	private void stopStatistics() {
+		RelocationStatistics.setCurrent(null);
+		debugOptionsRegistration.unregister();
+		debugOptionsRegistration = null;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(RelocationStatistics.OBJECT_NAME));
+		} catch (JMException e) {
+			// not registered
+		}
+		relocationStatistics = null;
+	}
+
+	/**
+	 * Completes the relocation batch interrupted by a crash, if any.
+	 *
+	 * @param journalFile
+	 *            the journal file of the relocation batches
+	 */
+	private void recoverInterruptedRelocation(File journalFile) {
+		try {
+			int recoveredFiles = RelocationJournal.recover(journalFile);
+			if (recoveredFiles > 0) {
+				getLog().log(new Status(IStatus.INFO, PLUGIN_ID, "Completed an interrupted relocation of " + recoveredFiles + " project(s)")); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		} catch (Exception e) {
+			getLog().log(new Status(IStatus.ERROR, PLUGIN_ID, "Failed to complete an interrupted relocation", e)); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * Returns the shared instance
 	 *
@@ -58,6 +189,122 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the index of the project locations
+	 *
+	 * @return the project location index
+	 */
+	public ProjectLocationIndex getProjectLocationIndex() {
+		return projectLocationIndex;
+	}
+
+	/**
+	 * Returns the journal of the relocation batches
+	 *
+	 * @return the relocation journal
+	 */
+	public RelocationJournal getRelocationJournal() {
+		return relocationJournal;
+	}
+
+	/**
+	 * Returns the snapshots taken before the relocation batches
+	 *
+	 * @return the relocation history
+	 */
+	public RelocationHistory getRelocationHistory() {
+		return relocationHistory;
+	}
+
+	/**
+	 * Returns the pool of the parallel reads of .location files and project directories
+	 *
+	 * @return the shared pool, not to be shut down by the caller
+	 */
+	public ForkJoinPool getSharedPool() {
+		return sharedPool;
+	}
+
+	/**
+	 * Returns the references between the closed projects of the workspace. Only the .location files
+	 * changed since the previous call are read again, in a pool shared by all calls.
+	 *
+	 * @param monitor
+	 *            the progress monitor, polled for cancellation
+	 * @return the reference graph of the closed projects
+	 * @throws OperationCanceledException
+	 *             if the monitor was canceled, the previous graph is kept then
+	 */
+	public ReferenceGraph updateReferenceGraph(IProgressMonitor monitor) {
+		final Map<String, File> locationFiles = new HashMap<String, File>();
+		for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+			if (!project.isOpen()) {
+				locationFiles.put(project.getName(), LocationUpdater.getProjectLocationFile(project).toFile());
+			}
+		}
+		final ReferenceGraph previousGraph;
+		synchronized (this) {
+			previousGraph = referenceGraph;
+		}
+
+		final ForkJoinPool pool = sharedPool;
+		final AtomicBoolean canceled = new AtomicBoolean(false);
+		// the update runs in the pool itself, this thread only polls for cancellation
+		Future<ReferenceGraph> future = pool.submit(new Callable<ReferenceGraph>() {
+			@Override
+			public ReferenceGraph call() {
+				return previousGraph.update(locationFiles, pool, canceled);
+			}
+		});
+		ReferenceGraph graph;
+		try {
+			while (true) {
+				if (monitor.isCanceled()) {
+					canceled.set(true);
+				}
+				try {
+					graph = future.get(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					break;
+				} catch (TimeoutException e) {
+					// poll again
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			canceled.set(true);
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			// ReferenceGraph treats unreadable files as without references
+			throw new IllegalStateException(e.getCause());
+		}
+		if (canceled.get()) {
+			// an incomplete graph would hide references on the next update
+			throw new OperationCanceledException();
+		}
+		synchronized (this) {
+			referenceGraph = graph;
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns the file the index of the discovered projects is kept in
+	 *
+	 * @return the discovery index file
+	 */
+	public File getDiscoveryIndexFile() {
+		return getStateLocation().append(DISCOVERY_INDEX_FILE_NAME).toFile();
+	}
+
+	/**
+	 * Returns the I/O statistics of the relocations
+	 *
+	 * @return the relocation statistics
+	 */
+	public RelocationStatistics getRelocationStatistics() {
+		return relocationStatistics;
+	}
+
 	/**
 	 * Returns an image descriptor for the image file at the given plug-in
 	 * relative path
@@ -0,0 +1,180 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PlatformUI;
+
+import com.github.eclipse.projectlocationupdater.core.PathResolutionCache;
+import com.github.eclipse.projectlocationupdater.core.RelocationGuesser;
+import com.github.eclipse.projectlocationupdater.core.RelocationGuesser.Guess;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+import com.github.eclipse.projectlocationupdater.preferences.PreferenceConstants;
+
+/**
+ * A background {@link Job} detecting closed projects whose location no longer exists.
+ * <p>
+ * The .location files are read in parallel through the {@link ProjectLocationIndex}. The missing
+ * projects are searched below the configured search roots (see {@link RelocationGuesser}). If any
+ * are missing, a dialog summarizes the guessed new roots and relocates the projects found in one
+ * {@link LocationUpdateJob} when confirmed.
+ *
+ * @author Max Gensthaler
+ */
+public class BrokenLocationCheckJob extends Job {
+	/** The maximum number of unresolved projects listed by the dialog. */
+	private static final int MAX_LISTED_PROJECTS = 20;
+
+	/**
+	 * Creates a new instance of this class.
+	 */
+	public BrokenLocationCheckJob() {
+		super(Messages.job_checkLocations_name);
+		setSystem(true);
+		setPriority(DECORATE);
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		List<IProject> projects = new ArrayList<IProject>();
+		for (IProject project : root.getProjects()) {
+			// projects in the workspace directory move with it
+			if (!project.isOpen() && project.getRawLocation() != null) {
+				projects.add(project);
+			}
+		}
+		// the progress is not reported from the worker threads
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+		String searchRoots = Activator.getDefault().getPreferenceStore().getString(PreferenceConstants.SEARCH_ROOTS);
+		// the locations and candidates usually share their ancestors
+		final PathResolutionCache resolutions = new PathResolutionCache();
+		final RelocationGuesser guesser = new RelocationGuesser(searchRoots.isEmpty() ? new ArrayList<String>() : Arrays.asList(searchRoots.split(File.pathSeparator)), resolutions);
+		final ProjectLocationIndex index = Activator.getDefault().getProjectLocationIndex();
+		final AtomicInteger missingCount = new AtomicInteger();
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(projects.size());
+		for (final IProject project : projects) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					if (!monitor.isCanceled()) {
+						checkLocation(project, index, resolutions, guesser, missingCount);
+					}
+					return null;
+				}
+			});
+		}
+		ExecutorService executor = WorkerPools.newFixedThreadPool(projects.size());
+		try {
+			executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Status.CANCEL_STATUS;
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+		}
+		if (monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+
+		if (missingCount.get() > 0) {
+			showResult(missingCount.get(), guesser.getGuesses(), guesser.getUnresolvedProjects());
+		}
+		return Status.OK_STATUS;
+	}
+
+	private static void checkLocation(IProject project, ProjectLocationIndex index, PathResolutionCache resolutions, RelocationGuesser guesser, AtomicInteger missingCount) {
+		String location;
+		try {
+			location = index.getProjectLocation(project);
+		} catch (IOException e) {
+			// not a broken location but a broken .location file, nothing to guess from
+			return;
+		}
+		if (!resolutions.isDirectory(location)) {
+			missingCount.incrementAndGet();
+			guesser.add(project.getName(), location);
+		}
+	}
+
+	private static void showResult(int missingCount, List<Guess> guesses, List<String> unresolvedProjects) {
+		final StringBuilder summary = new StringBuilder(NLS.bind(Messages.startup_brokenLocations_summary, Integer.valueOf(missingCount)));
+		final Map<IProject, String> newLocations = new HashMap<IProject, String>();
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (Guess guess : guesses) {
+			summary.append('\n').append(NLS.bind(Messages.startup_brokenLocations_guess,
+					new Object[] { Integer.valueOf(guess.getNewLocations().size()), guess.getOldRoot(), guess.getNewRoot() }));
+			for (Map.Entry<String, String> newLocation : guess.getNewLocations().entrySet()) {
+				newLocations.put(root.getProject(newLocation.getKey()), newLocation.getValue());
+			}
+		}
+		if (!unresolvedProjects.isEmpty()) {
+			List<String> listed = unresolvedProjects.size() > MAX_LISTED_PROJECTS ? unresolvedProjects.subList(0, MAX_LISTED_PROJECTS) : unresolvedProjects;
+			String names = listed.toString();
+			if (listed.size() < unresolvedProjects.size()) {
+				names += " ..."; //$NON-NLS-1$
+			}
+			summary.append('\n').append(NLS.bind(Messages.startup_brokenLocations_unresolved, Integer.valueOf(unresolvedProjects.size()), names));
+		}
+
+		final IWorkbench workbench = PlatformUI.getWorkbench();
+		final Display display = workbench.getDisplay();
+		if (display.isDisposed()) {
+			return;
+		}
+		display.asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				IWorkbenchWindow window = workbench.getActiveWorkbenchWindow();
+				Shell shell = window != null ? window.getShell() : display.getActiveShell();
+				confirmAndRelocate(shell, summary.toString(), newLocations);
+			}
+		});
+	}
+
+	private static void confirmAndRelocate(Shell shell, String summary, final Map<IProject, String> newLocations) {
+		if (newLocations.isEmpty()) {
+			MessageDialog.openInformation(shell, Messages.startup_brokenLocations_dialog_title, summary);
+			return;
+		}
+		String question = summary + "\n\n" + NLS.bind(Messages.startup_brokenLocations_question, Integer.valueOf(newLocations.size())); //$NON-NLS-1$
+		if (!MessageDialog.openQuestion(shell, Messages.startup_brokenLocations_dialog_title, question)) {
+			return;
+		}
+		Collection<IProject> projects = newLocations.keySet();
+		Job job = new LocationUpdateJob(projects) {
+			@Override
+			protected void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException {
+				LocationUpdater.writeProjectLocation(project, new Path(newLocations.get(project)), batch);
+			}
+		};
+		job.schedule();
+	}
+}
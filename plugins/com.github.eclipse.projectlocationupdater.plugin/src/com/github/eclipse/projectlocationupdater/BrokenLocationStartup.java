@@ -0,0 +1,20 @@
+package com.github.eclipse.projectlocationupdater;
+
+import org.eclipse.ui.IStartup;
+
+import com.github.eclipse.projectlocationupdater.preferences.PreferenceConstants;
+
+/**
+ * Checks the locations of the closed projects after the workbench started, if enabled in the
+ * preferences. The check runs in the background, see {@link BrokenLocationCheckJob}.
+ *
+ * @author Max Gensthaler
+ */
+public class BrokenLocationStartup implements IStartup {
+	@Override
+	public void earlyStartup() {
+		if (Activator.getDefault().getPreferenceStore().getBoolean(PreferenceConstants.CHECK_LOCATIONS_AT_STARTUP)) {
+			new BrokenLocationCheckJob().schedule();
+		}
+	}
+}
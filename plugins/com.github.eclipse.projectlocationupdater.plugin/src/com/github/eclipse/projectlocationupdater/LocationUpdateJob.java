@@ -0,0 +1,338 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.core.RelocationHistory;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * A {@link WorkspaceJob} to update the locations of a batch of projects.
+ * <p>
+ * The projects are processed in parallel on a bounded pool of worker threads. Each worker holds
+ * the project as scheduling rule while updating its location. Failures do not abort the batch,
+ * they are collected and reported as one summary status at the end. A snapshot of the .location
+ * files is taken before, when the projects are closed already, see {@link RelocationHistory}.
+ * <p>
+ * The writes of the job are logged to a {@link RelocationJournal.Batch} of its own, which is
+ * committed when all workers are done, before any project is reopened. Jobs running concurrently
+ * do not share their batches.
+ * <p>
+ * Open projects are closed in one workspace operation before their locations are written and
+ * reopened in another one afterwards, so their resource deltas and the following build are
+ * coalesced into a single pass instead of one per project.
+ *
+ * @author Max Gensthaler
+ */
+public abstract class LocationUpdateJob extends WorkspaceJob {
+	/** Interval in milliseconds to check the progress monitor for cancellation. */
+	private static final long CANCEL_POLL_INTERVAL = 100;
+
+	private final Collection<IProject> projects;
+	/** The projects this job closed before updating them, replaced on each run. */
+	private volatile Set<IProject> closedByJob = Collections.emptySet();
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param projects
+	 *            The projects to update (input, unmodifiable).
+	 */
+	public LocationUpdateJob(Collection<IProject> projects) {
+		super(Messages.job_updateLocations_name);
+		this.projects = projects;
+		setUser(true);
+	}
+
+	/**
+	 * Updates the location of a single project. Called concurrently from the worker threads, while
+	 * the worker holds the project as scheduling rule.
+	 *
+	 * @param project
+	 *            The project to update.
+	 * @param batch
+	 *            The journal batch of this job to log the write to.
+	 * @throws IOException
+	 *             Error reading or writing the project location file
+	 */
+	protected abstract void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException;
+
+	/**
+	 * @param project
+	 *            A project of this job.
+	 * @return <code>true</code> if this job closed the project before updating it, which wrote
+	 *         its .location file.
+	 */
+	protected boolean isClosedByJob(IProject project) {
+		return closedByJob.contains(project);
+	}
+
+	@Override
+	public IStatus runInWorkspace(IProgressMonitor monitor) {
+		int projectCount = projects.size();
+		List<IProject> openProjects = getOpenProjects(projects);
+		monitor.beginTask(getName(), projectCount + 2 * openProjects.size());
+
+		List<IProject> closedProjects = new ArrayList<IProject>(openProjects.size());
+		try {
+			closeProjects(openProjects, closedProjects, new SubProgressMonitor(monitor, openProjects.size()));
+		} catch (CoreException e) {
+			// nothing is written, the projects closed so far are reopened as they were
+			MultiStatus failures = new MultiStatus(Activator.PLUGIN_ID, IStatus.ERROR, NLS.bind(Messages.job_updateLocations_closeFailed, e.getMessage()), e);
+			reopenProjects(closedProjects, failures, new SubProgressMonitor(monitor, openProjects.size()));
+			monitor.done();
+			return failures;
+		}
+		closedByJob = new HashSet<IProject>(closedProjects);
+		// closing may rewrite the .location files of the open projects, so the snapshot follows it
+		captureSnapshot();
+
+		// all writes of this job belong to one journal batch, applied together when it is committed
+		RelocationJournal.Batch batch = Activator.getDefault().getRelocationJournal().beginBatch();
+
+		final AtomicBoolean canceled = new AtomicBoolean(false);
+		MultiStatus failures = new MultiStatus(Activator.PLUGIN_ID, IStatus.OK, "", null); //$NON-NLS-1$
+		ExecutorService executor = WorkerPools.newFixedThreadPool(projectCount);
+		try {
+			CompletionService<IStatus> completionService = new ExecutorCompletionService<IStatus>(executor);
+			for (IProject project : projects) {
+				completionService.submit(new UpdateLocationTask(project, batch, canceled));
+			}
+
+			int pending = projectCount;
+			while (pending > 0) {
+				if (monitor.isCanceled()) {
+					// let the queued tasks run out without touching their projects
+					canceled.set(true);
+				}
+				Future<IStatus> future = completionService.poll(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (future == null) {
+					continue;
+				}
+				pending--;
+				IStatus status = future.get();
+				if (!status.isOK() && status.getSeverity() != IStatus.CANCEL) {
+					failures.add(status);
+				}
+				monitor.worked(1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			canceled.set(true);
+		} catch (ExecutionException e) {
+			// UpdateLocationTask catches its own failures
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
+			commit(batch, executor, failures);
+			// the locations may have been read again between logging and committing them
+			for (IProject project : projects) {
+				Activator.getDefault().getProjectLocationIndex().invalidate(project);
+			}
+			// also after a cancellation, the projects were open before
+			reopenProjects(closedProjects, failures, new SubProgressMonitor(monitor, openProjects.size()));
+			monitor.done();
+		}
+
+		if (!failures.isOK()) {
+			String summary = NLS.bind(Messages.job_updateLocations_summary, Integer.valueOf(failures.getChildren().length), Integer.valueOf(projectCount));
+			return new MultiStatus(Activator.PLUGIN_ID, IStatus.ERROR, failures.getChildren(), summary, null);
+		}
+		return canceled.get() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * @param projects
+	 *            Projects (input, unmodifiable).
+	 * @return The open ones of the given projects.
+	 */
+	public static List<IProject> getOpenProjects(Collection<IProject> projects) {
+		List<IProject> openProjects = new ArrayList<IProject>();
+		for (IProject project : projects) {
+			if (project.isOpen()) {
+				openProjects.add(project);
+			}
+		}
+		return openProjects;
+	}
+
+	/**
+	 * Closes the projects in one workspace operation. Used by all operations writing the .location
+	 * files of open projects, which are reopened by {@link #reopenProjects} afterwards.
+	 *
+	 * @param openProjects
+	 *            The projects to close (input, unmodifiable).
+	 * @param closedProjects
+	 *            The projects closed (output), also if closing one of them fails.
+	 * @param monitor
+	 *            The progress monitor.
+	 * @throws CoreException
+	 *             Error closing a project, the following projects are left open
+	 */
+	public static void closeProjects(final List<IProject> openProjects, final List<IProject> closedProjects, IProgressMonitor monitor) throws CoreException {
+		if (openProjects.isEmpty()) {
+			monitor.done();
+			return;
+		}
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor runMonitor) throws CoreException {
+				runMonitor.beginTask("", openProjects.size()); //$NON-NLS-1$
+				try {
+					for (IProject project : openProjects) {
+						project.close(new SubProgressMonitor(runMonitor, 1));
+						closedProjects.add(project);
+					}
+				} finally {
+					runMonitor.done();
+				}
+			}
+		}, workspace.getRoot(), IWorkspace.AVOID_UPDATE, monitor);
+	}
+
+	/**
+	 * Reopens the projects in one workspace operation, so the resource deltas of all of them are
+	 * broadcast and built together. A project failing to open does not keep the others closed.
+	 *
+	 * @param closedProjects
+	 *            The projects to reopen (input, unmodifiable).
+	 * @param failures
+	 *            The failures of the job (output).
+	 * @param monitor
+	 *            The progress monitor.
+	 */
+	public static void reopenProjects(final List<IProject> closedProjects, final MultiStatus failures, IProgressMonitor monitor) {
+		if (closedProjects.isEmpty()) {
+			monitor.done();
+			return;
+		}
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		try {
+			workspace.run(new IWorkspaceRunnable() {
+				@Override
+				public void run(IProgressMonitor runMonitor) {
+					runMonitor.beginTask("", closedProjects.size()); //$NON-NLS-1$
+					try {
+						for (IProject project : closedProjects) {
+							try {
+								// the contents are refreshed in the background at the new location
+								project.open(IResource.BACKGROUND_REFRESH, new SubProgressMonitor(runMonitor, 1));
+							} catch (CoreException e) {
+								failures.add(new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.job_updateLocations_reopenFailed, project.getName(),
+										e.getMessage()), e));
+							}
+						}
+					} finally {
+						runMonitor.done();
+					}
+				}
+			}, workspace.getRoot(), IWorkspace.AVOID_UPDATE, monitor);
+		} catch (CoreException e) {
+			failures.add(e.getStatus());
+		}
+	}
+
+	/**
+	 * Keeps the current content of the .location files in the {@link RelocationHistory}, so the
+	 * batch can be undone. The batch runs even if the snapshot fails.
+	 */
+	private void captureSnapshot() {
+		List<File> locationFiles = new ArrayList<File>(projects.size());
+		for (IProject project : projects) {
+			locationFiles.add(LocationUpdater.getProjectLocationFile(project).toFile());
+		}
+		try {
+			Activator.getDefault().getRelocationHistory().capture(locationFiles, getName());
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to take a snapshot of the project locations, the relocation cannot be undone", e)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Commits the journal batch when the running workers are done.
+	 */
+	private static void commit(RelocationJournal.Batch batch, ExecutorService executor, MultiStatus failures) {
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		long start = RelocationStatistics.start();
+		try {
+			int files = batch.commit();
+			RelocationStatistics.stop(Phase.COMMIT, start, Integer.valueOf(files));
+		} catch (IOException e) {
+			RelocationStatistics.failed(Phase.COMMIT, start, batch, e);
+			failures.add(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * Updates the location of one project while holding its scheduling rule.
+	 */
+	private class UpdateLocationTask implements Callable<IStatus> {
+		private final IProject project;
+		private final RelocationJournal.Batch batch;
+		private final AtomicBoolean canceled;
+
+		public UpdateLocationTask(IProject project, RelocationJournal.Batch batch, AtomicBoolean canceled) {
+			this.project = project;
+			this.batch = batch;
+			this.canceled = canceled;
+		}
+
+		@Override
+		public IStatus call() {
+			if (canceled.get()) {
+				return Status.CANCEL_STATUS;
+			}
+
+			IJobManager jobManager = Job.getJobManager();
+			jobManager.beginRule(project, null);
+			try {
+				updateLocation(project, batch);
+				return Status.OK_STATUS;
+			} catch (IOException e) {
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.job_updateLocations_failed, project.getName(), e.getMessage()), e);
+			} catch (RuntimeException e) {
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.job_updateLocations_failed, project.getName(), e.toString()), e);
+			} finally {
+				jobManager.endRule(project);
+			}
+		}
+	}
+}
@@ -1,37 +1,35 @@
 package com.github.eclipse.projectlocationupdater;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Collections;
 
-import org.eclipse.core.internal.localstore.ILocalStoreConstants;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRecords;
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.core.WorkspaceMetadata;
+
 /**
  * A utility class to read/write the location of a project.
- *
- * "restriction" warnings are suppressed: we need do access Eclipse internal
- * constants.
+ * <p>
+ * The file format is handled by the OSGi-free core library, see {@link LocationFile}. Locations
+ * relative to a workspace path variable are read resolved by the current value of the variable.
  *
  * @author Max Gensthaler
  * @author Thomas Calmant
  */
-@SuppressWarnings("restriction")
 public abstract class LocationUpdater {
-    /** URI prefix in location file. */
-    private static final String URI_PREFIX = "URI//"; //$NON-NLS-1$
-
-    /** URI prefix and file protocol prefix. */
-    private static final String FILE_URI_PREFIX = URI_PREFIX + "file:"; //$NON-NLS-1$
-
     /** Constant path to the workspace projects locations storage. */
-    private static final IPath WORKSPACE_PROJECT_SETTINGS_RELPATH = new Path(".metadata/.plugins/org.eclipse.core.resources/.projects"); //$NON-NLS-1$
+    private static final IPath WORKSPACE_PROJECT_SETTINGS_RELPATH = new Path(WorkspaceMetadata.PROJECTS_RELPATH);
 
     /** <code>true</code> if we're running on Windows, else <code>false</code>. */
     private static final boolean OS_IS_WINDOWS = System.getProperty("os.name").toLowerCase().indexOf("windows") >= 0; //$NON-NLS-1$  //$NON-NLS-2$
@@ -47,13 +45,13 @@ public abstract class LocationUpdater {
 	 *            Any project
 	 * @return An IPath to its .location file
 	 */
-    private static IPath getProjectLocationFile(final IProject project) {
+    static IPath getProjectLocationFile(final IProject project) {
 		// Get the workspace root path
         final IPath workspaceLocation = project.getWorkspace().getRoot().getLocation();
 
 		// Forge the location file name
 		return workspaceLocation.append(WORKSPACE_PROJECT_SETTINGS_RELPATH)
-                .append(project.getName()).append(".location"); //$NON-NLS-1$
+                .append(project.getName()).append(WorkspaceMetadata.LOCATION_FILE_NAME);
 	}
 
 	/**
@@ -66,31 +64,47 @@ public abstract class LocationUpdater {
 	 *             Error reading the location file
 	 */
     private static String readProjectLocation(final IPath projectLocationFile) throws IOException {
-		DataInputStream in = null;
-		try {
-			// Read the location file
-            in = new DataInputStream(new FileInputStream(projectLocationFile.toFile()));
-
-			// Ignore the begin chunk
-			in.skipBytes(ILocalStoreConstants.BEGIN_CHUNK.length);
-
-			// Parse the location
-            String projectLocation = in.readUTF();
-            if (projectLocation.startsWith(FILE_URI_PREFIX)) {
-                projectLocation = projectLocation.substring(FILE_URI_PREFIX.length());
-                if (OS_IS_WINDOWS && projectLocation.matches("^/[a-zA-Z]:")) { //$NON-NLS-1$
-					// remove trailing "/" from absolute path on windows
-                    projectLocation = projectLocation.substring(1);
-				}
-			}
-
-            return projectLocation;
-		} finally {
-			// Be nice
-			if (in != null) {
-				in.close();
-			}
-		}
+        return toProjectLocation(read(projectLocationFile.toFile()));
+    }
+
+    /**
+     * Reads a project location file, recording the {@link RelocationStatistics}.
+     *
+     * @param projectLocationFile
+     *            The project location file
+     * @return The parsed location file
+     * @throws IOException
+     *             Error reading the location file
+     */
+    private static LocationFile read(final File projectLocationFile) throws IOException {
+        final long start = RelocationStatistics.start();
+        try {
+            final LocationFile locationFile = LocationFile.read(projectLocationFile);
+            RelocationStatistics.fileRead(start, projectLocationFile, locationFile.getSize());
+            return locationFile;
+        } catch (IOException e) {
+            RelocationStatistics.failed(Phase.READ, start, projectLocationFile, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Extracts the project location from the location record of a location file.
+     *
+     * @param locationFile
+     *            A parsed project location file
+     * @return The value of the project location
+     */
+    private static String toProjectLocation(final LocationFile locationFile) {
+        final String record = locationFile.getLocation();
+        if (LocationRecords.getVariable(record) != null) {
+            final URI resolved = ResourcesPlugin.getWorkspace().getPathVariableManager().resolveURI(URI.create(record.substring(LocationRecords.URI_PREFIX.length())));
+            if (resolved.isAbsolute()) {
+                return LocationRecords.toLocation(LocationRecords.URI_PREFIX + resolved);
+            }
+            // undefined variable, shown as it is
+        }
+        return LocationRecords.toLocation(record);
 	}
 
 	/**
@@ -108,7 +122,7 @@ public abstract class LocationUpdater {
 	}
 
 	/**
-     * Updates a substring of the location.
+     * Updates the prefix of the location, see {@link LocationRewriter}.
 	 *
      * @param project
 	 *            Project to be updated
@@ -116,27 +130,155 @@ public abstract class LocationUpdater {
 	 *            Prefix path to be replaced
      * @param newPrefix
 	 *            Replacement path
+     * @param batch
+     *            The journal batch to log the write to, or <code>null</code> to write right away
 	 * @throws IOException
 	 *             Error reading or writing the project location file
 	 */
-    public static void updateLocationSubstring(final IProject project, String previousPrefix, String newPrefix) throws IOException {
-		// Read the previous location
-        IPath projectLocationFile = getProjectLocationFile(project);
-		final String previousLocation = readProjectLocation(projectLocationFile);
+    public static void updateLocationSubstring(final IProject project, String previousPrefix, String newPrefix, final RelocationJournal.Batch batch) throws IOException {
+        updateLocation(project, LocationRewriter.compile(Collections.singletonMap(previousPrefix, newPrefix)), batch);
+    }
 
-		// Normalize paths
-		previousPrefix.replace('\\', '/');
-		newPrefix.replace('\\', '/');
-		if (previousPrefix.endsWith("/") && !newPrefix.endsWith("/")) { //$NON-NLS-1$ //$NON-NLS-2$
-			newPrefix = newPrefix + "/"; //$NON-NLS-1$
-		}
+	/**
+     * Rewrites the location by the matching rule with the longest prefix.
+	 *
+     * @param project
+	 *            Project to be updated
+     * @param rewriter
+	 *            The compiled rules, see {@link LocationRewriter}
+     * @param batch
+     *            The journal batch to log the write to, or <code>null</code> to write right away
+     * @return <code>true</code> if a rule matched the location
+	 * @throws IOException
+	 *             Error reading or writing the project location file
+	 */
+    public static boolean updateLocation(final IProject project, final LocationRewriter rewriter, final RelocationJournal.Batch batch) throws IOException {
+		// Read the previous location
+        File projectLocationFile = getProjectLocationFile(project).toFile();
+        final LocationFile locationFile = read(projectLocationFile);
+		final String previousLocation = toProjectLocation(locationFile);
 
-		// Replace the substring
-		final String newLocationStr = previousLocation.replace(previousPrefix, newPrefix);
+        final String newLocationStr = rewriter.rewrite(previousLocation);
+        if (newLocationStr == null) {
+            return false;
+        }
 
-        writeProjectLocation(projectLocationFile.toFile(), new Path(newLocationStr));
+        writeProjectLocation(locationFile, projectLocationFile, new Path(newLocationStr), batch);
+        invalidateIndex(project);
+        return true;
 	}
 
+    /**
+     * Reads the location file of a project, to be written later on by
+     * {@link #writeProjectLocation(IProject, LocationFile, String, RelocationJournal.Batch)}.
+     *
+     * @param project
+     *            Project to locate
+     * @return The parsed location file
+     * @throws IOException
+     *             Error reading the location file
+     */
+    static LocationFile readLocationFile(final IProject project) throws IOException {
+        return read(getProjectLocationFile(project).toFile());
+    }
+
+    /**
+     * Extracts the project location from a location file read by
+     * {@link #readLocationFile(IProject)}.
+     *
+     * @param locationFile
+     *            A parsed project location file
+     * @return The value of the project location
+     */
+    static String getProjectLocation(final LocationFile locationFile) {
+        return toProjectLocation(locationFile);
+    }
+
+    /**
+     * Checks whether writing a new location would leave a location file untouched.
+     *
+     * @param locationFile
+     *            A parsed project location file
+     * @param newLocation
+     *            The new location of the project
+     * @return <code>true</code> if the location record would not change
+     */
+    static boolean isUnchanged(final LocationFile locationFile, final String newLocation) {
+        if (LocationRecords.getVariable(locationFile.getLocation()) != null) {
+            // keep the location relative to the variable if it resolves to the new location
+            return new Path(toProjectLocation(locationFile)).equals(new Path(newLocation));
+        }
+        return LocationRecords.toRecord(new Path(newLocation).toFile()).equals(locationFile.getLocation());
+    }
+
+    /**
+     * Reads the path variable the location of a project is relative to.
+     *
+     * @param project
+     *            Project to locate
+     * @return The name of the path variable, or <code>null</code> if the location is absolute
+     * @throws IOException
+     *             Error reading the location file
+     */
+    public static String readLocationVariable(final IProject project) throws IOException {
+        return LocationRecords.getVariable(readLocationFile(project).getLocation());
+    }
+
+    /**
+     * Rewrites the absolute location of a project to be relative to a path variable. Moving the
+     * variable then moves the project without rewriting its location file again.
+     *
+     * @param project
+     *            Project to be updated
+     * @param variable
+     *            The name of the path variable
+     * @param variableLocation
+     *            The current value of the path variable
+     * @param batch
+     *            The journal batch to log the write to, or <code>null</code> to write right away
+     * @return <code>true</code> if the location was rewritten, <code>false</code> if it is not
+     *         located below the variable location or not an absolute file location
+     * @throws IOException
+     *             Error reading or writing the project location file
+     */
+    public static boolean makeRelative(final IProject project, final String variable, final IPath variableLocation, final RelocationJournal.Batch batch) throws IOException {
+        File projectLocationFile = getProjectLocationFile(project).toFile();
+        final LocationFile locationFile = read(projectLocationFile);
+        final String record = locationFile.getLocation();
+        if (!LocationRecords.isFileRecord(record)) {
+            return false;
+        }
+
+        final IPath location = new Path(new File(URI.create(record.substring(LocationRecords.URI_PREFIX.length()))).getPath());
+        if (!variableLocation.isPrefixOf(location)) {
+            return false;
+        }
+        final IPath relativePath = location.removeFirstSegments(variableLocation.segmentCount()).setDevice(null).makeRelative().removeTrailingSeparator();
+
+        writeLocationRecord(locationFile, projectLocationFile, LocationRecords.toVariableRecord(variable, relativePath.toString()), batch);
+        invalidateIndex(project);
+        return true;
+    }
+
+    /**
+     * Sets a project location by writing a location file read before, without reading it again.
+     *
+     * @param project
+     *            The project to change the location of
+     * @param locationFile
+     *            The location file of the project read by {@link #readLocationFile(IProject)}
+     * @param newLocation
+     *            The new location
+     * @param batch
+     *            The journal batch to log the write to, or <code>null</code> to write right away
+     * @throws IOException
+     *             Error writing the location file
+     */
+    static void writeProjectLocation(final IProject project, final LocationFile locationFile, final String newLocation, final RelocationJournal.Batch batch) throws IOException {
+        writeProjectLocation(locationFile, getProjectLocationFile(project).toFile(), new Path(newLocation), batch);
+        invalidateIndex(project);
+    }
+
 	/**
      * Sets a project location by writing the content of a project location
      * file.
@@ -145,76 +287,69 @@ public abstract class LocationUpdater {
      *            The project to change the location of
      * @param newLocation
      *            The path of the new location
+     * @param batch
+     *            The journal batch to log the write to, or <code>null</code> to write right away
 	 * @throws IOException
 	 *             Error reading or writing the location file
 	 */
-    public static void writeProjectLocation(final IProject project, final IPath newLocation) throws IOException {
+    public static void writeProjectLocation(final IProject project, final IPath newLocation, final RelocationJournal.Batch batch) throws IOException {
         File projectLocationFile = getProjectLocationFile(project).toFile();
 
-        writeProjectLocation(projectLocationFile, newLocation);
+        writeProjectLocation(projectLocationFile, newLocation, batch);
+        invalidateIndex(project);
+    }
+
+    /**
+     * Drops the project from the {@link ProjectLocationIndex} after its location was written.
+     *
+     * @param project
+     *            The project whose location was written
+     */
+    private static void invalidateIndex(final IProject project) {
+        final Activator activator = Activator.getDefault();
+        if (activator != null) {
+            activator.getProjectLocationIndex().invalidate(project);
+        }
+    }
+
+    private static void writeProjectLocation(final File projectLocationFile, final IPath newLocation, final RelocationJournal.Batch batch) throws IOException {
+        writeProjectLocation(read(projectLocationFile), projectLocationFile, newLocation, batch);
     }
 
-    private static void writeProjectLocation(final File projectLocationFile, final IPath newLocation) throws FileNotFoundException, IOException {
-		// Keep existing data
-		String[] referenceNames;
-
-		// Read the existing file
-		DataInputStream in = null;
-		try {
-            in = new DataInputStream(new FileInputStream(projectLocationFile));
-
-			// Ignore the begin chunk
-			in.skipBytes(ILocalStoreConstants.BEGIN_CHUNK.length);
-
-			// Get the previous project location
-			final String projectLocationStr = in.readUTF();
-			assert projectLocationStr.startsWith(URI_PREFIX);
-
-			// Store references
-			final int numRefs = in.readInt();
-			referenceNames = new String[numRefs];
-			for (int i = 0; i < numRefs; i++) {
-				referenceNames[i] = in.readUTF();
-			}
-
-			// Ignore the end chunk
-			in.skipBytes(ILocalStoreConstants.END_CHUNK.length);
-		} finally {
-			// Always close the file
-			if (in != null) {
-				in.close();
-			}
-		}
+    private static void writeProjectLocation(final LocationFile locationFile, final File projectLocationFile, final IPath newLocation, final RelocationJournal.Batch batch) throws IOException {
+        assert locationFile.getLocation().startsWith(LocationRecords.URI_PREFIX);
 
+        if (isUnchanged(locationFile, newLocation.toString())) {
+            // nothing to do, keep the file untouched
+            return;
+        }
+        writeLocationRecord(locationFile, projectLocationFile, LocationRecords.toRecord(newLocation.toFile()), batch);
+    }
+
+    private static void writeLocationRecord(final LocationFile locationFile, final File projectLocationFile, final String newLocationStr, final RelocationJournal.Batch batch) throws IOException {
         if (projectLocationFile.isHidden() && OS_IS_WINDOWS) {
-            // On windows the locationFile might be hidden
-            Runtime.getRuntime().exec("attrib -H \"" + projectLocationFile.getAbsolutePath() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+            // On windows the locationFile might be hidden, it must be visible before it is written
+            final long attribStart = RelocationStatistics.start();
+            final Process attrib = Runtime.getRuntime().exec("attrib -H \"" + projectLocationFile.getAbsolutePath() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+            try {
+                attrib.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while unhiding " + projectLocationFile); //$NON-NLS-1$
+            }
+            RelocationStatistics.stop(Phase.ATTRIB, attribStart, projectLocationFile);
         }
 
-		// Write the new content
-		DataOutputStream out = null;
-		try {
-            out = new DataOutputStream(new FileOutputStream(projectLocationFile));
-
-			// Write the begin chunk
-			out.write(ILocalStoreConstants.BEGIN_CHUNK);
-
-			// Write the new location
-            out.writeUTF(URI_PREFIX + newLocation.toFile().toURI().toString());
-
-			// Write references
-			out.writeInt(referenceNames.length);
-			for (final String referenceName : referenceNames) {
-				out.writeUTF(referenceName);
-			}
-
-			// Write the end chunk
-			out.write(ILocalStoreConstants.END_CHUNK);
-			out.flush();
-		} finally {
-			if (out != null) {
-				out.close();
-			}
-		}
+        final long start = RelocationStatistics.start();
+        try {
+            // Write the new location, the references are copied verbatim
+            final int bytes = locationFile.write(newLocationStr, batch);
+            if (bytes >= 0) {
+                RelocationStatistics.fileWritten(start, projectLocationFile, bytes);
+            }
+        } catch (IOException e) {
+            RelocationStatistics.failed(Phase.WRITE, start, projectLocationFile, e);
+            throw e;
+        }
 	}
 }
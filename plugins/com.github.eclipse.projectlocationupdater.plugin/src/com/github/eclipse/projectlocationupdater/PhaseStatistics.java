@@ -0,0 +1,64 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A snapshot of the latencies recorded for one {@link RelocationStatistics.Phase}.
+ * <p>
+ * The histogram has one bucket per power of two microseconds: bucket 0 counts the durations below
+ * 1 &micro;s, bucket <i>i</i> the durations from 2<sup><i>i</i>-1</sup> to 2<sup><i>i</i></sup>
+ * &micro;s, the last bucket all longer ones.
+ *
+ * @author Max Gensthaler
+ */
+public class PhaseStatistics {
+	private final String name;
+	private final long count;
+	private final long totalMicros;
+	private final long maxMicros;
+	private final long[] histogram;
+
+	@ConstructorProperties({ "name", "count", "totalMicros", "maxMicros", "histogram" })
+	public PhaseStatistics(String name, long count, long totalMicros, long maxMicros, long[] histogram) {
+		this.name = name;
+		this.count = count;
+		this.totalMicros = totalMicros;
+		this.maxMicros = maxMicros;
+		this.histogram = histogram;
+	}
+
+	/**
+	 * @return The name of the phase
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The number of recorded durations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The sum of the recorded durations in microseconds
+	 */
+	public long getTotalMicros() {
+		return totalMicros;
+	}
+
+	/**
+	 * @return The longest recorded duration in microseconds
+	 */
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	/**
+	 * @return The number of durations per bucket, see the class comment
+	 */
+	public long[] getHistogram() {
+		return histogram.clone();
+	}
+}
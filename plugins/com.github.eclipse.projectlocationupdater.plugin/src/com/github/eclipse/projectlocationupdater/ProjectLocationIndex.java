@@ -0,0 +1,115 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+
+/**
+ * An in-memory index of the project locations of the workspace.
+ * <p>
+ * The locations are read from the .location files on first access and kept by project name. An
+ * entry is dropped when the project is opened, closed, moved or deleted, when this plugin writes
+ * its location and when the modification time or size of its .location file changed.
+ *
+ * @author Max Gensthaler
+ */
+public class ProjectLocationIndex implements IResourceChangeListener {
+	/** The resource change events this index has to be registered for. */
+	public static final int EVENT_MASK = IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE;
+
+	/** Project delta flags which indicate that the .location file might have changed. */
+	private static final int INVALIDATING_DELTA_FLAGS = IResourceDelta.OPEN | IResourceDelta.DESCRIPTION | IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO;
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Returns the location of the given project, read from its .location file if not yet indexed.
+	 *
+	 * @param project
+	 *            Project to locate
+	 * @return The value of the project location
+	 * @throws IOException
+	 *             Error reading the location file
+	 */
+	public String getProjectLocation(IProject project) throws IOException {
+		File locationFile = LocationUpdater.getProjectLocationFile(project).toFile();
+		long lastModified = locationFile.lastModified();
+		long length = locationFile.length();
+
+		Entry entry = entries.get(project.getName());
+		if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+			return entry.location;
+		}
+
+		String location = LocationUpdater.readProjectLocation(project);
+		entries.put(project.getName(), new Entry(location, lastModified, length));
+		return location;
+	}
+
+	/**
+	 * Drops the indexed location of the given project.
+	 *
+	 * @param project
+	 *            The project whose location changed
+	 */
+	public void invalidate(IProject project) {
+		entries.remove(project.getName());
+	}
+
+	/**
+	 * Drops all indexed locations.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		switch (event.getType()) {
+		case IResourceChangeEvent.PRE_CLOSE:
+		case IResourceChangeEvent.PRE_DELETE:
+			if (event.getResource() instanceof IProject) {
+				invalidate((IProject) event.getResource());
+			}
+			break;
+		case IResourceChangeEvent.POST_CHANGE:
+			if (event.getDelta() != null) {
+				// project changes are direct children of the workspace root delta
+				for (IResourceDelta delta : event.getDelta().getAffectedChildren()) {
+					if (isInvalidating(delta)) {
+						invalidate((IProject) delta.getResource());
+					}
+				}
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static boolean isInvalidating(IResourceDelta delta) {
+		if (delta.getResource().getType() != IResource.PROJECT) {
+			return false;
+		}
+		return delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & INVALIDATING_DELTA_FLAGS) != 0;
+	}
+
+	private static class Entry {
+		final String location;
+		final long lastModified;
+		final long length;
+
+		Entry(String location, long lastModified, long length) {
+			this.location = location;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.core.LocationFile;
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+import com.github.eclipse.projectlocationupdater.core.PathResolutionCache;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.core.TargetValidator;
+import com.github.eclipse.projectlocationupdater.core.TargetValidator.Problem;
+
+/**
+ * The previous and new location of each project of a relocation, computed without writing
+ * anything.
+ * <p>
+ * The plan keeps the location files it read, so applying it writes exactly the previewed
+ * locations without reading the files or computing the locations again. Only the files of the
+ * projects the relocation closed are read again, since closing a project writes its file.
+ * <p>
+ * The new locations are checked by a {@link TargetValidator} while planning. Projects whose target
+ * exists, but is no valid location of the project, are not written.
+ *
+ * @author Max Gensthaler
+ */
+public class RelocationPlan {
+	/**
+	 * The state of a project in the plan.
+	 */
+	public enum State {
+		/** The location changes. */
+		CHANGED,
+		/** The location changes, but the new location does not exist (yet). */
+		TARGET_MISSING,
+		/** The new location exists, but is no valid location of the project. Not written. */
+		TARGET_INVALID,
+		/** The location stays as it is. */
+		UNCHANGED,
+		/** The location file could not be read. */
+		UNREADABLE
+	}
+
+	private final Map<IProject, Entry> entries;
+
+	private RelocationPlan(Map<IProject, Entry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * Computes the new location of each project, with the same rewrite as
+	 * {@link LocationUpdater#updateLocation(IProject, LocationRewriter)}. Projects not matched by
+	 * any rule are unchanged.
+	 *
+	 * @param projects
+	 *            The projects to relocate (input, unmodifiable).
+	 * @param rewriter
+	 *            The compiled rules.
+	 * @param monitor
+	 *            The progress monitor, checked for cancellation after each project.
+	 * @return The plan
+	 * @throws OperationCanceledException
+	 *             The monitor was canceled
+	 */
+	public static RelocationPlan create(Collection<IProject> projects, LocationRewriter rewriter, IProgressMonitor monitor) {
+		monitor.beginTask("", projects.size() + 1); //$NON-NLS-1$
+		try {
+			Map<IProject, Entry> entries = new LinkedHashMap<IProject, Entry>(projects.size() * 4 / 3 + 1);
+			for (IProject project : projects) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				entries.put(project, createEntry(project, rewriter));
+				monitor.worked(1);
+			}
+			validateTargets(entries);
+			monitor.worked(1);
+			return new RelocationPlan(entries);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private static Entry createEntry(IProject project, LocationRewriter rewriter) {
+		LocationFile locationFile;
+		try {
+			locationFile = LocationUpdater.readLocationFile(project);
+		} catch (IOException e) {
+			return new Entry(project, null, e.getMessage(), null, State.UNREADABLE, null);
+		}
+		String previousLocation = LocationUpdater.getProjectLocation(locationFile);
+		String newLocation = rewriter.rewrite(previousLocation);
+
+		State state;
+		if (newLocation == null) {
+			newLocation = previousLocation;
+			state = State.UNCHANGED;
+		} else if (LocationUpdater.isUnchanged(locationFile, newLocation)) {
+			state = State.UNCHANGED;
+		} else {
+			state = State.CHANGED;
+		}
+		return new Entry(project, locationFile, previousLocation, newLocation, state, null);
+	}
+
+	/**
+	 * Checks the new locations of the changing entries in parallel and replaces the entries with an
+	 * invalid target.
+	 */
+	private static void validateTargets(Map<IProject, Entry> entries) {
+		Map<String, Entry> changing = new HashMap<String, Entry>();
+		Map<String, String> targets = new HashMap<String, String>();
+		for (Entry entry : entries.values()) {
+			if (entry.state == State.CHANGED) {
+				changing.put(entry.project.getName(), entry);
+				targets.put(entry.project.getName(), entry.newLocation);
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+
+		Map<String, Problem> problems;
+		long start = RelocationStatistics.start();
+		// the new locations usually share their ancestors
+		problems = new TargetValidator(new PathResolutionCache()).validate(targets, Activator.getDefault().getSharedPool());
+		RelocationStatistics.stop(Phase.VALIDATE, start, Integer.valueOf(targets.size()));
+		for (Map.Entry<String, Problem> problem : problems.entrySet()) {
+			Entry entry = changing.get(problem.getKey());
+			entries.put(entry.project, entry.withProblem(problem.getValue()));
+		}
+	}
+
+	/**
+	 * @return All entries of the plan, in project order.
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(new ArrayList<Entry>(entries.values()));
+	}
+
+	/**
+	 * @return The projects whose location is written when the plan is applied.
+	 */
+	public Collection<IProject> getChangedProjects() {
+		List<IProject> projects = new ArrayList<IProject>();
+		for (Entry entry : entries.values()) {
+			if (entry.isChanging()) {
+				projects.add(entry.project);
+			}
+		}
+		return projects;
+	}
+
+	/**
+	 * Counts the entries in the given state.
+	 */
+	public int getCount(State state) {
+		int count = 0;
+		for (Entry entry : entries.values()) {
+			if (entry.state == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the planned location of one project. Does nothing for projects whose location does not
+	 * change.
+	 *
+	 * @param project
+	 *            A project of the plan
+	 * @param closed
+	 *            <code>true</code> if the project was closed for the relocation, whether or not it
+	 *            was open while planning
+	 * @param batch
+	 *            The journal batch to log the write to
+	 * @throws IOException
+	 *             Error writing the location file
+	 */
+	public void apply(IProject project, boolean closed, RelocationJournal.Batch batch) throws IOException {
+		Entry entry = entries.get(project);
+		if (entry == null || !entry.isChanging()) {
+			return;
+		}
+		if (closed) {
+			// the file was written again when the project was closed for the relocation
+			LocationUpdater.writeProjectLocation(project, new Path(entry.newLocation), batch);
+		} else {
+			LocationUpdater.writeProjectLocation(project, entry.locationFile, entry.newLocation, batch);
+		}
+	}
+
+	/**
+	 * The planned relocation of one project.
+	 */
+	public static class Entry {
+		private final IProject project;
+		private final LocationFile locationFile;
+		private final String previousLocation;
+		private final String newLocation;
+		private final State state;
+		private final Problem problem;
+
+		Entry(IProject project, LocationFile locationFile, String previousLocation, String newLocation, State state, Problem problem) {
+			this.project = project;
+			this.locationFile = locationFile;
+			this.previousLocation = previousLocation;
+			this.newLocation = newLocation;
+			this.state = state;
+			this.problem = problem;
+		}
+
+		Entry withProblem(Problem targetProblem) {
+			State newState = targetProblem == Problem.MISSING ? State.TARGET_MISSING : State.TARGET_INVALID;
+			return new Entry(project, locationFile, previousLocation, newLocation, newState, targetProblem);
+		}
+
+		public IProject getProject() {
+			return project;
+		}
+
+		/**
+		 * @return The current location, or the error message if the state is
+		 *         {@link State#UNREADABLE}.
+		 */
+		public String getPreviousLocation() {
+			return previousLocation;
+		}
+
+		/**
+		 * @return The new location, or <code>null</code> if the state is {@link State#UNREADABLE}.
+		 */
+		public String getNewLocation() {
+			return newLocation;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * @return The problem of the new location, or <code>null</code> unless the state is
+		 *         {@link State#TARGET_MISSING} or {@link State#TARGET_INVALID}.
+		 */
+		public Problem getProblem() {
+			return problem;
+		}
+
+		boolean isChanging() {
+			return state == State.CHANGED || state == State.TARGET_MISSING;
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.osgi.service.debug.DebugOptions;
+import org.eclipse.osgi.service.debug.DebugOptionsListener;
+import org.eclipse.osgi.service.debug.DebugTrace;
+
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+
+/**
+ * Counters and latency histograms of the relocation I/O, exposed as {@link RelocationStatisticsMXBean}.
+ * <p>
+ * Recording is off by default. It is switched on through JMX or by the debug options of this plugin
+ * (see the .options file): <code>/debug/statistics</code> records the statistics,
+ * <code>/debug/io</code> additionally traces every read and write. While off, {@link #start()}
+ * costs one volatile read and the other methods return immediately.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * long start = RelocationStatistics.start();
+ * ...
+ * RelocationStatistics.stop(Phase.PLAN, start, subject);
+ * </pre>
+ *
+ * @author Max Gensthaler
+ */
+public final class RelocationStatistics implements RelocationStatisticsMXBean, DebugOptionsListener {
+	/** The object name this MBean is registered with. */
+	public static final String OBJECT_NAME = "com.github.eclipse.projectlocationupdater:type=RelocationStatistics"; //$NON-NLS-1$
+
+	/**
+	 * The phases of a relocation.
+	 */
+	public enum Phase {
+		/** Reading a .location file. */
+		READ,
+		/** Writing a .location file, or logging it to the journal within a batch. */
+		WRITE,
+		/** Committing a journal batch: forcing the journal, replacing the files and forcing their directories. */
+		COMMIT,
+		/** Running <code>attrib</code> to unhide a .location file on Windows, until it exits. */
+		ATTRIB,
+		/** Loading the locations shown by the wizard. */
+		LOAD_LOCATIONS,
+		/** Computing the relocation plan previewed by the wizard. */
+		PLAN,
+		/** Checking the new locations of a relocation plan. */
+		VALIDATE,
+		/** Updating the tables of the wizard. */
+		UI
+	}
+
+	/** Returned by {@link #start()} while recording is off. */
+	private static final long NOT_RECORDING = Long.MIN_VALUE;
+
+	/** Buckets of the histograms, the last one is about 18 minutes. */
+	private static final int BUCKET_COUNT = 32;
+
+	private static final String OPTION_DEBUG = "/debug"; //$NON-NLS-1$
+	private static final String OPTION_STATISTICS = "/debug/statistics"; //$NON-NLS-1$
+	private static final String OPTION_IO = "/debug/io"; //$NON-NLS-1$
+
+	/** The statistics of the running plugin, or <code>null</code>. */
+	private static volatile RelocationStatistics current;
+
+	private final String symbolicName;
+	private final RelocationJournal journal;
+
+	private volatile boolean enabled;
+	private volatile boolean enabledByOptions;
+	private volatile DebugTrace ioTrace;
+
+	private final AtomicLong filesRead = new AtomicLong();
+	private final AtomicLong filesWritten = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray phaseMicros = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray phaseMaxMicros = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray histograms = new AtomicLongArray(Phase.values().length * BUCKET_COUNT);
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param symbolicName
+	 *            The symbolic name of this plugin, the prefix of its debug options.
+	 * @param journal
+	 *            The journal whose forces are reported.
+	 */
+	public RelocationStatistics(String symbolicName, RelocationJournal journal) {
+		this.symbolicName = symbolicName;
+		this.journal = journal;
+	}
+
+	/**
+	 * Makes the given statistics the ones recorded by the static methods.
+	 *
+	 * @param statistics
+	 *            The statistics of the running plugin, or <code>null</code> when it stops.
+	 */
+	static void setCurrent(RelocationStatistics statistics) {
+		current = statistics;
+	}
+
+	/**
+	 * Starts measuring an operation.
+	 *
+	 * @return The start time to pass to the other static methods.
+	 */
+	public static long start() {
+		RelocationStatistics statistics = current;
+		return statistics != null && statistics.enabled ? System.nanoTime() : NOT_RECORDING;
+	}
+
+	/**
+	 * Records the duration of an operation.
+	 *
+	 * @param phase
+	 *            The phase of the operation
+	 * @param start
+	 *            The result of {@link #start()}
+	 * @param subject
+	 *            The file or project the operation worked on, for tracing
+	 */
+	public static void stop(Phase phase, long start, Object subject) {
+		if (start != NOT_RECORDING) {
+			RelocationStatistics statistics = current;
+			if (statistics != null) {
+				statistics.record(phase, System.nanoTime() - start, subject);
+			}
+		}
+	}
+
+	/**
+	 * Records the read of a .location file.
+	 *
+	 * @param start
+	 *            The result of {@link #start()}
+	 * @param file
+	 *            The file read
+	 * @param bytes
+	 *            The size of the file
+	 */
+	static void fileRead(long start, File file, int bytes) {
+		if (start != NOT_RECORDING) {
+			RelocationStatistics statistics = current;
+			if (statistics != null) {
+				statistics.filesRead.incrementAndGet();
+				statistics.bytesRead.addAndGet(bytes);
+				statistics.record(Phase.READ, System.nanoTime() - start, file);
+			}
+		}
+	}
+
+	/**
+	 * Records the write of a .location file.
+	 *
+	 * @param start
+	 *            The result of {@link #start()}
+	 * @param file
+	 *            The file written
+	 * @param bytes
+	 *            The size of the new content
+	 */
+	static void fileWritten(long start, File file, int bytes) {
+		if (start != NOT_RECORDING) {
+			RelocationStatistics statistics = current;
+			if (statistics != null) {
+				long nanos = System.nanoTime() - start;
+				statistics.filesWritten.incrementAndGet();
+				statistics.bytesWritten.addAndGet(bytes);
+				statistics.record(Phase.WRITE, nanos, file);
+			}
+		}
+	}
+
+	/**
+	 * Records a failed operation.
+	 *
+	 * @param phase
+	 *            The phase of the operation
+	 * @param start
+	 *            The result of {@link #start()}
+	 * @param subject
+	 *            The file or project the operation worked on
+	 * @param cause
+	 *            The failure
+	 */
+	static void failed(Phase phase, long start, Object subject, Throwable cause) {
+		if (start != NOT_RECORDING) {
+			RelocationStatistics statistics = current;
+			if (statistics != null) {
+				statistics.failures.incrementAndGet();
+				DebugTrace trace = statistics.ioTrace;
+				if (trace != null) {
+					trace.trace(OPTION_IO, phase + " failed: " + subject, cause); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private void record(Phase phase, long nanos, Object subject) {
+		long micros = nanos / 1000;
+		int index = phase.ordinal();
+		phaseCounts.incrementAndGet(index);
+		phaseMicros.addAndGet(index, micros);
+		long max;
+		while (micros > (max = phaseMaxMicros.get(index)) && !phaseMaxMicros.compareAndSet(index, max, micros)) {
+			// retry
+		}
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+		histograms.incrementAndGet(index * BUCKET_COUNT + bucket);
+
+		DebugTrace trace = ioTrace;
+		if (trace != null) {
+			trace.trace(OPTION_IO, phase + " " + subject + " in " + micros + " us"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	@Override
+	public void optionsChanged(DebugOptions options) {
+		boolean debug = options.isDebugEnabled() && options.getBooleanOption(symbolicName + OPTION_DEBUG, false);
+		boolean traceIO = debug && options.getBooleanOption(symbolicName + OPTION_IO, false);
+		ioTrace = traceIO ? options.newDebugTrace(symbolicName) : null;
+		enabledByOptions = traceIO || debug && options.getBooleanOption(symbolicName + OPTION_STATISTICS, false);
+		if (enabledByOptions) {
+			enabled = true;
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled || enabledByOptions;
+	}
+
+	@Override
+	public long getFilesRead() {
+		return filesRead.get();
+	}
+
+	@Override
+	public long getFilesWritten() {
+		return filesWritten.get();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public long getJournalForces() {
+		return journal.getForceCount();
+	}
+
+	@Override
+	public long getJournalForceMillis() {
+		return journal.getForceNanos() / 1000000;
+	}
+
+	@Override
+	public List<PhaseStatistics> getPhases() {
+		List<PhaseStatistics> phases = new ArrayList<PhaseStatistics>(Phase.values().length);
+		for (Phase phase : Phase.values()) {
+			int index = phase.ordinal();
+			long[] histogram = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				histogram[i] = histograms.get(index * BUCKET_COUNT + i);
+			}
+			phases.add(new PhaseStatistics(phase.name(), phaseCounts.get(index), phaseMicros.get(index), phaseMaxMicros.get(index), histogram));
+		}
+		return phases;
+	}
+
+	@Override
+	public void reset() {
+		filesRead.set(0);
+		filesWritten.set(0);
+		bytesRead.set(0);
+		bytesWritten.set(0);
+		failures.set(0);
+		for (int i = 0; i < phaseCounts.length(); i++) {
+			phaseCounts.set(i, 0);
+			phaseMicros.set(i, 0);
+			phaseMaxMicros.set(i, 0);
+		}
+		for (int i = 0; i < histograms.length(); i++) {
+			histograms.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link RelocationStatistics}, registered as
+ * <code>com.github.eclipse.projectlocationupdater:type=RelocationStatistics</code>.
+ *
+ * @author Max Gensthaler
+ */
+public interface RelocationStatisticsMXBean {
+	/**
+	 * @return <code>true</code> if the statistics are recorded
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Starts or stops recording the statistics. Recording is also enabled by the debug option
+	 * <code>com.github.eclipse.projectlocationupdater.plugin/debug/statistics</code>.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to record the statistics
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return The number of .location files read
+	 */
+	long getFilesRead();
+
+	/**
+	 * @return The number of .location files written
+	 */
+	long getFilesWritten();
+
+	/**
+	 * @return The number of bytes read from .location files
+	 */
+	long getBytesRead();
+
+	/**
+	 * @return The number of bytes written to .location files
+	 */
+	long getBytesWritten();
+
+	/**
+	 * @return The number of failed reads and writes
+	 */
+	long getFailures();
+
+	/**
+	 * @return The number of times the relocation journal was forced to disk, recorded even if the
+	 *         statistics are disabled
+	 */
+	long getJournalForces();
+
+	/**
+	 * @return The total time spent forcing the relocation journal to disk in milliseconds, recorded
+	 *         even if the statistics are disabled
+	 */
+	long getJournalForceMillis();
+
+	/**
+	 * @return The latencies of the phases of a relocation
+	 */
+	List<PhaseStatistics> getPhases();
+
+	/**
+	 * Resets all counters and histograms but the journal ones.
+	 */
+	void reset();
+}
@@ -0,0 +1,39 @@
+package com.github.eclipse.projectlocationupdater;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the bounded pools of worker threads of the jobs processing the .location files of many
+ * projects in parallel, like {@link LocationUpdateJob}.
+ *
+ * @author Max Gensthaler
+ */
+public abstract class WorkerPools {
+	/** The maximum number of worker threads of a pool. */
+	public static final int MAX_WORKER_COUNT = 8;
+
+	private WorkerPools() {
+		//
+	}
+
+	/**
+	 * Creates a pool with one worker per processor, but at most {@link #MAX_WORKER_COUNT} and no
+	 * more than there are tasks.
+	 *
+	 * @param taskCount
+	 *            The number of tasks to be submitted to the pool.
+	 * @return The new pool, to be shut down by the caller.
+	 */
+	public static ExecutorService newFixedThreadPool(int taskCount) {
+		return Executors.newFixedThreadPool(getWorkerCount(taskCount));
+	}
+
+	/**
+	 * @return The number of worker threads for the given number of tasks, at least 1.
+	 */
+	public static int getWorkerCount(int taskCount) {
+		int workerCount = Math.min(Runtime.getRuntime().availableProcessors(), MAX_WORKER_COUNT);
+		return Math.max(1, Math.min(workerCount, taskCount));
+	}
+}
@@ -0,0 +1,176 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkbenchWindowActionDelegate;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
+import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.ProjectLocationIndex;
+import com.github.eclipse.projectlocationupdater.core.MappingImport;
+import com.github.eclipse.projectlocationupdater.core.MappingReader;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * An action to relocate the projects by a mapping file, see {@link MappingReader} for the
+ * supported formats.
+ * <p>
+ * The file is streamed and matched against the project locations in the background (see
+ * {@link MappingImport}). After confirming the summary, the projects matched are relocated in one
+ * {@link LocationUpdateJob}, which closes and reopens the open ones around it.
+ *
+ * @author Max Gensthaler
+ */
+public class ImportMappingsAction implements IWorkbenchWindowActionDelegate {
+	private static final String[] FILTER_EXTENSIONS = { "*.csv;*.properties;*.txt", "*.*" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private IWorkbenchWindow window;
+
+	@Override
+	public void init(IWorkbenchWindow workbenchWindow) {
+		this.window = workbenchWindow;
+	}
+
+	@Override
+	public void dispose() {
+		// nothing to do
+	}
+
+	@Override
+	public void run(IAction action) {
+		Shell shell = window.getShell();
+		FileDialog fd = new FileDialog(shell, SWT.OPEN);
+		fd.setText(Messages.action_importMappings_dialog_title);
+		fd.setFilterExtensions(FILTER_EXTENSIONS);
+		String mappingFile = fd.open();
+		if (mappingFile != null) {
+			scheduleMatchJob(shell, mappingFile);
+		}
+	}
+
+	private static void scheduleMatchJob(final Shell shell, final String mappingFile) {
+		Job job = new Job(Messages.job_importMappings_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+				Map<String, String> projectLocations = getProjectLocations(root.getProjects());
+
+				MappingImport mappingImport = new MappingImport(projectLocations);
+				try {
+					MappingReader reader = new MappingReader(new InputStreamReader(new FileInputStream(mappingFile), StandardCharsets.UTF_8), MappingReader.Format.forFileName(mappingFile));
+					try {
+						mappingImport.addAll(reader);
+					} finally {
+						reader.close();
+					}
+				} catch (IOException e) {
+					return new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.action_importMappings_failed, e.getMessage()), e);
+				}
+
+				final Map<IProject, String> newLocations = new LinkedHashMap<IProject, String>();
+				for (Map.Entry<String, String> newLocation : mappingImport.getNewLocations().entrySet()) {
+					newLocations.put(root.getProject(newLocation.getKey()), newLocation.getValue());
+				}
+
+				final String summary = getSummary(mappingImport, newLocations.size());
+				Display display = shell.getDisplay();
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							confirmAndRelocate(shell, summary, newLocations);
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+	}
+
+	/**
+	 * Reads the locations of the projects located outside of the workspace. Projects whose location
+	 * cannot be read are not matched.
+	 */
+	private static Map<String, String> getProjectLocations(IProject[] projects) {
+		ProjectLocationIndex index = Activator.getDefault().getProjectLocationIndex();
+		Map<String, String> projectLocations = new HashMap<String, String>(projects.length * 4 / 3 + 1);
+		for (IProject project : projects) {
+			if (project.getRawLocation() == null) {
+				continue;
+			}
+			try {
+				projectLocations.put(project.getName(), index.getProjectLocation(project));
+			} catch (IOException e) {
+				// not matched
+			}
+		}
+		return projectLocations;
+	}
+
+	private static String getSummary(MappingImport mappingImport, int projectCount) {
+		StringBuilder summary = new StringBuilder(NLS.bind(Messages.action_importMappings_summary,
+				new Object[] { Integer.valueOf(mappingImport.getMatchedCount()), Integer.valueOf(mappingImport.getUnmatchedCount()),
+						Integer.valueOf(mappingImport.getConflictCount()), Integer.valueOf(mappingImport.getMalformedCount()), Integer.valueOf(projectCount) }));
+		if (!mappingImport.getProblems().isEmpty()) {
+			summary.append('\n');
+			for (String problem : mappingImport.getProblems()) {
+				summary.append('\n').append(problem);
+			}
+		}
+		return summary.toString();
+	}
+
+	private static void confirmAndRelocate(Shell shell, String summary, final Map<IProject, String> newLocations) {
+		if (shell.isDisposed()) {
+			return;
+		}
+		if (newLocations.isEmpty()) {
+			MessageDialog.openInformation(shell, Messages.action_importMappings_dialog_title, summary);
+			return;
+		}
+		if (!MessageDialog.openConfirm(shell, Messages.action_importMappings_dialog_title, summary)) {
+			return;
+		}
+		Collection<IProject> projects = newLocations.keySet();
+		Job job = new LocationUpdateJob(projects) {
+			@Override
+			protected void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException {
+				LocationUpdater.writeProjectLocation(project, new Path(newLocations.get(project)), batch);
+			}
+		};
+		job.schedule();
+	}
+
+	@Override
+	public void selectionChanged(IAction action, ISelection selection) {
+		// nothing to do
+	}
+}
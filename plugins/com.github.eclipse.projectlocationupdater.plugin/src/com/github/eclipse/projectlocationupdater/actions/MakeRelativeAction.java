@@ -0,0 +1,234 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.filesystem.URIUtil;
+import org.eclipse.core.resources.IPathVariableManager;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.dialogs.ProgressMonitorDialog;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.window.Window;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IObjectActionDelegate;
+import org.eclipse.ui.IWorkbenchPart;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
+import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.ProjectLocationIndex;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * An action to make the locations of the selected projects relative to a workspace path variable.
+ * <p>
+ * The .location files then hold e.g. <code>SRC_ROOT/path/to/project</code> instead of an
+ * absolute path, so moving all of them later on is a single change of the variable, see
+ * {@link MovePathVariableAction}. Projects not located below the variable keep their location.
+ * Only the projects whose location changes are passed to the {@link LocationUpdateJob}, which
+ * closes and reopens those of them which are open. The locations are read in a progress dialog,
+ * not on the UI thread.
+ *
+ * @author Max Gensthaler
+ */
+public class MakeRelativeAction implements IObjectActionDelegate {
+	private ISelection selection;
+
+	@Override
+	public void run(IAction action) {
+		Shell shell = Activator.getDefault().getWorkbench().getActiveWorkbenchWindow().getShell();
+		List<IProject> projects = getSelectedProjects();
+		if (projects.isEmpty()) {
+			MessageDialog.openInformation(shell, Messages.action_makeRelative_dialog_title, Messages.action_makeRelative_noProjects);
+			return;
+		}
+		Map<IProject, IPath> absoluteLocations;
+		try {
+			absoluteLocations = readAbsoluteLocations(shell, projects);
+		} catch (InvocationTargetException e) {
+			MessageDialog.openError(shell, Messages.errorDialog_title, e.getCause().toString());
+			return;
+		} catch (InterruptedException e) {
+			// canceled
+			return;
+		}
+
+		IPathVariableManager variableManager = ResourcesPlugin.getWorkspace().getPathVariableManager();
+		Map<String, IPath> variables = PathVariableDialog.getVariables(variableManager);
+		PathVariableDialog dialog = new PathVariableDialog(shell, Messages.action_makeRelative_dialog_title, Messages.action_makeRelative_dialog_message, variableManager,
+				variables, false, getCommonParent(absoluteLocations.values()));
+		if (dialog.open() != Window.OK) {
+			return;
+		}
+
+		String variable = dialog.getVariableName();
+		IPath variableLocation = dialog.getVariableLocation();
+		if (!variables.containsKey(variable)) {
+			try {
+				variableManager.setURIValue(variable, URIUtil.toURI(variableLocation));
+			} catch (CoreException e) {
+				MessageDialog.openError(shell, Messages.errorDialog_title, NLS.bind(Messages.action_makeRelative_defineFailed, variable, e.getMessage()));
+				return;
+			}
+		}
+
+		List<IProject> changingProjects = new ArrayList<IProject>();
+		for (Map.Entry<IProject, IPath> location : absoluteLocations.entrySet()) {
+			if (variableLocation.isPrefixOf(location.getValue())) {
+				changingProjects.add(location.getKey());
+			}
+		}
+		if (changingProjects.isEmpty()) {
+			MessageDialog.openInformation(shell, Messages.action_makeRelative_dialog_title, getSummary(0, projects.size(), variable, variableLocation));
+			return;
+		}
+		scheduleUpdateJob(shell, changingProjects, projects.size(), variable, variableLocation);
+	}
+
+	/**
+	 * Reads the locations of the projects which are not relative to a path variable yet, in a
+	 * progress dialog. Projects whose location cannot be read are left out.
+	 *
+	 * @return The absolute locations by project, in selection order
+	 */
+	private static Map<IProject, IPath> readAbsoluteLocations(Shell shell, final List<IProject> projects) throws InvocationTargetException, InterruptedException {
+		final Map<IProject, IPath> absoluteLocations = new LinkedHashMap<IProject, IPath>();
+		new ProgressMonitorDialog(shell).run(true, true, new IRunnableWithProgress() {
+			@Override
+			public void run(IProgressMonitor monitor) throws InterruptedException {
+				ProjectLocationIndex index = Activator.getDefault().getProjectLocationIndex();
+				monitor.beginTask(Messages.action_makeRelative_taskName, projects.size());
+				try {
+					for (IProject project : projects) {
+						if (monitor.isCanceled()) {
+							throw new InterruptedException();
+						}
+						try {
+							if (LocationUpdater.readLocationVariable(project) == null) {
+								absoluteLocations.put(project, new Path(index.getProjectLocation(project)));
+							}
+						} catch (IOException e) {
+							// left as it is
+						}
+						monitor.worked(1);
+					}
+				} finally {
+					monitor.done();
+				}
+			}
+		});
+		return absoluteLocations;
+	}
+
+	private static void scheduleUpdateJob(final Shell shell, List<IProject> changingProjects, final int selectedCount, final String variable, final IPath variableLocation) {
+		final AtomicInteger relativeCount = new AtomicInteger();
+		Job job = new LocationUpdateJob(changingProjects) {
+			@Override
+			protected void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException {
+				if (LocationUpdater.makeRelative(project, variable, variableLocation, batch)) {
+					relativeCount.incrementAndGet();
+				}
+			}
+		};
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				// failures are reported by the job itself
+				if (!event.getResult().isOK() || shell.isDisposed()) {
+					return;
+				}
+				final String summary = getSummary(relativeCount.get(), selectedCount, variable, variableLocation);
+				Display display = shell.getDisplay();
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (!shell.isDisposed()) {
+							MessageDialog.openInformation(shell, Messages.action_makeRelative_dialog_title, summary);
+						}
+					}
+				});
+			}
+		});
+		job.schedule();
+	}
+
+	private static String getSummary(int relativeCount, int selectedCount, String variable, IPath variableLocation) {
+		return NLS.bind(Messages.action_makeRelative_result, new Object[] { Integer.valueOf(relativeCount), Integer.valueOf(selectedCount), variable,
+				variableLocation.toOSString() });
+	}
+
+	/**
+	 * Computes the common parent directory of the project locations, proposed as location of a new
+	 * variable.
+	 *
+	 * @return The common parent, or <code>null</code> if there are no locations
+	 */
+	private static String getCommonParent(Collection<IPath> locations) {
+		IPath commonParent = null;
+		for (IPath location : locations) {
+			IPath parent = location.removeTrailingSeparator().removeLastSegments(1);
+			if (commonParent == null) {
+				commonParent = parent;
+			} else {
+				commonParent = commonParent.uptoSegment(commonParent.matchingFirstSegments(parent));
+			}
+		}
+		return commonParent != null && commonParent.segmentCount() > 0 ? commonParent.toOSString() : null;
+	}
+
+	/**
+	 * @return The selected projects located outside of the workspace directory, which have a
+	 *         .location file.
+	 */
+	private List<IProject> getSelectedProjects() {
+		List<IProject> projects = new ArrayList<IProject>();
+		if (selection instanceof IStructuredSelection) {
+			for (Iterator<?> it = ((IStructuredSelection) selection).iterator(); it.hasNext();) {
+				Object element = it.next();
+				IProject project = null;
+				if (element instanceof IProject) {
+					project = (IProject) element;
+				} else if (element instanceof IAdaptable) {
+					project = (IProject) ((IAdaptable) element).getAdapter(IProject.class);
+				}
+				if (project != null && project.getRawLocation() != null) {
+					projects.add(project);
+				}
+			}
+		}
+		return projects;
+	}
+
+	@Override
+	public void selectionChanged(IAction action, ISelection selection) {
+		this.selection = selection;
+	}
+
+	@Override
+	public void setActivePart(IAction action, IWorkbenchPart targetPart) {
+		// nothing to do
+	}
+}
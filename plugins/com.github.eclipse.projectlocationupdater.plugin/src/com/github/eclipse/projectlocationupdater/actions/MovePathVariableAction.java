@@ -0,0 +1,152 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.filesystem.URIUtil;
+import org.eclipse.core.resources.IPathVariableManager;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.dialogs.ProgressMonitorDialog;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.window.Window;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkbenchWindowActionDelegate;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * An action to move a workspace path variable, which relocates all closed projects located
+ * relative to it (see {@link MakeRelativeAction}) with a single preference change instead of
+ * rewriting their .location files.
+ * <p>
+ * Like the other relocations, the projects located relative to the variable have to be closed.
+ *
+ * @author Max Gensthaler
+ */
+public class MovePathVariableAction implements IWorkbenchWindowActionDelegate {
+	private IWorkbenchWindow window;
+
+	@Override
+	public void init(IWorkbenchWindow workbenchWindow) {
+		this.window = workbenchWindow;
+	}
+
+	@Override
+	public void dispose() {
+		// nothing to do
+	}
+
+	@Override
+	public void run(IAction action) {
+		Shell shell = window.getShell();
+		IPathVariableManager variableManager = ResourcesPlugin.getWorkspace().getPathVariableManager();
+		Map<String, IPath> variables = PathVariableDialog.getVariables(variableManager);
+		if (variables.isEmpty()) {
+			MessageDialog.openInformation(shell, Messages.action_movePathVariable_dialog_title, Messages.action_movePathVariable_noVariables);
+			return;
+		}
+		PathVariableDialog dialog = new PathVariableDialog(shell, Messages.action_movePathVariable_dialog_title, Messages.action_movePathVariable_dialog_message,
+				variableManager, variables, true, null);
+		if (dialog.open() != Window.OK) {
+			return;
+		}
+		final String variable = dialog.getVariableName();
+		IPath newLocation = dialog.getVariableLocation();
+
+		final List<String> openProjects = new ArrayList<String>();
+		final AtomicInteger closedCount = new AtomicInteger();
+		try {
+			// the .location files of all closed projects are read, not on the UI thread
+			new ProgressMonitorDialog(shell).run(true, true, new IRunnableWithProgress() {
+				@Override
+				public void run(IProgressMonitor monitor) throws InterruptedException {
+					IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+					monitor.beginTask(Messages.action_movePathVariable_taskName, projects.length);
+					try {
+						for (IProject project : projects) {
+							if (monitor.isCanceled()) {
+								throw new InterruptedException();
+							}
+							if (project.isOpen()) {
+								if (variable.equals(getVariable(project.getRawLocationURI()))) {
+									openProjects.add(project.getName());
+								}
+							} else if (variable.equals(readLocationVariable(project))) {
+								closedCount.incrementAndGet();
+							}
+							monitor.worked(1);
+						}
+					} finally {
+						monitor.done();
+					}
+				}
+			});
+		} catch (InvocationTargetException e) {
+			MessageDialog.openError(shell, Messages.errorDialog_title, NLS.bind(Messages.action_movePathVariable_failed, variable, e.getCause().toString()));
+			return;
+		} catch (InterruptedException e) {
+			// canceled
+			return;
+		}
+		if (!openProjects.isEmpty()) {
+			MessageDialog.openError(shell, Messages.action_movePathVariable_dialog_title, NLS.bind(Messages.action_movePathVariable_openProjects, variable, openProjects));
+			return;
+		}
+		String question = NLS.bind(Messages.action_movePathVariable_confirm, new Object[] { variable, variables.get(variable).toOSString(), newLocation.toOSString(),
+				Integer.valueOf(closedCount.get()) });
+		if (!MessageDialog.openConfirm(shell, Messages.action_movePathVariable_dialog_title, question)) {
+			return;
+		}
+
+		try {
+			variableManager.setURIValue(variable, URIUtil.toURI(newLocation));
+		} catch (CoreException e) {
+			MessageDialog.openError(shell, Messages.errorDialog_title, NLS.bind(Messages.action_movePathVariable_failed, variable, e.getMessage()));
+			return;
+		}
+		// the indexed locations are resolved by the old value
+		Activator.getDefault().getProjectLocationIndex().clear();
+	}
+
+	/**
+	 * @return The path variable the given location is relative to, or <code>null</code>.
+	 */
+	private static String getVariable(URI rawLocation) {
+		if (rawLocation == null || rawLocation.isAbsolute() || rawLocation.getPath() == null) {
+			return null;
+		}
+		IPath path = new Path(rawLocation.getPath());
+		return path.segmentCount() > 0 ? path.segment(0) : null;
+	}
+
+	private static String readLocationVariable(IProject project) {
+		try {
+			return LocationUpdater.readLocationVariable(project);
+		} catch (IOException e) {
+			// a project in the workspace directory has no .location file
+			return null;
+		}
+	}
+
+	@Override
+	public void selectionChanged(IAction action, ISelection selection) {
+		// nothing to do
+	}
+}
@@ -1,18 +1,19 @@
 package com.github.eclipse.projectlocationupdater.actions;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.wizard.IWizardPage;
 import org.eclipse.jface.wizard.Wizard;
+import org.eclipse.osgi.util.NLS;
 
-import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
+import com.github.eclipse.projectlocationupdater.RelocationPlan;
+import com.github.eclipse.projectlocationupdater.RelocationPlan.State;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
 import com.github.eclipse.projectlocationupdater.i18n.Messages;
 
 /**
@@ -23,6 +24,7 @@ import com.github.eclipse.projectlocationupdater.i18n.Messages;
 public class PLUWizard extends Wizard {
 	private PLUWizardProjectsPage projectsPage;
 	private PLUWizardUpdatePage updatePage;
+	private PLUWizardPreviewPage previewPage;
 
 	/** All available projects (input, unmodifiable). */
 	private final Collection<IProject> allProjects;
@@ -31,8 +33,6 @@ public class PLUWizard extends Wizard {
 	 * {@link #allProjects}.
 	 */
 	private final Collection<IProject> preselectedProjects;
-	private Collection<IProject> selectedProjects;
-	private String previousLocation;
 
 	/**
 	 * Creates a new instance of this class.
@@ -57,120 +57,54 @@ public class PLUWizard extends Wizard {
 		addPage(projectsPage);
 		updatePage = new PLUWizardUpdatePage();
 		addPage(updatePage);
+		previewPage = new PLUWizardPreviewPage();
+		addPage(previewPage);
 	}
 
 	@Override
 	public IWizardPage getNextPage(IWizardPage page) {
+		// called on every update of the buttons, the pages compute their content when shown
 		if (page == projectsPage) {
-			selectedProjects = projectsPage.getSelectedProjects();
-			previousLocation = getPathToUpdate(selectedProjects);
-			updatePage.setPreviousLocation(previousLocation);
+			updatePage.setProjects(projectsPage.getSelectedProjects());
 			return updatePage;
 		}
+		if (page == updatePage) {
+			previewPage.setRelocation(updatePage.getProjects(), updatePage.getNewLocations());
+			return previewPage;
+		}
 		return null;
 	}
 
 	@Override
 	public boolean performFinish() {
-		updateProjects(selectedProjects, previousLocation, updatePage.getNewLocation());
-		return true;
-	}
-
-	private void updateProjects(Collection<IProject> projects, String previousLocation, String newLocation) {
-		for (IProject project : projects) {
-			try {
-				LocationUpdater.updateLocationSubstring(project, previousLocation, newLocation);
-			} catch (IOException e) {
-				MessageDialog.openError(getShell(), Messages.errorDialog_title, Messages.errorDialog_errorOnApplyPrefix + e.getMessage());
-				e.printStackTrace();
-			}
+		// the preview page is complete only when the plan of the current input is computed
+		RelocationPlan plan = previewPage.getPlan();
+		if (plan == null) {
+			return false;
 		}
-	}
-
-	/**
-	 * Determines the path to update from the selected project(s), either the full path of a single
-	 * selected project or the longest common path prefix of multiple selected projects.
-	 *
-	 * @param projects
-	 *            The projects which were selected from the user to update.
-	 * @return
-	 */
-	private String getPathToUpdate(Collection<IProject> projects) {
-		assert !projects.isEmpty();
-		if (projects.size() == 1) {
-			return getProjectLocation(projects.iterator().next());
-		}
-		return getCommonPathPrefix(getProjectLocations(projects));
-	}
-
-	/**
-	 * Retrieve the location of the given project.
-	 *
-	 * @param project
-	 *            The project to retrieve the location for.
-	 * @return The absolute path to the project.
-	 */
-	private String getProjectLocation(IProject project) {
-		try {
-			return LocationUpdater.readProjectLocation(project);
-		} catch (IOException e) {
-			MessageDialog.openError(getShell(), Messages.errorDialog_title, Messages.errorDialog_errorReadProjLocPrefix + e.getMessage());
-			throw new RuntimeException("Error in " + PLUWizard.class.getName(), e); //$NON-NLS-1$
+		int targetMissingCount = plan.getCount(State.TARGET_MISSING);
+		if (targetMissingCount > 0
+				&& !MessageDialog.openConfirm(getShell(), Messages.wizard_missingTargets_dialog_title, NLS.bind(Messages.wizard_missingTargets_question, Integer.valueOf(targetMissingCount)))) {
+			return false;
 		}
+		applyPlan(plan);
+		return true;
 	}
 
 	/**
-	 * Retrieve the locations of the given projects.
-	 *
-	 * @param projects
-	 *            The projects to retrieve the locations for.
-	 * @return The absolute paths to the projects.
-	 */
-	private Collection<String> getProjectLocations(Collection<IProject> projects) {
-        final Collection<String> projectLocations = new ArrayList<String>();
-        for (final IProject project : projects) {
-        	projectLocations.add(getProjectLocation(project));
-		}
-        return projectLocations;
-	}
-
-	/**
-	 * Returns the longest common prefix of the given paths.
-	 *
-     * @param paths
-	 *            The paths to find the longest common prefix for.
-	 * @return The common part of the paths.
-	 */
-	private static String getCommonPathPrefix(Collection<String> paths) {
-		assert !paths.isEmpty();
-
-		// the common prefix can be determined by first and last elements of the sorted array
-		String[] pathsArr = paths.toArray(new String[0]);
-		Arrays.sort(pathsArr);
-
-        String firstPath = pathsArr[0];
-        String lastPath = pathsArr[pathsArr.length - 1];
-
-		return getCommonPathPrefix(firstPath, lastPath);
-	}
-
-	/**
-	 * Returns the longest common prefix of the given two paths.
+	 * Schedules a {@link LocationUpdateJob} to write the previewed locations in the background.
+	 * Failures are reported by the job in one summary when all projects are processed.
 	 *
-     * @param firstPath
-	 *            The first path.
-     * @param secondPath
-	 *            The second path.
-	 * @return The common part of the paths.
+	 * @param plan
+	 *            The plan shown by the preview page.
 	 */
-    private static String getCommonPathPrefix(String firstPath, String secondPath) {
-		// Compute the common part
-        IPath path = new Path(firstPath);
-        IPath otherPath = new Path(secondPath);
-		int matchingSegments = path.matchingFirstSegments(otherPath);
-
-		// Make the common path
-        int segmentCountToRemove = path.segmentCount() - matchingSegments;
-        return path.removeLastSegments(segmentCountToRemove).toString();
+	private static void applyPlan(final RelocationPlan plan) {
+		Job job = new LocationUpdateJob(plan.getChangedProjects()) {
+			@Override
+			protected void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException {
+				plan.apply(project, isClosedByJob(project), batch);
+			}
+		};
+		job.schedule();
 	}
 }
@@ -40,8 +40,8 @@ public class PLUWizardAction implements IObjectActionDelegate, IWorkbenchWindowA
 	}
 
 	/**
-	 * Computes the list of the projects to update. They must be closed to be
-	 * selected.
+	 * Computes the list of the projects to update. Open projects are closed and
+	 * reopened while relocating.
 	 *
 	 * @return The projects to update
 	 * @author Thomas Calmant
@@ -63,7 +63,7 @@ public class PLUWizardAction implements IObjectActionDelegate, IWorkbenchWindowA
 				}
 
 				if (project != null) {
-					// Add the found project, if it is closed
+					// Add the found project
 					selectedProjects.add(project);
 				}
 			}
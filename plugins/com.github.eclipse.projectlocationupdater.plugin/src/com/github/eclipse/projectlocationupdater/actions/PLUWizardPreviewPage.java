@@ -0,0 +1,390 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.IMessageProvider;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.wizard.WizardPage;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.RelocationPlan;
+import com.github.eclipse.projectlocationupdater.RelocationPlan.Entry;
+import com.github.eclipse.projectlocationupdater.RelocationPlan.State;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+import com.github.eclipse.projectlocationupdater.core.TargetValidator.Problem;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * A {@link WizardPage} showing the previous and new location of each selected project before
+ * anything is written.
+ * <p>
+ * The {@link RelocationPlan} is computed by a background job whenever the page is shown with
+ * changed input. The page is complete when the plan is ready, finishing the wizard applies exactly
+ * this plan. The page also warns of other closed projects referencing the relocated ones, which
+ * probably have to move with them.
+ *
+ * @author Max Gensthaler
+ */
+public class PLUWizardPreviewPage extends WizardPage {
+	/** The maximum number of referencing projects named in the message. */
+	private static final int MAX_LISTED_REFERENCING_PROJECTS = 5;
+
+	private TableViewer tableViewer;
+
+	/** The projects to relocate. */
+	private Collection<IProject> projects;
+	/** The relocation roots mapped to their new location. */
+	private Map<String, String> newLocations;
+	/** The input of the current {@link #plan} or {@link #planJob}. */
+	private Collection<IProject> plannedProjects;
+	private Map<String, String> plannedNewLocations;
+
+	private Job planJob;
+	private RelocationPlan plan;
+	private List<Entry> planEntries = Collections.emptyList();
+
+	/**
+	 * Creates a new instance of this class.
+	 */
+	public PLUWizardPreviewPage() {
+		super(Messages.wizard_previewPage_page_name);
+		setTitle(Messages.wizard_previewPage_page_title);
+		setDescription(Messages.wizard_previewPage_page_description);
+		setPageComplete(false);
+	}
+
+	@Override
+	public void createControl(Composite parent) {
+		Composite comp = new Composite(parent, SWT.NONE);
+		comp.setLayout(new GridLayout(1, false));
+
+		// the rows are created lazily when scrolled into view
+		Table table = new Table(comp, SWT.VIRTUAL | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL | SWT.FULL_SELECTION);
+		tableViewer = new TableViewer(table);
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		GridData data = new GridData(SWT.FILL, SWT.FILL, true, true);
+		data.heightHint = 200;
+		table.setLayoutData(data);
+
+		createPreviewTableColumns(tableViewer);
+
+		tableViewer.setUseHashlookup(true);
+		tableViewer.setContentProvider(new PlanContentProvider());
+		tableViewer.setInput(planEntries);
+		tableViewer.setItemCount(0);
+
+		setControl(comp);
+	}
+
+	/**
+	 * Sets the relocation to preview. The plan is computed when the page is shown. A plan of a
+	 * different relocation is discarded at once, so it cannot be applied by finishing the wizard
+	 * from another page.
+	 *
+	 * @param projects
+	 *            The projects to relocate (input, unmodifiable).
+	 * @param newLocations
+	 *            The relocation roots mapped to their new location (input, unmodifiable).
+	 */
+	public void setRelocation(Collection<IProject> projects, Map<String, String> newLocations) {
+		this.projects = projects;
+		this.newLocations = newLocations;
+		if (!(projects.equals(plannedProjects) && newLocations.equals(plannedNewLocations))) {
+			if (planJob != null) {
+				// its result is ignored, see schedulePlanJob()
+				planJob.cancel();
+				planJob = null;
+			}
+			plan = null;
+			plannedProjects = null;
+			plannedNewLocations = null;
+			setPageComplete(false);
+		}
+	}
+
+	@Override
+	public void setVisible(boolean visible) {
+		super.setVisible(visible);
+		if (visible && projects != null && !(projects.equals(plannedProjects) && newLocations.equals(plannedNewLocations))) {
+			schedulePlanJob();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		if (planJob != null) {
+			planJob.cancel();
+		}
+		super.dispose();
+	}
+
+	/**
+	 * @return The previewed plan, or <code>null</code> if not yet computed.
+	 */
+	public RelocationPlan getPlan() {
+		return plan;
+	}
+
+	private void schedulePlanJob() {
+		if (planJob != null) {
+			planJob.cancel();
+		}
+		plan = null;
+		setPlanEntries(Collections.<Entry> emptyList());
+		setPageComplete(false);
+		setMessage(Messages.wizard_previewPage_computing);
+
+		final Collection<IProject> jobProjects = projects;
+		plannedProjects = projects;
+		plannedNewLocations = newLocations;
+		// compiled once for the whole batch
+		final LocationRewriter rewriter = LocationRewriter.compile(newLocations);
+		final Display display = getControl().getDisplay();
+		planJob = new Job(Messages.job_computePlan_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				final RelocationPlan newPlan;
+				final SortedSet<String> referencingProjects;
+				long start = RelocationStatistics.start();
+				try {
+					newPlan = RelocationPlan.create(jobProjects, rewriter, monitor);
+					RelocationStatistics.stop(Phase.PLAN, start, Integer.valueOf(jobProjects.size()));
+					referencingProjects = findReferencingProjects(newPlan, monitor);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				}
+				final Job job = this;
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							// a newer job might have been scheduled meanwhile
+							if (planJob == job && !tableViewer.getTable().isDisposed()) {
+								long uiStart = RelocationStatistics.start();
+								setPlan(newPlan, referencingProjects);
+								RelocationStatistics.stop(Phase.UI, uiStart, getName());
+							}
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		planJob.setSystem(true);
+		planJob.schedule();
+	}
+
+	/**
+	 * Looks up the closed projects which reference a relocated project, but are not relocated
+	 * themselves.
+	 *
+	 * @throws OperationCanceledException
+	 *             If the monitor was canceled
+	 */
+	private static SortedSet<String> findReferencingProjects(RelocationPlan plan, IProgressMonitor monitor) {
+		List<String> relocatedProjects = new ArrayList<String>();
+		for (IProject project : plan.getChangedProjects()) {
+			relocatedProjects.add(project.getName());
+		}
+		SortedSet<String> referencingProjects = Activator.getDefault().updateReferenceGraph(monitor).getReferencingProjects(relocatedProjects);
+		for (Entry entry : plan.getEntries()) {
+			referencingProjects.remove(entry.getProject().getName());
+		}
+		return referencingProjects;
+	}
+
+	private void setPlan(RelocationPlan newPlan, SortedSet<String> referencingProjects) {
+		plan = newPlan;
+		setPlanEntries(newPlan.getEntries());
+
+		int changedCount = newPlan.getCount(State.CHANGED) + newPlan.getCount(State.TARGET_MISSING);
+		int targetMissingCount = newPlan.getCount(State.TARGET_MISSING);
+		int unreadableCount = newPlan.getCount(State.UNREADABLE);
+		int targetInvalidCount = newPlan.getCount(State.TARGET_INVALID);
+		String summary = NLS.bind(Messages.wizard_previewPage_summary, new Object[] { Integer.valueOf(changedCount), Integer.valueOf(newPlan.getCount(State.UNCHANGED)),
+				Integer.valueOf(targetMissingCount), Integer.valueOf(unreadableCount), Integer.valueOf(targetInvalidCount) });
+		if (referencingProjects.isEmpty()) {
+			boolean problems = targetMissingCount > 0 || unreadableCount > 0 || targetInvalidCount > 0;
+			setMessage(summary, problems ? IMessageProvider.WARNING : IMessageProvider.INFORMATION);
+		} else {
+			setMessage(summary + ' ' + NLS.bind(Messages.wizard_previewPage_referencingProjects, Integer.valueOf(referencingProjects.size()), joinNames(referencingProjects)),
+					IMessageProvider.WARNING);
+		}
+		setPageComplete(changedCount > 0);
+	}
+
+	private static String joinNames(SortedSet<String> names) {
+		StringBuilder joined = new StringBuilder();
+		Iterator<String> it = names.iterator();
+		for (int i = 0; i < MAX_LISTED_REFERENCING_PROJECTS && it.hasNext(); i++) {
+			if (i > 0) {
+				joined.append(", "); //$NON-NLS-1$
+			}
+			joined.append(it.next());
+		}
+		if (it.hasNext()) {
+			joined.append(", ..."); //$NON-NLS-1$
+		}
+		return joined.toString();
+	}
+
+	private void setPlanEntries(List<Entry> entries) {
+		planEntries = entries;
+		if (tableViewer != null) {
+			tableViewer.setInput(entries);
+			tableViewer.setItemCount(entries.size());
+		}
+	}
+
+	private static void createPreviewTableColumns(TableViewer tableViewer) {
+		final Color gray = Display.getCurrent().getSystemColor(SWT.COLOR_GRAY);
+		final Color red = Display.getCurrent().getSystemColor(SWT.COLOR_RED);
+
+		TableViewerColumn col = createTableViewerColumn(tableViewer, Messages.wizard_previewPage_table_header_projectName, 150);
+		col.setLabelProvider(new PlanColumnLabelProvider(gray, red) {
+			@Override
+			public String getText(Object element) {
+				return ((Entry) element).getProject().getName();
+			}
+		});
+
+		col = createTableViewerColumn(tableViewer, Messages.wizard_previewPage_table_header_previousLocation, 250);
+		col.setLabelProvider(new PlanColumnLabelProvider(gray, red) {
+			@Override
+			public String getText(Object element) {
+				Entry entry = (Entry) element;
+				return entry.getState() == State.UNREADABLE ? "-" : entry.getPreviousLocation(); //$NON-NLS-1$
+			}
+		});
+
+		col = createTableViewerColumn(tableViewer, Messages.wizard_previewPage_table_header_newLocation, 250);
+		col.setLabelProvider(new PlanColumnLabelProvider(gray, red) {
+			@Override
+			public String getText(Object element) {
+				Entry entry = (Entry) element;
+				return entry.getState() == State.UNREADABLE ? "-" : entry.getNewLocation(); //$NON-NLS-1$
+			}
+		});
+
+		col = createTableViewerColumn(tableViewer, Messages.wizard_previewPage_table_header_state, 150);
+		col.setLabelProvider(new PlanColumnLabelProvider(gray, red) {
+			@Override
+			public String getText(Object element) {
+				Entry entry = (Entry) element;
+				switch (entry.getState()) {
+				case CHANGED:
+					return Messages.wizard_previewPage_table_itemText_changed;
+				case TARGET_MISSING:
+					return Messages.wizard_previewPage_table_itemText_targetMissing;
+				case TARGET_INVALID:
+					return getProblemText(entry.getProblem());
+				case UNCHANGED:
+					return Messages.wizard_previewPage_table_itemText_unchanged;
+				default:
+					return NLS.bind(Messages.wizard_previewPage_table_itemText_unreadable, entry.getPreviousLocation());
+				}
+			}
+		});
+	}
+
+	private static String getProblemText(Problem problem) {
+		switch (problem) {
+		case NOT_ACCESSIBLE:
+			return Messages.wizard_previewPage_table_itemText_targetNotAccessible;
+		case NO_PROJECT_DESCRIPTION:
+			return Messages.wizard_previewPage_table_itemText_targetNoProjectDescription;
+		case NAME_MISMATCH:
+			return Messages.wizard_previewPage_table_itemText_targetNameMismatch;
+		case DUPLICATE:
+			return Messages.wizard_previewPage_table_itemText_targetDuplicate;
+		default:
+			return Messages.wizard_previewPage_table_itemText_targetMissing;
+		}
+	}
+
+	private static TableViewerColumn createTableViewerColumn(TableViewer tableViewer, String title, int width) {
+		TableViewerColumn viewerColumn = new TableViewerColumn(tableViewer, SWT.NONE);
+		TableColumn column = viewerColumn.getColumn();
+		column.setText(title);
+		column.setWidth(width);
+		column.setResizable(true);
+		column.setMoveable(true);
+		return viewerColumn;
+	}
+
+	/**
+	 * Grays out unchanged rows and marks rows with a missing or invalid target or an unreadable
+	 * location file.
+	 */
+	private abstract static class PlanColumnLabelProvider extends ColumnLabelProvider {
+		private final Color gray;
+		private final Color red;
+
+		PlanColumnLabelProvider(Color gray, Color red) {
+			this.gray = gray;
+			this.red = red;
+		}
+
+		@Override
+		public Color getForeground(Object element) {
+			switch (((Entry) element).getState()) {
+			case UNCHANGED:
+				return gray;
+			case TARGET_MISSING:
+			case TARGET_INVALID:
+			case UNREADABLE:
+				return red;
+			default:
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * A lazy content provider for the virtual preview table, the rows are created on demand.
+	 */
+	private class PlanContentProvider implements ILazyContentProvider {
+		@Override
+		public void updateElement(int index) {
+			tableViewer.replace(planEntries.get(index), index);
+		}
+
+		@Override
+		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+			// nothing to do
+		}
+
+		@Override
+		public void dispose() {
+			// nothing to do
+		}
+	}
+}
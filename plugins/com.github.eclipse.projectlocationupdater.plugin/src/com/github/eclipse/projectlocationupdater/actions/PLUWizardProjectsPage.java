@@ -3,23 +3,28 @@ package com.github.eclipse.projectlocationupdater.actions;
 import static com.github.eclipse.projectlocationupdater.utils.ListUtil.filterToList;
 import static com.github.eclipse.projectlocationupdater.utils.ListUtil.filterToSet;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.CheckStateChangedEvent;
+import org.eclipse.jface.viewers.CheckboxTableViewer;
 import org.eclipse.jface.viewers.ColumnLabelProvider;
-import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.jface.viewers.ICheckStateListener;
+import org.eclipse.jface.viewers.ICheckStateProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.wizard.WizardPage;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
-import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
@@ -30,7 +35,10 @@ import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
 
+import com.github.eclipse.projectlocationupdater.RelocationStatistics;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
 import com.github.eclipse.projectlocationupdater.i18n.Messages;
 import com.github.eclipse.projectlocationupdater.utils.Predicate;
 
@@ -55,15 +63,14 @@ public class PLUWizardProjectsPage extends WizardPage {
 		}
 	};
 
-	private TableViewer tableViewer;
+	private CheckboxTableViewer tableViewer;
 
-	/** All available projects (input). */
-	private final List<IProject> allProjects;
-	/**
-	 * The reselected projects (input). All elements must be contained in
-	 * {@link #allProjects}.
-	 */
-	private final Collection<IProject> preselectedProjects;
+	/** All available projects, in table order. */
+	private final List<IProject> projects;
+	/** All available projects and their checked state. */
+	private final ProjectsTableModel model;
+	/** Fills the location column in the background, <code>null</code> until the control is created. */
+	private Job locationLoadJob;
 
 	/**
 	 * Creates a new instance of this class.
@@ -72,18 +79,20 @@ public class PLUWizardProjectsPage extends WizardPage {
 	 *            All available projects (input, unmodifiable).
 	 * @param preselectedProjects
 	 *            The reselected projects (input, unmodifiable). All elements must be contained in
-	 *            {@link #allProjects}.
+	 *            <code>allProjects</code>.
 	 */
 	public PLUWizardProjectsPage(Collection<IProject> allProjects, Collection<IProject> preselectedProjects) {
 		super(Messages.wizard_projectsPage_page_name);
 		setTitle(Messages.wizard_projectsPage_page_title);
 		setDescription(Messages.wizard_projectsPage_page_description);
 
-		List<IProject> allProjectsList = filterToList(allProjects, PROJECT_VISIBLE_PREDICATE);
-		Collections.sort(allProjectsList, PROJECT_NAME_COMPARATOR);
-		this.allProjects = allProjectsList;
+		this.projects = filterToList(allProjects, PROJECT_VISIBLE_PREDICATE);
+		Collections.sort(projects, PROJECT_NAME_COMPARATOR);
+		this.model = new ProjectsTableModel(projects);
 
-		this.preselectedProjects = filterToSet(preselectedProjects, PROJECT_VISIBLE_PREDICATE);
+		for (IProject project : filterToSet(preselectedProjects, PROJECT_VISIBLE_PREDICATE)) {
+			model.setChecked(project, true);
+		}
 	}
 
 	@Override
@@ -93,54 +102,111 @@ public class PLUWizardProjectsPage extends WizardPage {
 		layout.makeColumnsEqualWidth = false;
 		comp.setLayout(layout);
 
+		createFilterText(comp);
 		createProjectsTable(comp);
 		createSelectButtons(comp);
 
 		setControl(comp);
 
 		updatePageComplete();
+		scheduleLocationLoadJob(comp.getDisplay());
+	}
+
+	@Override
+	public void dispose() {
+		if (locationLoadJob != null) {
+			locationLoadJob.cancel();
+		}
+		super.dispose();
+	}
+
+	/**
+	 * Loads the project locations in the background, the location column shows a placeholder until
+	 * then. The loaded rows are refreshed batch by batch.
+	 */
+	private void scheduleLocationLoadJob(final Display display) {
+		locationLoadJob = new ProjectLocationLoadJob(projects, model) {
+			@Override
+			protected void locationsLoaded(final List<IProject> loadedProjects) {
+				if (display.isDisposed()) {
+					return;
+				}
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (!tableViewer.getTable().isDisposed()) {
+							long start = RelocationStatistics.start();
+							if (model.locationsLoaded()) {
+								// a location filter may match the loaded projects now
+								tableViewer.setItemCount(model.getRowCount());
+								tableViewer.refresh();
+							} else {
+								// rows not created yet are skipped, they get the location when created
+								tableViewer.update(loadedProjects.toArray(), null);
+							}
+							RelocationStatistics.stop(Phase.UI, start, getName());
+						}
+					}
+				});
+			}
+		};
+		locationLoadJob.schedule();
 	}
 
 	private void updatePageComplete() {
-		boolean anyItemChecked = false;
-		for (TableItem item : tableViewer.getTable().getItems()) {
-			if (item.getChecked()) {
-				anyItemChecked = true;
-				break;
+		setPageComplete(model.isAnyChecked());
+	}
+
+	private void createFilterText(Composite parent) {
+		final Text filterText = new Text(parent, SWT.SINGLE | SWT.BORDER | SWT.SEARCH | SWT.ICON_CANCEL);
+		filterText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+		filterText.setMessage(Messages.wizard_projectsPage_filter_message);
+		filterText.setToolTipText(Messages.wizard_projectsPage_filter_tooltip);
+		filterText.addModifyListener(new ModifyListener() {
+			@Override
+			public void modifyText(ModifyEvent evt) {
+				model.setFilter(filterText.getText());
+				tableViewer.setItemCount(model.getRowCount());
+				tableViewer.refresh();
 			}
-		}
-		setPageComplete(anyItemChecked);
+		});
 	}
 
 	private void createProjectsTable(Composite parent) {
-		tableViewer = new TableViewer(parent, SWT.CHECK | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
-		Table table = tableViewer.getTable();
+		// the rows are created lazily when scrolled into view
+		Table table = new Table(parent, SWT.CHECK | SWT.VIRTUAL | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
+		tableViewer = new CheckboxTableViewer(table);
 		table.setHeaderVisible(true);
 		table.setLinesVisible(true);
 		GridData data = new GridData(SWT.FILL, SWT.FILL, true, true);
 		data.heightHint = 200;
 		table.setLayoutData(data);
 
-		createProjectTableColumns(parent, tableViewer);
-
-		tableViewer.setContentProvider(ArrayContentProvider.getInstance());
-		tableViewer.setInput(allProjects);
-
-		Display display = Display.getCurrent();
-		Color gray = display.getSystemColor(SWT.COLOR_GRAY);
-		for (TableItem item : table.getItems()) {
-			IProject project = (IProject) item.getData();
-			if (project.isOpen()) {
-				// disable rows of open projects
-				item.setGrayed(true);
-				item.setForeground(gray);
-			} else {
-				if (preselectedProjects.contains(project)) {
-					item.setChecked(true);
-				}
+		createProjectTableColumns(parent, tableViewer, model);
+
+		tableViewer.setUseHashlookup(true);
+		tableViewer.setContentProvider(new ProjectsContentProvider(tableViewer, model));
+		tableViewer.setCheckStateProvider(new ICheckStateProvider() {
+			@Override
+			public boolean isChecked(Object element) {
+				return model.isChecked((IProject) element);
 			}
-		}
-		table.addListener(SWT.Selection, new DisableGrayedItemSelectionListener(table));
+
+			@Override
+			public boolean isGrayed(Object element) {
+				return false;
+			}
+		});
+		tableViewer.setInput(model);
+		tableViewer.setItemCount(model.getRowCount());
+
+		tableViewer.addCheckStateListener(new ICheckStateListener() {
+			@Override
+			public void checkStateChanged(CheckStateChangedEvent evt) {
+				model.setChecked((IProject) evt.getElement(), evt.getChecked());
+				updatePageComplete();
+			}
+		});
 		table.addListener(SWT.Selection, new Listener() {
 			@Override
 			public void handleEvent(Event evt) {
@@ -148,28 +214,40 @@ public class PLUWizardProjectsPage extends WizardPage {
 				if (item == null) {
 					// likely CMD+A/STRG+A was pressed
 					selectAll(true);
-					updatePageComplete();
-				} else if (item.getGrayed()) {
-					// this row is disabled
-				} else {
-					if (evt.detail != SWT.CHECK && !IS_LINUX) {
-						// if row was selected (not the checkbox checked)
-						// this does not work on Linux, because the row label seems to overlap the checkbox
-						item.setChecked(!item.getChecked());
+				} else if (evt.detail != SWT.CHECK && !IS_LINUX) {
+					// if row was selected (not the checkbox checked)
+					// this does not work on Linux, because the row label seems to overlap the checkbox
+					IProject project = (IProject) item.getData();
+					if (project != null) {
+						boolean checked = !model.isChecked(project);
+						model.setChecked(project, checked);
+						item.setChecked(checked);
+						updatePageComplete();
 					}
-					updatePageComplete();
 				}
 			}
 		});
 
-		tableViewer.setSelection(new StructuredSelection(preselectedProjects));
-
+		selectPreselectedRows(table);
+	}
 
+	/**
+	 * Selects the rows of the preselected projects by index, so only these rows are created.
+	 */
+	private void selectPreselectedRows(Table table) {
+		Collection<IProject> checkedProjects = model.getCheckedProjects();
+		int[] indices = new int[checkedProjects.size()];
+		int i = 0;
+		for (IProject project : checkedProjects) {
+			indices[i++] = model.getRowOf(project);
+		}
+		table.setSelection(indices);
 	}
 
-	private static void createProjectTableColumns(Composite parent, TableViewer tableViewer) {
-		String[] titles = new String[] { Messages.wizard_projectsPage_projectTable_header_projectName, Messages.wizard_projectsPage_projectTable_header_reasonWhyDisabled };
-		int[] bounds = { 150, 200 };
+	private static void createProjectTableColumns(Composite parent, TableViewer tableViewer, final ProjectsTableModel model) {
+		String[] titles = new String[] { Messages.wizard_projectsPage_projectTable_header_projectName, Messages.wizard_projectsPage_projectTable_header_location,
+				Messages.wizard_projectsPage_projectTable_header_state };
+		int[] bounds = { 150, 300, 200 };
 
 		// the first column shows the project name
 		TableViewerColumn col = createTableViewerColumn(tableViewer, titles[0], bounds[0]);
@@ -181,19 +259,29 @@ public class PLUWizardProjectsPage extends WizardPage {
 			}
 		});
 
-		// the second column the disabled reason
+		// the second column the location, loaded in the background
 		col = createTableViewerColumn(tableViewer, titles[1], bounds[1]);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				String location = model.getLocation((IProject) element);
+				return location != null ? location : Messages.wizard_projectsPage_projectTable_itemText_locationLoading;
+			}
+		});
+
+		// the third column whether the project is closed and reopened while relocating
+		col = createTableViewerColumn(tableViewer, titles[2], bounds[2]);
 		col.setLabelProvider(new ColumnLabelProvider() {
 			@Override
 			public String getText(Object element) {
 				IProject project = (IProject) element;
 				if (project.isOpen()) {
-					return Messages.wizard_projectsPage_projectTable_itemText_disabledReasonOpen;
+					return Messages.wizard_projectsPage_projectTable_itemText_stateOpen;
 				}
 				return "-"; //$NON-NLS-1$
 			}
 		});
-}
+	}
 
 	private static TableViewerColumn createTableViewerColumn(TableViewer tableViewer, String title, int width) {
 		TableViewerColumn viewerColumn = new TableViewerColumn(tableViewer, SWT.NONE);
@@ -219,7 +307,6 @@ public class PLUWizardProjectsPage extends WizardPage {
 				selectAll(true);
 			}
 		});
-		selAllButton.addSelectionListener(new PageCompleteSelectAllAdapter(this, true));
 
 		Button deselAllButton = new Button(comp, SWT.PUSH);
 		deselAllButton.setText(Messages.wizard_projectsPage_projectTable_button_deselectAll);
@@ -230,79 +317,50 @@ public class PLUWizardProjectsPage extends WizardPage {
 				selectAll(false);
 			}
 		});
-		deselAllButton.addSelectionListener(new PageCompleteSelectAllAdapter(this, false));
 
 
 		comp.pack();
 	}
 
+	/**
+	 * Checks or unchecks all projects passing the filter.
+	 */
 	private void selectAll(boolean checkAllTableItems) {
-		for (TableItem item : tableViewer.getTable().getItems()) {
-			// ignore disabled rows
-			if (item.getGrayed()) {
-				continue;
-			}
-
-			item.setChecked(checkAllTableItems);
-		}
+		model.setAllChecked(checkAllTableItems);
+		// only the rows created so far are updated, the others get their state when created
+		tableViewer.refresh();
+		updatePageComplete();
 	}
 
 	public Collection<IProject> getSelectedProjects() {
-		Collection<IProject> result = new ArrayList<IProject>();
-		for (TableItem item : tableViewer.getTable().getItems()) {
-			if (item.getChecked()) {
-				result.add((IProject) item.getData());
-			}
-		}
-		return result;
+		return model.getCheckedProjects();
 	}
 
-	private static class DisableGrayedItemSelectionListener implements Listener {
-		private final Table table;
+	/**
+	 * A lazy content provider for the virtual projects table, the rows are created on demand.
+	 */
+	private static class ProjectsContentProvider implements ILazyContentProvider {
+		private final TableViewer tableViewer;
+		private final ProjectsTableModel model;
 
-		public DisableGrayedItemSelectionListener(Table table) {
-			this.table = table;
+		public ProjectsContentProvider(TableViewer tableViewer, ProjectsTableModel model) {
+			this.tableViewer = tableViewer;
+			this.model = model;
 		}
 
 		@Override
-		public void handleEvent(Event evt) {
-			// ignore non-check events
-			if (evt.detail != SWT.CHECK) {
-				return;
-			}
-
-			// if the row is not disabled, then handle events as normal
-			// just disable event for disabled rows
-			TableItem item = (TableItem) evt.item;
-			if (!item.getGrayed()) {
-				return;
-			}
-
-			// otherwise ... disable event
-			evt.detail = SWT.NONE;
-			evt.type = SWT.None;
-			evt.doit = false;
-			try {
-				table.setRedraw(false);
-				item.setChecked(false);
-			} finally {
-				table.setRedraw(true);
-			}
+		public void updateElement(int index) {
+			tableViewer.replace(model.getRow(index), index);
 		}
-	}
-
-	private static class PageCompleteSelectAllAdapter extends SelectionAdapter {
-		private final WizardPage wizardPage;
-		private final boolean pageCompleteOnSelect;
 
-		public PageCompleteSelectAllAdapter(WizardPage wizardPage, boolean pageCompleteOnSelect) {
-			this.wizardPage = wizardPage;
-			this.pageCompleteOnSelect = pageCompleteOnSelect;
+		@Override
+		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+			// nothing to do
 		}
 
 		@Override
-		public void widgetSelected(SelectionEvent evt) {
-			wizardPage.setPageComplete(pageCompleteOnSelect);
+		public void dispose() {
+			// nothing to do
 		}
 	}
 }
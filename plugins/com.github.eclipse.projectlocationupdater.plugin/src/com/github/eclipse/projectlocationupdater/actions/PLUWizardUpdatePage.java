@@ -1,8 +1,32 @@
 package com.github.eclipse.projectlocationupdater.actions;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.wizard.WizardPage;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
@@ -13,6 +37,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
@@ -20,16 +45,49 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Text;
 
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.ProjectLocationIndex;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.core.DiscoveryIndex;
 import com.github.eclipse.projectlocationupdater.i18n.Messages;
+import com.github.eclipse.projectlocationupdater.preferences.PreferenceConstants;
+import com.github.eclipse.projectlocationupdater.utils.PathTrie;
 
 /**
  * A {@link WizardPage} to enter the path to update.
+ * <p>
+ * If the selected projects are spread over several relocation roots (see
+ * {@link com.github.eclipse.projectlocationupdater.utils.PathTrie}), a new location can be entered
+ * for each of them. The locations of the selected projects are read by a background job when the
+ * page is shown with another selection, the rows and the entered locations of an unchanged
+ * selection are kept.
+ * <p>
+ * Alternatively, the new locations of projects moved by hand can be discovered below the search
+ * roots configured in the preferences, see {@link DiscoveryIndex}.
  *
  * @author Max Gensthaler
  */
 public class PLUWizardUpdatePage extends WizardPage {
-	private Text previousLocationText;
-	private Text newLocationText;
+	/** Interval in milliseconds to check the progress monitor for cancellation. */
+	private static final long CANCEL_POLL_INTERVAL = 100;
+
+	private Composite comp;
+	private final List<LocationRow> locationRows = new ArrayList<LocationRow>();
+
+	/** The projects selected on the previous page. */
+	private Collection<IProject> projects;
+	/** The projects of the current rows or of the running {@link #loadJob}. */
+	private Collection<IProject> loadedProjects;
+	private Job loadJob;
+
+	/** The selected projects mapped to their locations. */
+	private Map<IProject, String> projectLocations;
+	/**
+	 * The locations of the moved projects mapped to their discovered new locations, or
+	 * <code>null</code> if not discovered.
+	 */
+	private Map<String, String> discoveredLocations;
 
 	/**
 	 * Creates a new instance of this class.
@@ -43,110 +101,389 @@ public class PLUWizardUpdatePage extends WizardPage {
 
 	@Override
 	public void createControl(Composite parent) {
-		Composite comp = new Composite(parent, SWT.NONE);
+		comp = new Composite(parent, SWT.NONE);
 		comp.setLayout(new GridLayout(3, false));
 
-		createPreviousLocation(comp);
-		createNewLocation(comp);
-
 		setControl(comp);
 	}
 
-	private void createPreviousLocation(Composite composite) {
-		Label previousLocationLabel = new Label(composite, SWT.NONE);
-		previousLocationLabel.setText(Messages.proppage_previousLocation);
+	private void updatePageComplete() {
+		if (discoveredLocations != null) {
+			setPageComplete(!discoveredLocations.isEmpty());
+			return;
+		}
+		boolean anyNewLocationSet = false;
+		for (LocationRow row : locationRows) {
+			String previousLocation = row.previousLocationText.getText();
+			assert !previousLocation.isEmpty();
+			String newLocation = row.newLocationText.getText();
+			if (newLocation.isEmpty()) {
+				setPageComplete(false);
+				return;
+			}
+			anyNewLocationSet |= !newLocation.equals(previousLocation);
+		}
+		setPageComplete(anyNewLocationSet);
+	}
 
-		previousLocationText = new Text(composite, SWT.SINGLE | SWT.READ_ONLY | SWT.BORDER);
-		GridData gd = new GridData(SWT.FILL, SWT.FILL, true, false, 2, 1);
-		gd.widthHint = 40;
-		previousLocationText.setLayoutData(gd);
+	private void selectNewLocation(Text newLocationText) {
+		DirectoryDialog dd = new DirectoryDialog(getShell(), SWT.OPEN);
 
-		Display display = Display.getCurrent();
-		Color gray = display.getSystemColor(SWT.COLOR_DARK_GRAY);
-		previousLocationText.setForeground(gray);
-		previousLocationText.addListener(SWT.Traverse, new Listener() {
+		String location = newLocationText.getText();
+		if (!location.isEmpty() && new Path(location).toFile().isDirectory()) {
+			dd.setFilterPath(location);
+		} else {
+			String workspaceLocation = ResourcesPlugin.getWorkspace().getRoot().getLocation().toString();
+			dd.setFilterPath(workspaceLocation);
+		}
+
+		String selected = dd.open();
+		if (selected != null) {
+			newLocationText.setText(selected);
+		}
+	}
+
+	/**
+	 * Sets the projects to update. Their locations are read when the page is shown. Until then,
+	 * the page is incomplete if the projects changed.
+	 *
+	 * @param projects
+	 *            The selected projects (input, unmodifiable).
+	 */
+	public void setProjects(Collection<IProject> projects) {
+		this.projects = projects;
+		if (!projects.equals(loadedProjects)) {
+			setPageComplete(false);
+		}
+	}
+
+	/**
+	 * @return The projects the previous locations were read for.
+	 */
+	public Collection<IProject> getProjects() {
+		return loadedProjects;
+	}
+
+	@Override
+	public void setVisible(boolean visible) {
+		super.setVisible(visible);
+		if (visible && projects != null && !projects.equals(loadedProjects)) {
+			scheduleLoadJob();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		if (loadJob != null) {
+			loadJob.cancel();
+		}
+		super.dispose();
+	}
+
+	private void scheduleLoadJob() {
+		if (loadJob != null) {
+			loadJob.cancel();
+		}
+		setPreviousLocations(Collections.<String, Integer> emptyMap(), Collections.<IProject, String> emptyMap());
+		setErrorMessage(null);
+		setMessage(Messages.wizard_updatePage_loading);
+
+		final Collection<IProject> jobProjects = projects;
+		loadedProjects = projects;
+		final Display display = getControl().getDisplay();
+		loadJob = new Job(Messages.job_loadLocations_name) {
 			@Override
-			public void handleEvent(Event evt) {
-				if (evt.detail == SWT.TRAVERSE_RETURN) {
-					if (newLocationText.setFocus()) {
-						selectNewLocation();
+			protected IStatus run(IProgressMonitor monitor) {
+				monitor.beginTask(getName(), jobProjects.size());
+				long start = RelocationStatistics.start();
+				ProjectLocationIndex index = Activator.getDefault().getProjectLocationIndex();
+				final Map<IProject, String> locations = new LinkedHashMap<IProject, String>();
+				IOException failure = null;
+				try {
+					for (IProject project : jobProjects) {
+						if (monitor.isCanceled()) {
+							return Status.CANCEL_STATUS;
+						}
+						try {
+							locations.put(project, index.getProjectLocation(project));
+						} catch (IOException e) {
+							failure = e;
+							break;
+						}
+						monitor.worked(1);
 					}
+				} finally {
+					monitor.done();
+					RelocationStatistics.stop(Phase.LOAD_LOCATIONS, start, Integer.valueOf(jobProjects.size()));
+				}
+				final Map<String, Integer> roots = PathTrie.create(locations.values()).getRoots();
+				final IOException readFailure = failure;
+				final Job job = this;
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							// a newer job might have been scheduled meanwhile
+							if (loadJob != job || comp.isDisposed()) {
+								return;
+							}
+							if (readFailure != null) {
+								// read again when shown the next time
+								loadedProjects = null;
+								setMessage(null);
+								setErrorMessage(Messages.errorDialog_errorReadProjLocPrefix + readFailure.getMessage());
+							} else {
+								setPreviousLocations(roots, locations);
+							}
+						}
+					});
 				}
+				return Status.OK_STATUS;
 			}
-		});
+		};
+		loadJob.setSystem(true);
+		loadJob.schedule();
 	}
 
-	private void createNewLocation(final Composite composite) {
-		Label newLocationLabel = new Label(composite, SWT.NONE);
-		newLocationLabel.setText(Messages.proppage_newLocation);
+	/**
+	 * Creates a row for each location to update.
+	 *
+	 * @param previousLocations
+	 *            The relocation roots of the selected projects mapped to their project count.
+	 * @param projectLocations
+	 *            The selected projects mapped to their locations (input, unmodifiable).
+	 */
+	private void setPreviousLocations(Map<String, Integer> previousLocations, Map<IProject, String> projectLocations) {
+		this.projectLocations = projectLocations;
+		discoveredLocations = null;
+		setMessage(null);
 
-		newLocationText = new Text(composite, SWT.SINGLE | SWT.BORDER);
-		GridData gd = new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1);
-		gd.widthHint = 40;
-		newLocationText.setLayoutData(gd);
-		newLocationText.addModifyListener(new ModifyListener() {
-			@Override
-			public void modifyText(ModifyEvent evt) {
-				updatePageComplete();
-			}
-		});
-		newLocationText.addListener(SWT.Traverse, new Listener() {
-			@Override
-			public void handleEvent(Event evt) {
-				if (evt.detail == SWT.TRAVERSE_RETURN) {
-					selectNewLocation();
-				}
-			}
-		});
+		// recreate the rows for the current selection
+		for (Control child : comp.getChildren()) {
+			child.dispose();
+		}
+		locationRows.clear();
+		if (previousLocations.isEmpty()) {
+			// still loading
+			comp.layout(true);
+			setPageComplete(false);
+			return;
+		}
+		boolean showProjectCount = previousLocations.size() > 1;
+		for (Map.Entry<String, Integer> entry : previousLocations.entrySet()) {
+			String label = showProjectCount ? NLS.bind(Messages.wizard_updatePage_previousLocationOfProjects, entry.getValue()) : Messages.proppage_previousLocation;
+			locationRows.add(new LocationRow(comp, label, entry.getKey()));
+		}
+		createDiscoverButton();
+		comp.layout(true);
+
+		updatePageComplete();
+	}
 
-		Button browseButton = new Button(composite, SWT.NONE);
-		browseButton.setText(Messages.proppage_browse);
-		browseButton.addSelectionListener(new SelectionAdapter() {
+	/**
+	 * @return The previous locations mapped to the new locations entered for them.
+	 */
+	public Map<String, String> getNewLocations() {
+		if (discoveredLocations != null) {
+			// each moved project is relocated by its own rule
+			return new LinkedHashMap<String, String>(discoveredLocations);
+		}
+		Map<String, String> newLocations = new LinkedHashMap<String, String>();
+		for (LocationRow row : locationRows) {
+			String newLocation = row.newLocationText.getText();
+			assert !newLocation.isEmpty();
+			newLocations.put(row.previousLocationText.getText(), newLocation);
+		}
+		return newLocations;
+	}
+
+	private void createDiscoverButton() {
+		Button discoverButton = new Button(comp, SWT.NONE);
+		discoverButton.setLayoutData(new GridData(SWT.END, SWT.CENTER, false, false, 3, 1));
+		discoverButton.setText(Messages.wizard_updatePage_button_discover);
+		discoverButton.addSelectionListener(new SelectionAdapter() {
 			@Override
 			public void widgetSelected(SelectionEvent evt) {
-				selectNewLocation();
+				discover();
 			}
 		});
 	}
 
-	private void updatePageComplete() {
-		String previousLocation = previousLocationText.getText();
-		assert !previousLocation.isEmpty();
-		String newLocation = newLocationText.getText();
-		boolean newLocationSet = !newLocation.isEmpty() && !newLocation.equals(previousLocation);
-		setPageComplete(newLocationSet);
+	/**
+	 * Searches the selected projects below the search roots and takes the new locations found for
+	 * the projects which no longer exist at their location.
+	 */
+	private void discover() {
+		String searchRoots = Activator.getDefault().getPreferenceStore().getString(PreferenceConstants.SEARCH_ROOTS);
+		if (searchRoots.isEmpty()) {
+			setMessage(Messages.wizard_updatePage_discover_noSearchRoots, WARNING);
+			return;
+		}
+		final List<File> roots = new ArrayList<File>();
+		for (String searchRoot : searchRoots.split(File.pathSeparator)) {
+			roots.add(new File(searchRoot));
+		}
+
+		final Map<IProject, String> locations = projectLocations;
+		final Map<String, String> discovered = new LinkedHashMap<String, String>();
+		try {
+			getContainer().run(true, true, new IRunnableWithProgress() {
+				@Override
+				public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+					monitor.beginTask(Messages.wizard_updatePage_discover_taskName, IProgressMonitor.UNKNOWN);
+					try {
+						DiscoveryIndex index = scan(roots, monitor);
+						for (Map.Entry<IProject, String> entry : locations.entrySet()) {
+							String oldLocation = entry.getValue();
+							if (new File(oldLocation, ".project").isFile()) { //$NON-NLS-1$
+								// not moved
+								continue;
+							}
+							String newLocation = index.match(entry.getKey().getName(), oldLocation);
+							if (newLocation != null) {
+								discovered.put(oldLocation, newLocation);
+							}
+						}
+					} finally {
+						monitor.done();
+					}
+				}
+			});
+		} catch (InvocationTargetException e) {
+			setErrorMessage(NLS.bind(Messages.wizard_updatePage_discover_failed, e.getCause().toString()));
+			return;
+		} catch (InterruptedException e) {
+			// canceled
+			return;
+		}
+
+		discoveredLocations = discovered;
+		setErrorMessage(null);
+		setMessage(NLS.bind(Messages.wizard_updatePage_discover_result, Integer.valueOf(discovered.size()), Integer.valueOf(locations.size())), INFORMATION);
+		updatePageComplete();
 	}
 
-	private void selectNewLocation() {
-		DirectoryDialog dd = new DirectoryDialog(getShell(), SWT.OPEN);
+	/**
+	 * Rescans the search roots, reusing and updating the persisted {@link DiscoveryIndex}.
+	 */
+	private static DiscoveryIndex scan(final List<File> roots, IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+		File indexFile = Activator.getDefault().getDiscoveryIndexFile();
+		DiscoveryIndex loadedIndex;
+		try {
+			loadedIndex = DiscoveryIndex.load(indexFile);
+		} catch (IOException e) {
+			// rebuilt from scratch
+			loadedIndex = DiscoveryIndex.empty();
+		}
 
-		String location = newLocationText.getText();
-		if (!location.isEmpty() && new Path(location).toFile().isDirectory()) {
-			dd.setFilterPath(location);
-		} else {
-			String workspaceLocation = ResourcesPlugin.getWorkspace().getRoot().getLocation().toString();
-			dd.setFilterPath(workspaceLocation);
+		final DiscoveryIndex previousIndex = loadedIndex;
+		final AtomicBoolean canceled = new AtomicBoolean(false);
+		final ForkJoinPool pool = new ForkJoinPool();
+		DiscoveryIndex index;
+		try {
+			// the scan runs in the pool itself, this thread only polls for cancellation
+			Future<DiscoveryIndex> future = pool.submit(new Callable<DiscoveryIndex>() {
+				@Override
+				public DiscoveryIndex call() {
+					return previousIndex.scan(roots, pool, canceled);
+				}
+			});
+			while (true) {
+				if (monitor.isCanceled()) {
+					canceled.set(true);
+				}
+				try {
+					index = future.get(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					break;
+				} catch (TimeoutException e) {
+					// poll again
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new InvocationTargetException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		if (canceled.get()) {
+			// an incomplete index would hide the projects not walked on the next scan
+			throw new InterruptedException();
 		}
 
-		String selected = dd.open();
-		if (selected != null) {
-			newLocationText.setText(selected);
+		try {
+			index.save(indexFile);
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to save the discovery index", e)); //$NON-NLS-1$
 		}
+		return index;
 	}
 
-	public void setPreviousLocation(String previousLocation) {
-		// init the text fields
-		if (previousLocationText != null) {
+	/**
+	 * The controls to update one previous location.
+	 */
+	private class LocationRow {
+		final Text previousLocationText;
+		final Text newLocationText;
+
+		LocationRow(Composite composite, String previousLocationLabelText, String previousLocation) {
+			Label previousLocationLabel = new Label(composite, SWT.NONE);
+			previousLocationLabel.setText(previousLocationLabelText);
+
+			previousLocationText = new Text(composite, SWT.SINGLE | SWT.READ_ONLY | SWT.BORDER);
+			GridData gd = new GridData(SWT.FILL, SWT.FILL, true, false, 2, 1);
+			gd.widthHint = 40;
+			previousLocationText.setLayoutData(gd);
 			previousLocationText.setText(previousLocation);
-		}
-		if (newLocationText != null) {
+
+			Display display = Display.getCurrent();
+			Color gray = display.getSystemColor(SWT.COLOR_DARK_GRAY);
+			previousLocationText.setForeground(gray);
+			previousLocationText.addListener(SWT.Traverse, new Listener() {
+				@Override
+				public void handleEvent(Event evt) {
+					if (evt.detail == SWT.TRAVERSE_RETURN) {
+						if (newLocationText.setFocus()) {
+							selectNewLocation(newLocationText);
+						}
+					}
+				}
+			});
+
+			Label newLocationLabel = new Label(composite, SWT.NONE);
+			newLocationLabel.setText(Messages.proppage_newLocation);
+
+			newLocationText = new Text(composite, SWT.SINGLE | SWT.BORDER);
+			gd = new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1);
+			gd.widthHint = 40;
+			newLocationText.setLayoutData(gd);
 			newLocationText.setText(previousLocation);
-		}
-	}
+			newLocationText.addModifyListener(new ModifyListener() {
+				@Override
+				public void modifyText(ModifyEvent evt) {
+					// entered locations replace the discovered ones
+					if (discoveredLocations != null) {
+						discoveredLocations = null;
+						setMessage(null);
+					}
+					updatePageComplete();
+				}
+			});
+			newLocationText.addListener(SWT.Traverse, new Listener() {
+				@Override
+				public void handleEvent(Event evt) {
+					if (evt.detail == SWT.TRAVERSE_RETURN) {
+						selectNewLocation(newLocationText);
+					}
+				}
+			});
 
-	public String getNewLocation() {
-		String newLocation = newLocationText.getText();
-		assert !newLocation.isEmpty();
-		return newLocation;
+			Button browseButton = new Button(composite, SWT.NONE);
+			browseButton.setText(Messages.proppage_browse);
+			browseButton.addSelectionListener(new SelectionAdapter() {
+				@Override
+				public void widgetSelected(SelectionEvent evt) {
+					selectNewLocation(newLocationText);
+				}
+			});
+		}
 	}
 }
@@ -0,0 +1,229 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.filesystem.URIUtil;
+import org.eclipse.core.resources.IPathVariableManager;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.TitleAreaDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * A dialog to choose a workspace path variable and a location.
+ * <p>
+ * To make project locations relative, an existing variable keeps its location and a new variable
+ * can be entered. To move a variable, one of the existing variables is chosen and a new location
+ * entered.
+ *
+ * @author Max Gensthaler
+ */
+class PathVariableDialog extends TitleAreaDialog {
+	private final String title;
+	private final String message;
+	private final IPathVariableManager variableManager;
+	/** The existing variables mapped to their current location. */
+	private final Map<String, IPath> variables;
+	/** <code>true</code> to move an existing variable, <code>false</code> to choose or define one. */
+	private final boolean move;
+	private final String initialLocation;
+
+	private Combo nameCombo;
+	private Text locationText;
+	private Button browseButton;
+
+	private String variableName;
+	private IPath variableLocation;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param parentShell
+	 *            The parent shell.
+	 * @param title
+	 *            The title of the dialog.
+	 * @param message
+	 *            The message shown below the title.
+	 * @param variableManager
+	 *            The path variable manager of the workspace, to validate the input.
+	 * @param variables
+	 *            The existing variables mapped to their current location (input, unmodifiable).
+	 * @param move
+	 *            <code>true</code> to move an existing variable, <code>false</code> to choose or
+	 *            define one.
+	 * @param initialLocation
+	 *            The location proposed for a new variable, or <code>null</code>.
+	 */
+	PathVariableDialog(Shell parentShell, String title, String message, IPathVariableManager variableManager, Map<String, IPath> variables, boolean move,
+			String initialLocation) {
+		super(parentShell);
+		this.title = title;
+		this.message = message;
+		this.variableManager = variableManager;
+		this.variables = variables;
+		this.move = move;
+		this.initialLocation = initialLocation;
+	}
+
+	/**
+	 * Collects the path variables of the workspace pointing into the local file system.
+	 *
+	 * @param variableManager
+	 *            The path variable manager of the workspace.
+	 * @return The variables mapped to their current location, sorted by name.
+	 */
+	static Map<String, IPath> getVariables(IPathVariableManager variableManager) {
+		Map<String, IPath> variables = new TreeMap<String, IPath>();
+		for (String name : variableManager.getPathVariableNames()) {
+			URI value = variableManager.getURIValue(name);
+			if (value != null && "file".equals(value.getScheme())) { //$NON-NLS-1$
+				variables.put(name, URIUtil.toPath(value));
+			}
+		}
+		return variables;
+	}
+
+	@Override
+	protected void configureShell(Shell newShell) {
+		super.configureShell(newShell);
+		newShell.setText(title);
+	}
+
+	@Override
+	protected Control createDialogArea(Composite parent) {
+		Composite area = (Composite) super.createDialogArea(parent);
+		setTitle(title);
+		setMessage(message);
+
+		Composite comp = new Composite(area, SWT.NONE);
+		comp.setLayout(new GridLayout(3, false));
+		comp.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+
+		new Label(comp, SWT.NONE).setText(Messages.pathVariableDialog_name);
+		nameCombo = new Combo(comp, move ? SWT.DROP_DOWN | SWT.READ_ONLY : SWT.DROP_DOWN);
+		nameCombo.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+		nameCombo.setItems(variables.keySet().toArray(new String[variables.size()]));
+
+		new Label(comp, SWT.NONE).setText(Messages.pathVariableDialog_location);
+		locationText = new Text(comp, SWT.SINGLE | SWT.BORDER);
+		GridData gd = new GridData(SWT.FILL, SWT.CENTER, true, false);
+		gd.widthHint = convertWidthInCharsToPixels(60);
+		locationText.setLayoutData(gd);
+		browseButton = new Button(comp, SWT.PUSH);
+		browseButton.setText(Messages.proppage_browse);
+		browseButton.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				browse();
+			}
+		});
+
+		nameCombo.addModifyListener(new ModifyListener() {
+			@Override
+			public void modifyText(ModifyEvent e) {
+				nameChanged();
+			}
+		});
+		locationText.addModifyListener(new ModifyListener() {
+			@Override
+			public void modifyText(ModifyEvent e) {
+				validate();
+			}
+		});
+		return area;
+	}
+
+	@Override
+	protected void createButtonsForButtonBar(Composite parent) {
+		super.createButtonsForButtonBar(parent);
+		if (nameCombo.getItemCount() > 0) {
+			nameCombo.select(0);
+		}
+		nameChanged();
+	}
+
+	private void nameChanged() {
+		IPath location = variables.get(nameCombo.getText());
+		if (location != null) {
+			locationText.setText(location.toOSString());
+		} else if (initialLocation != null && locationText.getText().isEmpty()) {
+			locationText.setText(initialLocation);
+		}
+		// an existing variable is moved by the other action only
+		boolean editable = move || location == null;
+		locationText.setEditable(editable);
+		browseButton.setEnabled(editable);
+		validate();
+	}
+
+	private void browse() {
+		DirectoryDialog dd = new DirectoryDialog(getShell(), SWT.OPEN);
+		dd.setFilterPath(locationText.getText());
+		String selected = dd.open();
+		if (selected != null) {
+			locationText.setText(selected);
+		}
+	}
+
+	private void validate() {
+		String name = nameCombo.getText();
+		String location = locationText.getText().trim();
+		String error = null;
+		IStatus nameStatus = variableManager.validateName(name);
+		if (!variables.containsKey(name) && !nameStatus.isOK()) {
+			error = nameStatus.getMessage();
+		} else if (location.isEmpty() || !new Path(location).isAbsolute()) {
+			error = Messages.pathVariableDialog_invalidLocation;
+		}
+		setErrorMessage(error);
+		// the new location of a moved variable is still to be entered
+		boolean unchanged = move && error == null && new Path(location).equals(variables.get(name));
+		getButton(IDialogConstants.OK_ID).setEnabled(error == null && !unchanged);
+	}
+
+	@Override
+	protected void okPressed() {
+		variableName = nameCombo.getText();
+		variableLocation = new Path(locationText.getText().trim());
+		super.okPressed();
+	}
+
+	@Override
+	protected boolean isResizable() {
+		return true;
+	}
+
+	/**
+	 * @return The chosen variable.
+	 */
+	public String getVariableName() {
+		return variableName;
+	}
+
+	/**
+	 * @return The location of the chosen variable, the new one if it is moved.
+	 */
+	public IPath getVariableLocation() {
+		return variableLocation;
+	}
+}
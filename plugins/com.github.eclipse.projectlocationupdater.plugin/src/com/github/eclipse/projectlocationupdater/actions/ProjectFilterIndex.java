@@ -0,0 +1,190 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IProject;
+
+/**
+ * A precomputed index over the projects of the {@link PLUWizardProjectsPage} to filter them while
+ * typing.
+ * <p>
+ * A filter text is interpreted as
+ * <ul>
+ * <li>location prefix, if it starts with a path separator or a drive letter, e.g.
+ * <code>/home/me/src</code>. Matched by binary search over the sorted locations read from the
+ * .location files, the ones shown in the location column. Projects whose location is not loaded yet
+ * do not match.</li>
+ * <li>glob on the project name, if it contains <code>*</code> or <code>?</code>.</li>
+ * <li>substring of the project name otherwise.</li>
+ * </ul>
+ * All matches ignore case.
+ * <p>
+ * The locations are loaded in the background by a {@link ProjectLocationLoadJob}, so the sorted
+ * locations are rebuilt on the next location filter after {@link #locationsChanged()}.
+ *
+ * @author Max Gensthaler
+ */
+class ProjectFilterIndex {
+	private static final Pattern LOCATION_PREFIX_PATTERN = Pattern.compile("^([/\\\\]|[a-zA-Z]:).*"); //$NON-NLS-1$
+
+	/** The lower case names of the projects, by project index. */
+	private final String[] names;
+	/** The loaded locations of the projects, by project index, <code>null</code> until loaded. */
+	private final AtomicReferenceArray<String> locations;
+	/** The lower case loaded locations of the projects, sorted, <code>null</code> if stale. */
+	private String[] sortedLocations;
+	/** The project indices of {@link #sortedLocations}. */
+	private int[] sortedLocationIndices;
+	/** The indices of all projects. */
+	private final int[] allIndices;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param projects
+	 *            The projects to index (input, unmodifiable), in table order.
+	 * @param locations
+	 *            The loaded locations of the projects (input), by project index, <code>null</code>
+	 *            until loaded. Filled in the background, see {@link #locationsChanged()}.
+	 */
+	public ProjectFilterIndex(List<IProject> projects, AtomicReferenceArray<String> locations) {
+		int size = projects.size();
+		this.locations = locations;
+		names = new String[size];
+		allIndices = new int[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = projects.get(i).getName().toLowerCase(Locale.ENGLISH);
+			allIndices[i] = i;
+		}
+	}
+
+	/**
+	 * Marks the sorted locations stale, because more locations were loaded.
+	 */
+	public void locationsChanged() {
+		sortedLocations = null;
+		sortedLocationIndices = null;
+	}
+
+	/**
+	 * @return <code>true</code> if the filter text is a location prefix, so its result changes
+	 *         when more locations are loaded.
+	 */
+	public static boolean isLocationFilter(String filterText) {
+		return LOCATION_PREFIX_PATTERN.matcher(filterText.trim()).matches();
+	}
+
+	private void sortLocations() {
+		int size = names.length;
+		final String[] lowerCaseLocations = new String[size];
+		Integer[] locationOrder = new Integer[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			String location = locations.get(i);
+			if (location != null) {
+				lowerCaseLocations[i] = location.replace('\\', '/').toLowerCase(Locale.ENGLISH);
+				locationOrder[count++] = Integer.valueOf(i);
+			}
+		}
+
+		Arrays.sort(locationOrder, 0, count, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return lowerCaseLocations[a.intValue()].compareTo(lowerCaseLocations[b.intValue()]);
+			}
+		});
+		sortedLocations = new String[count];
+		sortedLocationIndices = new int[count];
+		for (int i = 0; i < count; i++) {
+			int index = locationOrder[i].intValue();
+			sortedLocations[i] = lowerCaseLocations[index];
+			sortedLocationIndices[i] = index;
+		}
+	}
+
+	/**
+	 * Filters the projects.
+	 *
+	 * @param filterText
+	 *            The filter text, see class comment.
+	 * @return The indices of the matching projects, in table order.
+	 */
+	public int[] filter(String filterText) {
+		String text = filterText.trim().toLowerCase(Locale.ENGLISH);
+		if (text.isEmpty()) {
+			return allIndices;
+		}
+		if (LOCATION_PREFIX_PATTERN.matcher(text).matches()) {
+			return filterByLocationPrefix(text.replace('\\', '/'));
+		}
+		if (text.indexOf('*') >= 0 || text.indexOf('?') >= 0) {
+			return filterByNamePattern(toRegex(text));
+		}
+		return filterByNameSubstring(text);
+	}
+
+	private int[] filterByLocationPrefix(String prefix) {
+		if (sortedLocations == null) {
+			sortLocations();
+		}
+		// the locations starting with the prefix form a range in the sorted locations
+		int from = Arrays.binarySearch(sortedLocations, prefix);
+		if (from < 0) {
+			from = -from - 1;
+		}
+		int to = from;
+		while (to < sortedLocations.length && sortedLocations[to].startsWith(prefix)) {
+			to++;
+		}
+		int[] result = Arrays.copyOfRange(sortedLocationIndices, from, to);
+		// back to table order
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int[] filterByNamePattern(Pattern pattern) {
+		int[] result = new int[names.length];
+		int count = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (pattern.matcher(names[i]).matches()) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private int[] filterByNameSubstring(String text) {
+		int[] result = new int[names.length];
+		int count = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].indexOf(text) >= 0) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static Pattern toRegex(String glob) {
+		StringBuilder regex = new StringBuilder(glob.length() + 8);
+		int literalStart = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			if (c == '*' || c == '?') {
+				if (i > literalStart) {
+					regex.append(Pattern.quote(glob.substring(literalStart, i)));
+				}
+				regex.append(c == '*' ? ".*" : "."); //$NON-NLS-1$ //$NON-NLS-2$
+				literalStart = i + 1;
+			}
+		}
+		if (literalStart < glob.length()) {
+			regex.append(Pattern.quote(glob.substring(literalStart)));
+		}
+		return Pattern.compile(regex.toString());
+	}
+}
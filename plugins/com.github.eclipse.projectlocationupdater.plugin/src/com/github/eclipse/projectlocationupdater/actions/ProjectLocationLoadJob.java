@@ -0,0 +1,141 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.ProjectLocationIndex;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics;
+import com.github.eclipse.projectlocationupdater.RelocationStatistics.Phase;
+import com.github.eclipse.projectlocationupdater.WorkerPools;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * A background {@link Job} reading the locations of the projects of the
+ * {@link PLUWizardProjectsPage} into its {@link ProjectsTableModel}.
+ * <p>
+ * The .location files are read in parallel through the {@link ProjectLocationIndex}, so the
+ * wizard finds them indexed later on. The loaded projects are reported in batches at most every
+ * {@link #BATCH_INTERVAL} milliseconds, to not flood the UI thread with updates.
+ *
+ * @author Max Gensthaler
+ */
+abstract class ProjectLocationLoadJob extends Job {
+	/** Minimum interval in milliseconds between two reported batches. */
+	private static final long BATCH_INTERVAL = 200;
+
+	private final List<IProject> projects;
+	private final ProjectsTableModel model;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param projects
+	 *            The projects to load the locations of (input, unmodifiable), in loading order.
+	 * @param model
+	 *            The model to store the locations in.
+	 */
+	public ProjectLocationLoadJob(List<IProject> projects, ProjectsTableModel model) {
+		super(Messages.job_loadLocations_name);
+		this.projects = projects;
+		this.model = model;
+		setSystem(true);
+	}
+
+	/**
+	 * Called from the job thread with the projects whose location was stored in the model since the
+	 * previous call.
+	 *
+	 * @param loadedProjects
+	 *            The loaded projects (unmodifiable).
+	 */
+	protected abstract void locationsLoaded(List<IProject> loadedProjects);
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		int projectCount = projects.size();
+		monitor.beginTask(getName(), projectCount);
+		long start = RelocationStatistics.start();
+
+		final ProjectLocationIndex index = Activator.getDefault().getProjectLocationIndex();
+		ExecutorService executor = WorkerPools.newFixedThreadPool(projectCount);
+		try {
+			CompletionService<IProject> completionService = new ExecutorCompletionService<IProject>(executor);
+			for (IProject project : projects) {
+				completionService.submit(new LoadLocationTask(project, index));
+			}
+
+			List<IProject> batch = new ArrayList<IProject>();
+			long batchDeadline = System.currentTimeMillis() + BATCH_INTERVAL;
+			int pending = projectCount;
+			while (pending > 0 && !monitor.isCanceled()) {
+				long timeout = batchDeadline - System.currentTimeMillis();
+				Future<IProject> future = timeout > 0 ? completionService.poll(timeout, TimeUnit.MILLISECONDS) : completionService.poll();
+				if (future != null) {
+					pending--;
+					batch.add(future.get());
+					monitor.worked(1);
+				}
+				if (!batch.isEmpty() && (pending == 0 || System.currentTimeMillis() >= batchDeadline)) {
+					locationsLoaded(batch);
+					batch = new ArrayList<IProject>();
+				}
+				if (System.currentTimeMillis() >= batchDeadline) {
+					batchDeadline = System.currentTimeMillis() + BATCH_INTERVAL;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// LoadLocationTask catches its own failures
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+			RelocationStatistics.stop(Phase.LOAD_LOCATIONS, start, Integer.valueOf(projectCount));
+		}
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * Reads the location of one project into the model.
+	 */
+	private class LoadLocationTask implements Callable<IProject> {
+		private final IProject project;
+		private final ProjectLocationIndex index;
+
+		public LoadLocationTask(IProject project, ProjectLocationIndex index) {
+			this.project = project;
+			this.index = index;
+		}
+
+		@Override
+		public IProject call() {
+			String location;
+			try {
+				location = index.getProjectLocation(project);
+			} catch (IOException e) {
+				location = NLS.bind(Messages.wizard_projectsPage_projectTable_itemText_locationUnreadable, e.getMessage());
+			} catch (RuntimeException e) {
+				location = NLS.bind(Messages.wizard_projectsPage_projectTable_itemText_locationUnreadable, e.toString());
+			}
+			model.setLocation(project, location);
+			return project;
+		}
+	}
+}
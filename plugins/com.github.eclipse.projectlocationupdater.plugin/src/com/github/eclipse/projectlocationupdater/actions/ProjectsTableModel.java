@@ -0,0 +1,187 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.core.resources.IProject;
+
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
+
+/**
+ * The rows of the projects table of the {@link PLUWizardProjectsPage} and their checked state.
+ * <p>
+ * All projects can be checked, open projects are closed and reopened by the
+ * {@link LocationUpdateJob} around the relocation.
+ * <p>
+ * The table is virtual and creates its rows only when they are scrolled into view, so the state
+ * of all rows is kept here and not in the widgets. The table shows the projects passing the
+ * current filter (see {@link ProjectFilterIndex}) only, its rows are the visible projects.
+ * <p>
+ * The checked state is a bit set over the project indices with a running count of the checked
+ * projects, so checking the page for completion is O(1) and retrieving the checked
+ * projects is O(checked), no matter how many projects there are.
+ * <p>
+ * The locations of the projects are loaded in the background by a {@link ProjectLocationLoadJob},
+ * they are the only state of this model accessed by other threads than the UI thread.
+ *
+ * @author Max Gensthaler
+ */
+class ProjectsTableModel {
+	/** All available projects (unmodifiable), in table order. */
+	private final List<IProject> projects;
+	/** The index of each project in {@link #projects}. */
+	private final Map<IProject, Integer> projectIndices;
+	private final BitSet checked;
+	private int checkedCount;
+	/** The locations read from the .location files, by project index, <code>null</code> until loaded. */
+	private final AtomicReferenceArray<String> locations;
+	private final ProjectFilterIndex filterIndex;
+	private String filterText = ""; //$NON-NLS-1$
+	/** The indices of the projects passing the filter, in table order. */
+	private int[] visibleIndices;
+
+	/**
+	 * Creates a new instance of this class.
+	 *
+	 * @param projects
+	 *            All available projects (input, unmodifiable), in table order.
+	 */
+	public ProjectsTableModel(List<IProject> projects) {
+		this.projects = projects;
+		int size = projects.size();
+		this.projectIndices = new HashMap<IProject, Integer>(size * 4 / 3 + 1);
+		this.checked = new BitSet(size);
+		this.locations = new AtomicReferenceArray<String>(size);
+		for (int i = 0; i < size; i++) {
+			IProject project = projects.get(i);
+			projectIndices.put(project, Integer.valueOf(i));
+		}
+		this.filterIndex = new ProjectFilterIndex(projects, locations);
+		this.visibleIndices = filterIndex.filter(filterText);
+	}
+
+	/**
+	 * Shows only the projects matching the given filter text.
+	 *
+	 * @param filterText
+	 *            The filter text, see {@link ProjectFilterIndex}.
+	 */
+	public void setFilter(String filterText) {
+		this.filterText = filterText;
+		visibleIndices = filterIndex.filter(filterText);
+	}
+
+	/**
+	 * Updates the filter after a batch of locations was loaded, see
+	 * {@link ProjectLocationLoadJob#locationsLoaded(List)}.
+	 *
+	 * @return <code>true</code> if the current filter matches locations, so the visible projects
+	 *         may have changed.
+	 */
+	public boolean locationsLoaded() {
+		filterIndex.locationsChanged();
+		if (!ProjectFilterIndex.isLocationFilter(filterText)) {
+			return false;
+		}
+		visibleIndices = filterIndex.filter(filterText);
+		return true;
+	}
+
+	/**
+	 * @return The number of table rows, the projects passing the filter.
+	 */
+	public int getRowCount() {
+		return visibleIndices.length;
+	}
+
+	/**
+	 * @return The project shown in the given table row.
+	 */
+	public IProject getRow(int row) {
+		return projects.get(visibleIndices[row]);
+	}
+
+	/**
+	 * @return The table row of the given project, or -1 if it does not pass the filter.
+	 */
+	public int getRowOf(IProject project) {
+		int row = Arrays.binarySearch(visibleIndices, indexOf(project));
+		return row >= 0 ? row : -1;
+	}
+
+	private int indexOf(IProject project) {
+		return projectIndices.get(project).intValue();
+	}
+
+	/**
+	 * @return The location of the project, or <code>null</code> if not yet loaded.
+	 */
+	public String getLocation(IProject project) {
+		return locations.get(indexOf(project));
+	}
+
+	/**
+	 * Stores the loaded location of the project. May be called from any thread.
+	 */
+	public void setLocation(IProject project, String location) {
+		locations.set(indexOf(project), location);
+	}
+
+	public boolean isChecked(IProject project) {
+		return checked.get(indexOf(project));
+	}
+
+	/**
+	 * Checks or unchecks the given project.
+	 */
+	public void setChecked(IProject project, boolean checkProject) {
+		setChecked(indexOf(project), checkProject);
+	}
+
+	private void setChecked(int index, boolean checkProject) {
+		if (checked.get(index) != checkProject) {
+			checked.set(index, checkProject);
+			checkedCount += checkProject ? 1 : -1;
+		}
+	}
+
+	/**
+	 * Checks or unchecks all projects passing the filter. The checked state of the filtered out
+	 * projects is kept.
+	 */
+	public void setAllChecked(boolean checkProjects) {
+		if (visibleIndices.length == projects.size()) {
+			// no filter: whole words at once
+			checked.clear();
+			if (checkProjects) {
+				checked.set(0, projects.size());
+			}
+			checkedCount = checked.cardinality();
+			return;
+		}
+		for (int index : visibleIndices) {
+			setChecked(index, checkProjects);
+		}
+	}
+
+	public boolean isAnyChecked() {
+		return checkedCount > 0;
+	}
+
+	/**
+	 * @return The checked projects in table order.
+	 */
+	public Collection<IProject> getCheckedProjects() {
+		Collection<IProject> result = new ArrayList<IProject>(checkedCount);
+		for (int index = checked.nextSetBit(0); index >= 0; index = checked.nextSetBit(index + 1)) {
+			result.add(projects.get(index));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,143 @@
+package com.github.eclipse.projectlocationupdater.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkbenchWindowActionDelegate;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
+import com.github.eclipse.projectlocationupdater.core.RelocationHistory;
+import com.github.eclipse.projectlocationupdater.core.RelocationHistory.Snapshot;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * An action to undo the last relocation batch by restoring the .location files from the snapshot
+ * taken before it, see {@link RelocationHistory}.
+ * <p>
+ * The open projects of the snapshot are closed while their files are restored and reopened
+ * afterwards. The snapshot is dropped from the history once all files are restored, so repeating
+ * the action undoes the batch before.
+ *
+ * @author Max Gensthaler
+ */
+public class UndoRelocationAction implements IWorkbenchWindowActionDelegate {
+	private IWorkbenchWindow window;
+
+	@Override
+	public void init(IWorkbenchWindow workbenchWindow) {
+		this.window = workbenchWindow;
+	}
+
+	@Override
+	public void dispose() {
+		// nothing to do
+	}
+
+	@Override
+	public void run(IAction action) {
+		Shell shell = window.getShell();
+		RelocationHistory history = Activator.getDefault().getRelocationHistory();
+		Snapshot snapshot = history.getLatest();
+		if (snapshot == null) {
+			MessageDialog.openInformation(shell, Messages.action_undoRelocation_dialog_title, Messages.action_undoRelocation_empty);
+			return;
+		}
+
+		String time = DateFormat.getDateTimeInstance().format(new Date(snapshot.getTime()));
+		String question = NLS.bind(Messages.action_undoRelocation_confirm, new Object[] { Integer.valueOf(snapshot.getFileCount()), snapshot.getLabel(), time });
+		if (MessageDialog.openConfirm(shell, Messages.action_undoRelocation_dialog_title, question)) {
+			scheduleRestoreJob(history, snapshot);
+		}
+	}
+
+	/**
+	 * Schedules a job to restore the snapshot. Like the {@link LocationUpdateJob}, it closes the
+	 * open projects of the snapshot in one workspace operation, restores the files in one journal
+	 * batch and reopens the projects in another workspace operation.
+	 */
+	private static void scheduleRestoreJob(final RelocationHistory history, final Snapshot snapshot) {
+		WorkspaceJob job = new WorkspaceJob(Messages.job_undoRelocation_name) {
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) {
+				List<IProject> openProjects;
+				try {
+					openProjects = LocationUpdateJob.getOpenProjects(getProjects(history, snapshot));
+				} catch (IOException e) {
+					return new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.action_undoRelocation_failed, e.getMessage()), e);
+				}
+				monitor.beginTask(getName(), 1 + 2 * openProjects.size());
+
+				List<IProject> closedProjects = new ArrayList<IProject>(openProjects.size());
+				try {
+					LocationUpdateJob.closeProjects(openProjects, closedProjects, new SubProgressMonitor(monitor, openProjects.size()));
+				} catch (CoreException e) {
+					// nothing is restored, the projects closed so far are reopened as they were
+					MultiStatus failures = new MultiStatus(Activator.PLUGIN_ID, IStatus.ERROR, NLS.bind(Messages.job_updateLocations_closeFailed, e.getMessage()), e);
+					LocationUpdateJob.reopenProjects(closedProjects, failures, new SubProgressMonitor(monitor, openProjects.size()));
+					monitor.done();
+					return failures;
+				}
+
+				MultiStatus failures = new MultiStatus(Activator.PLUGIN_ID, IStatus.OK, "", null); //$NON-NLS-1$
+				try {
+					history.restore(snapshot, Activator.getDefault().getRelocationJournal());
+				} catch (IOException e) {
+					failures.add(new Status(IStatus.ERROR, Activator.PLUGIN_ID, NLS.bind(Messages.action_undoRelocation_failed, e.getMessage()), e));
+				} finally {
+					// the restored files are read again on the next access
+					Activator.getDefault().getProjectLocationIndex().clear();
+					monitor.worked(1);
+					LocationUpdateJob.reopenProjects(closedProjects, failures, new SubProgressMonitor(monitor, openProjects.size()));
+					monitor.done();
+				}
+
+				if (!failures.isOK()) {
+					return new MultiStatus(Activator.PLUGIN_ID, IStatus.ERROR, failures.getChildren(), Messages.job_undoRelocation_failed, null);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setRule(ResourcesPlugin.getWorkspace().getRoot());
+		job.setUser(true);
+		job.schedule();
+	}
+
+	/**
+	 * @return The projects of the .location files kept by the snapshot.
+	 */
+	private static List<IProject> getProjects(RelocationHistory history, Snapshot snapshot) throws IOException {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		List<IProject> projects = new ArrayList<IProject>(snapshot.getFileCount());
+		for (File locationFile : history.getFiles(snapshot)) {
+			// the .location file is kept in a directory named after the project
+			projects.add(root.getProject(locationFile.getParentFile().getName()));
+		}
+		return projects;
+	}
+
+	@Override
+	public void selectionChanged(IAction action, ISelection selection) {
+		// nothing to do
+	}
+}
@@ -8,25 +8,101 @@ import org.eclipse.osgi.util.NLS;
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = Messages.class.getPackage().getName() + ".messages"; //$NON-NLS-1$
 
-	public static String errorDialog_errorOnApplyPrefix;
+	public static String action_importMappings_dialog_title;
+	public static String action_importMappings_failed;
+	public static String action_importMappings_summary;
+	public static String action_makeRelative_defineFailed;
+	public static String action_makeRelative_dialog_message;
+	public static String action_makeRelative_dialog_title;
+	public static String action_makeRelative_noProjects;
+	public static String action_makeRelative_result;
+	public static String action_makeRelative_taskName;
+	public static String action_movePathVariable_confirm;
+	public static String action_movePathVariable_dialog_message;
+	public static String action_movePathVariable_dialog_title;
+	public static String action_movePathVariable_failed;
+	public static String action_movePathVariable_noVariables;
+	public static String action_movePathVariable_openProjects;
+	public static String action_movePathVariable_taskName;
+	public static String action_undoRelocation_confirm;
+	public static String action_undoRelocation_dialog_title;
+	public static String action_undoRelocation_empty;
+	public static String action_undoRelocation_failed;
 	public static String errorDialog_errorReadProjLocPrefix;
 	public static String errorDialog_title;
+	public static String job_checkLocations_name;
+	public static String job_computePlan_name;
+	public static String job_importMappings_name;
+	public static String job_loadLocations_name;
+	public static String job_undoRelocation_failed;
+	public static String job_undoRelocation_name;
+	public static String job_updateLocations_closeFailed;
+	public static String job_updateLocations_failed;
+	public static String job_updateLocations_name;
+	public static String job_updateLocations_reopenFailed;
+	public static String job_updateLocations_summary;
+	public static String pathVariableDialog_invalidLocation;
+	public static String pathVariableDialog_location;
+	public static String pathVariableDialog_name;
+	public static String prefpage_checkAtStartup;
+	public static String prefpage_description;
+	public static String prefpage_searchRoots;
+	public static String prefpage_searchRoots_chooser;
 	public static String proppage_browse;
+	public static String proppage_loadTimeout;
+	public static String proppage_locationLoading;
 	public static String proppage_previousLocation;
 	public static String proppage_newLocation;
 	public static String proppage_projectOpenWarning;
 	public static String proppage_usage;
+	public static String startup_brokenLocations_dialog_title;
+	public static String startup_brokenLocations_guess;
+	public static String startup_brokenLocations_question;
+	public static String startup_brokenLocations_summary;
+	public static String startup_brokenLocations_unresolved;
+	public static String wizard_missingTargets_dialog_title;
+	public static String wizard_missingTargets_question;
+	public static String wizard_previewPage_computing;
+	public static String wizard_previewPage_page_description;
+	public static String wizard_previewPage_page_name;
+	public static String wizard_previewPage_page_title;
+	public static String wizard_previewPage_referencingProjects;
+	public static String wizard_previewPage_summary;
+	public static String wizard_previewPage_table_header_newLocation;
+	public static String wizard_previewPage_table_header_previousLocation;
+	public static String wizard_previewPage_table_header_projectName;
+	public static String wizard_previewPage_table_header_state;
+	public static String wizard_previewPage_table_itemText_changed;
+	public static String wizard_previewPage_table_itemText_targetDuplicate;
+	public static String wizard_previewPage_table_itemText_targetMissing;
+	public static String wizard_previewPage_table_itemText_targetNameMismatch;
+	public static String wizard_previewPage_table_itemText_targetNoProjectDescription;
+	public static String wizard_previewPage_table_itemText_targetNotAccessible;
+	public static String wizard_previewPage_table_itemText_unchanged;
+	public static String wizard_previewPage_table_itemText_unreadable;
+	public static String wizard_projectsPage_filter_message;
+	public static String wizard_projectsPage_filter_tooltip;
 	public static String wizard_projectsPage_page_description;
 	public static String wizard_projectsPage_page_name;
 	public static String wizard_projectsPage_page_title;
 	public static String wizard_projectsPage_projectTable_button_deselectAll;
 	public static String wizard_projectsPage_projectTable_button_selectAll;
+	public static String wizard_projectsPage_projectTable_header_location;
 	public static String wizard_projectsPage_projectTable_header_projectName;
-	public static String wizard_projectsPage_projectTable_header_reasonWhyDisabled;
-	public static String wizard_projectsPage_projectTable_itemText_disabledReasonOpen;
+	public static String wizard_projectsPage_projectTable_header_state;
+	public static String wizard_projectsPage_projectTable_itemText_locationLoading;
+	public static String wizard_projectsPage_projectTable_itemText_locationUnreadable;
+	public static String wizard_projectsPage_projectTable_itemText_stateOpen;
+	public static String wizard_updatePage_button_discover;
+	public static String wizard_updatePage_discover_failed;
+	public static String wizard_updatePage_discover_noSearchRoots;
+	public static String wizard_updatePage_discover_result;
+	public static String wizard_updatePage_discover_taskName;
+	public static String wizard_updatePage_loading;
 	public static String wizard_updatePage_page_description;
 	public static String wizard_updatePage_page_name;
 	public static String wizard_updatePage_page_title;
+	public static String wizard_updatePage_previousLocationOfProjects;
 
 	static {
 		// initialize resource bundle
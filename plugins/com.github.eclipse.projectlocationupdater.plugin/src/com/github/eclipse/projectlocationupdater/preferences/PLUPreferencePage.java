@@ -0,0 +1,35 @@
+package com.github.eclipse.projectlocationupdater.preferences;
+
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.PathEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.BrokenLocationStartup;
+import com.github.eclipse.projectlocationupdater.i18n.Messages;
+
+/**
+ * Preference page to configure the check of the project locations at startup, see
+ * {@link BrokenLocationStartup}.
+ *
+ * @author Max Gensthaler
+ */
+public class PLUPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+	public PLUPreferencePage() {
+		super(GRID);
+	}
+
+	@Override
+	public void init(IWorkbench workbench) {
+		setPreferenceStore(Activator.getDefault().getPreferenceStore());
+		setDescription(Messages.prefpage_description);
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		addField(new BooleanFieldEditor(PreferenceConstants.CHECK_LOCATIONS_AT_STARTUP, Messages.prefpage_checkAtStartup, getFieldEditorParent()));
+		addField(new PathEditor(PreferenceConstants.SEARCH_ROOTS, Messages.prefpage_searchRoots, Messages.prefpage_searchRoots_chooser, getFieldEditorParent()));
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.eclipse.projectlocationupdater.preferences;
+
+/**
+ * The keys of the preferences of this plug-in.
+ *
+ * @author Max Gensthaler
+ */
+public abstract class PreferenceConstants {
+	/** <code>true</code> to check the locations of the closed projects at startup. */
+	public static final String CHECK_LOCATIONS_AT_STARTUP = "checkLocationsAtStartup"; //$NON-NLS-1$
+
+	/** The directories to search moved projects below, separated by {@link java.io.File#pathSeparator}. */
+	public static final String SEARCH_ROOTS = "searchRoots"; //$NON-NLS-1$
+
+	private PreferenceConstants() {
+		//
+	}
+}
@@ -0,0 +1,20 @@
+package com.github.eclipse.projectlocationupdater.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import com.github.eclipse.projectlocationupdater.Activator;
+
+/**
+ * Initializes the default values of the preferences of this plug-in.
+ *
+ * @author Max Gensthaler
+ */
+public class PreferenceInitializer extends AbstractPreferenceInitializer {
+	@Override
+	public void initializeDefaultPreferences() {
+		IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+		store.setDefault(PreferenceConstants.CHECK_LOCATIONS_AT_STARTUP, false);
+		store.setDefault(PreferenceConstants.SEARCH_ROOTS, ""); //$NON-NLS-1$
+	}
+}
@@ -1,13 +1,19 @@
 package com.github.eclipse.projectlocationupdater.properties;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.PreferencePage;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -23,7 +29,11 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.PropertyPage;
 
+import com.github.eclipse.projectlocationupdater.Activator;
+import com.github.eclipse.projectlocationupdater.LocationUpdateJob;
 import com.github.eclipse.projectlocationupdater.LocationUpdater;
+import com.github.eclipse.projectlocationupdater.core.LocationRewriter;
+import com.github.eclipse.projectlocationupdater.core.RelocationJournal;
 import com.github.eclipse.projectlocationupdater.i18n.Messages;
 
 /**
@@ -35,15 +45,29 @@ import com.github.eclipse.projectlocationupdater.i18n.Messages;
  * <p>
  * The .location file is written by the eclipse platform at
  * {@link org.eclipse.core.internal.resources.LocalMetaArea#writePrivateDescription(org.eclipse.core.resources.IProject)}.
+ * <p>
+ * The page never touches the file system on the UI thread, the metadata might be on a slow or
+ * hung drive: the location is read by a background job, reported as timed out after
+ * {@link #LOAD_TIMEOUT} milliseconds, and written by a {@link LocationUpdateJob}.
  *
  * @author Max Gensthaler
  */
 @SuppressWarnings("restriction")
 public class PLUPropertyPage extends PropertyPage {
+	/** Milliseconds to wait for the location before reporting it as timed out. */
+	private static final int LOAD_TIMEOUT = 10000;
+
 	private IProject myProject;
 
 	private Text previousLocationText;
 	private Text newLocationText;
+	private Button browseButton;
+
+	/** The location read from the .location file, <code>null</code> until loaded. */
+	private String previousLocation;
+	/** <code>true</code> if the .location file could not be read, the fields stay disabled then. */
+	private boolean loadFailed;
+	private Job loadJob;
 
 	public PLUPropertyPage() {
 		super();
@@ -71,9 +95,87 @@ public class PLUPropertyPage extends PropertyPage {
 		createSeparatorLabel(composite);
 		createPreviousLocation(composite);
 		createNewLocation(composite);
+		scheduleLoadJob(composite.getDisplay());
 		return composite;
 	}
 
+	/**
+	 * Reads the location in the background and fills in the page when done. A read hanging longer
+	 * than {@link #LOAD_TIMEOUT} is reported, but still shown if it finishes later on. A failed
+	 * read is reported and keeps the page disabled, there is no location to start from.
+	 */
+	private void scheduleLoadJob(final Display display) {
+		final IProject project = getMyProject();
+		loadJob = new Job(Messages.job_loadLocations_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				String location = null;
+				String error = null;
+				try {
+					location = Activator.getDefault().getProjectLocationIndex().getProjectLocation(project);
+				} catch (IOException e) {
+					error = e.getMessage();
+				}
+				final String loadedLocation = location;
+				final String loadError = error;
+				if (!monitor.isCanceled() && !display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							if (loadedLocation != null) {
+								locationLoaded(loadedLocation);
+							} else {
+								locationFailed(loadError);
+							}
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		loadJob.setSystem(true);
+		loadJob.schedule();
+
+		display.timerExec(LOAD_TIMEOUT, new Runnable() {
+			@Override
+			public void run() {
+				if (previousLocation == null && !loadFailed && !previousLocationText.isDisposed()) {
+					setErrorMessage(NLS.bind(Messages.proppage_loadTimeout, project.getName(), Integer.valueOf(LOAD_TIMEOUT / 1000)));
+				}
+			}
+		});
+	}
+
+	private void locationLoaded(String location) {
+		if (previousLocationText.isDisposed()) {
+			return;
+		}
+		previousLocation = location;
+		previousLocationText.setText(location);
+		newLocationText.setText(location);
+		newLocationText.setEnabled(true);
+		browseButton.setEnabled(true);
+		setErrorMessage(null);
+	}
+
+	private void locationFailed(String error) {
+		if (previousLocationText.isDisposed()) {
+			return;
+		}
+		loadFailed = true;
+		previousLocationText.setText(""); //$NON-NLS-1$
+		setErrorMessage(Messages.errorDialog_errorReadProjLocPrefix + ' ' + error);
+	}
+
+	@Override
+	public void dispose() {
+		if (loadJob != null) {
+			// a read blocked in the file system cannot be interrupted, its result is dropped
+			loadJob.cancel();
+		}
+		super.dispose();
+	}
+
 	private void createSeparatorLabel(Composite composite) {
 		Label separatorLabel = new Label(composite, SWT.NONE); // separator label
 		separatorLabel.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false, 3, 1));
@@ -105,14 +207,7 @@ public class PLUPropertyPage extends PropertyPage {
 		Display display = Display.getCurrent();
 		Color gray = display.getSystemColor(SWT.COLOR_DARK_GRAY);
 		previousLocationText.setForeground(gray);
-
-		String previousLocation;
-		try {
-			previousLocation = LocationUpdater.readProjectLocation(getMyProject());
-		} catch (IOException e) {
-			previousLocation = ((IResource) getElement()).getProject().getLocation().toString();
-		}
-		previousLocationText.setText(previousLocation);
+		previousLocationText.setText(Messages.proppage_locationLoading);
 	}
 
 	private void createNewLocation(final Composite composite) {
@@ -123,17 +218,18 @@ public class PLUPropertyPage extends PropertyPage {
 		GridData gd = new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1);
 		gd.widthHint = 40;
 		newLocationText.setLayoutData(gd);
-		newLocationText.setText(previousLocationText.getText());
+		newLocationText.setEnabled(false);
 
-		Button browseButton = new Button(composite, SWT.NONE);
+		browseButton = new Button(composite, SWT.NONE);
 		browseButton.setText(Messages.proppage_browse);
 		browseButton.addSelectionListener(new SelectionListener() {
 			@Override
 			public void widgetSelected(SelectionEvent e) {
 				DirectoryDialog dd = new DirectoryDialog(composite.getShell(), SWT.OPEN);
 
+				// no check whether it exists, the dialog falls back to a parent itself
 				String location = newLocationText.getText();
-				if (!location.isEmpty() && new Path(location).toFile().isDirectory()) {
+				if (!location.isEmpty()) {
 					dd.setFilterPath(location);
 				} else {
 					String workspaceLocation = ResourcesPlugin.getWorkspace().getRoot().getLocation().toString();
@@ -151,28 +247,35 @@ public class PLUPropertyPage extends PropertyPage {
 				//
 			}
 		});
+		browseButton.setEnabled(false);
 	}
 
 	@Override
 	protected void performDefaults() {
 		super.performDefaults();
-		newLocationText.setText(previousLocationText.getText());
+		if (previousLocation != null) {
+			newLocationText.setText(previousLocation);
+		}
 	}
 
 	@Override
 	public boolean performOk() {
-		Path previousLocationPath = new Path(previousLocationText.getText());
-		Path newLocationPath = new Path(newLocationText.getText());
-		if (newLocationPath.equals(previousLocationPath)) {
-			// nothing to do, nothing changed
-		} else {
-			try {
-				LocationUpdater.writeProjectLocation(getMyProject(), newLocationPath);
-			} catch (IOException e) {
-				MessageDialog.openError(getShell(), Messages.errorDialog_title, Messages.errorDialog_errorOnApplyPrefix + e.getMessage());
-				throw new RuntimeException("Error in " + PLUPropertyPage.class.getName(), e); //$NON-NLS-1$
-				// return false;
-			}
+		if (previousLocation == null) {
+			// not loaded, nothing was entered
+			return true;
+		}
+		IPath previousLocationPath = new Path(previousLocation);
+		IPath newLocationPath = new Path(newLocationText.getText());
+		if (!newLocationPath.equals(previousLocationPath)) {
+			// same rewrite as the wizard, so separators and trailing slashes are handled alike
+			final LocationRewriter rewriter = LocationRewriter.compile(Collections.singletonMap(previousLocation, newLocationText.getText()));
+			// written in the background with progress, failures are reported by the job
+			new LocationUpdateJob(Collections.singletonList(getMyProject())) {
+				@Override
+				protected void updateLocation(IProject project, RelocationJournal.Batch batch) throws IOException {
+					LocationUpdater.updateLocation(project, rewriter, batch);
+				}
+			}.schedule();
 		}
 		return true;
 	}
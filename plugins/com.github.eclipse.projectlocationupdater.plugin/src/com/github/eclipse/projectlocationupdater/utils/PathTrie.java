@@ -0,0 +1,192 @@
+package com.github.eclipse.projectlocationupdater.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie over the segments of file system paths.
+ * <p>
+ * Each added path is split into its segments and inserted with one walk down the trie, so the
+ * longest common prefix and the relocation roots are known in O(total segments) without sorting
+ * or comparing the paths with each other.
+ * <p>
+ * The relocation roots are the longest common prefixes of the groups of paths sharing their first
+ * segment, e.g. the drives on Windows or the top level directories on Unix. There is only one
+ * relocation root (the longest common prefix of all paths) if that prefix has at least one segment.
+ *
+ * @author Max Gensthaler
+ */
+public class PathTrie {
+	private final Node root = new Node(null, null);
+	private boolean absolute;
+
+	/**
+	 * Creates a trie containing the given paths.
+	 *
+	 * @param paths
+	 *            The paths to add.
+	 * @return The trie.
+	 */
+	public static PathTrie create(Collection<String> paths) {
+		PathTrie trie = new PathTrie();
+		for (String path : paths) {
+			trie.add(path);
+		}
+		return trie;
+	}
+
+	/**
+	 * Adds a path to this trie. Both '/' and '\' are accepted as segment separator.
+	 *
+	 * @param path
+	 *            The path to add.
+	 */
+	public void add(String path) {
+		if (root.count == 0) {
+			absolute = isAbsolute(path);
+		}
+		Node node = root;
+		node.count++;
+		int length = path.length();
+		int start = 0;
+		while (start < length) {
+			int end = start;
+			while (end < length && !isSeparator(path.charAt(end))) {
+				end++;
+			}
+			if (end > start) {
+				node = node.getOrCreateChild(path.substring(start, end));
+				node.count++;
+			}
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * @return The number of paths added to this trie.
+	 */
+	public int size() {
+		return root.count;
+	}
+
+	/**
+	 * Returns the longest common path prefix of all added paths.
+	 *
+	 * @return The common part of the paths.
+	 */
+	public String getCommonPrefix() {
+		return toPath(getCommonPrefixNode(root));
+	}
+
+	/**
+	 * Returns the relocation roots of the added paths, each with the number of paths below it.
+	 *
+	 * @return The relocation roots mapped to their path count, in the order they were first added.
+	 */
+	public Map<String, Integer> getRoots() {
+		Map<String, Integer> roots = new LinkedHashMap<String, Integer>();
+		for (Node rootNode : getRootNodes()) {
+			roots.put(toPath(rootNode), Integer.valueOf(rootNode.count));
+		}
+		return roots;
+	}
+
+	/**
+	 * Returns the relocation root of the given path.
+	 *
+	 * @param path
+	 *            A path which was added to this trie.
+	 * @return The relocation root containing the path, or <code>null</code> if the path is unknown.
+	 */
+	public String getRoot(String path) {
+		for (Node rootNode : getRootNodes()) {
+			String rootPath = toPath(rootNode);
+			if (isPrefix(rootPath, path)) {
+				return rootPath;
+			}
+		}
+		return null;
+	}
+
+	private List<Node> getRootNodes() {
+		List<Node> rootNodes = new ArrayList<Node>();
+		Node commonPrefixNode = getCommonPrefixNode(root);
+		if (commonPrefixNode != root || root.children == null) {
+			rootNodes.add(commonPrefixNode);
+		} else {
+			// no common segment at all: one root per first segment
+			for (Node child : root.children.values()) {
+				rootNodes.add(getCommonPrefixNode(child));
+			}
+		}
+		return rootNodes;
+	}
+
+	/**
+	 * Walks down from the given node as long as all paths share the same next segment.
+	 */
+	private static Node getCommonPrefixNode(Node node) {
+		while (node.children != null && node.children.size() == 1) {
+			Node child = node.children.values().iterator().next();
+			if (child.count != node.count) {
+				// some paths end at this node
+				break;
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	private String toPath(Node node) {
+		if (node == root) {
+			return absolute ? "/" : ""; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		String parentPath = node.parent == root ? (absolute ? "/" : "") : toPath(node.parent) + '/'; //$NON-NLS-1$ //$NON-NLS-2$
+		return parentPath + node.segment;
+	}
+
+	private static boolean isPrefix(String prefix, String path) {
+		String normalizedPath = path.replace('\\', '/');
+		if (!normalizedPath.startsWith(prefix)) {
+			return false;
+		}
+		// match on segment boundaries only
+		return prefix.endsWith("/") || normalizedPath.length() == prefix.length() || normalizedPath.charAt(prefix.length()) == '/'; //$NON-NLS-1$
+	}
+
+	private static boolean isAbsolute(String path) {
+		return !path.isEmpty() && isSeparator(path.charAt(0));
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '/' || c == '\\';
+	}
+
+	private static class Node {
+		final Node parent;
+		final String segment;
+		/** Number of paths passing through or ending at this node. */
+		int count;
+		Map<String, Node> children;
+
+		Node(Node parent, String segment) {
+			this.parent = parent;
+			this.segment = segment;
+		}
+
+		Node getOrCreateChild(String childSegment) {
+			if (children == null) {
+				children = new LinkedHashMap<String, Node>();
+			}
+			Node child = children.get(childSegment);
+			if (child == null) {
+				child = new Node(this, childSegment);
+				children.put(childSegment, child);
+			}
+			return child;
+		}
+	}
+}